@@ -0,0 +1,57 @@
+package org.tuava.tui;
+
+// Stretches the frame interval when the terminal cannot drain frames as fast as they are drawn,
+// e.g. over a slow SSH link, so output does not pile up in the PTY and input stays responsive.
+//
+// Every frame reports how long its write blocked and how many bytes it was. Both are averaged
+// (EWMA), and their ratio is the rate the link drains output at. Only a link that drains slower
+// than SLOW_BYTES_PER_SECOND, with writes averaging at least MIN_SLOW_WRITE_NANOS over at least
+// MIN_SAMPLES frames, is treated as slow; the interval then becomes the time the link needs for an
+// average frame, with headroom. A local terminal drains many times faster than that, so a one-off
+// stall (a GC pause, the scheduler) never lowers its frame rate. Averages fall faster than they rise, so the full rate comes back
+// within a few frames once the link recovers.
+final class AdaptiveFrameRate implements ProgramListener {
+    // Never stretch past this, so the screen still moves on a terrible link
+    static final long MAX_INTERVAL_NANOS = 500_000_000L;
+    // Frames seen before the averages are trusted
+    static final int MIN_SAMPLES = 16;
+    // About a 16 Mbit/s link; local terminals drain hundreds of MB/s
+    static final double SLOW_BYTES_PER_SECOND = 2_000_000;
+    // Shorter writes are the terminal's own parsing or a busy scheduler rather than a backlog, and
+    // backing off for them would not lower an ordinary frame rate anyway
+    static final long MIN_SLOW_WRITE_NANOS = 5_000_000L;
+    private static final double HEADROOM = 1.5;
+    private static final double RISE = 0.3;
+    private static final double FALL = 0.5;
+
+    private int samples = 0;
+    private double writeNanos = 0;
+    private double bytes = 0;
+    private volatile long intervalNanos = 0;
+
+    @Override
+    public void onFrame(long viewNanos, long encodeNanos, long writeNanos, long bytes, long latencyNanos) {
+        if (bytes <= 0) {
+            return;
+        }
+        // Write time grows with the link's backlog, so it rises slowly and falls fast
+        this.writeNanos = average(this.writeNanos, writeNanos);
+        this.bytes = this.bytes + FALL * (bytes - this.bytes);
+        if (samples < MIN_SAMPLES) {
+            samples++;
+            return;
+        }
+        boolean slow = this.writeNanos >= MIN_SLOW_WRITE_NANOS
+                && this.bytes * 1e9 < SLOW_BYTES_PER_SECOND * this.writeNanos;
+        intervalNanos = slow ? (long) Math.min(MAX_INTERVAL_NANOS, this.writeNanos * HEADROOM) : 0;
+    }
+
+    // The shortest time between frames the link currently sustains
+    long intervalNanos() {
+        return intervalNanos;
+    }
+
+    private static double average(double current, double sample) {
+        return current + (sample > current ? RISE : FALL) * (sample - current);
+    }
+}
@@ -0,0 +1,137 @@
+package org.tuava.tui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+
+// An output that records a session as an asciicast v2 file (playable with `asciinema play`).
+// Attach it to a running program like any other viewer:
+//
+//   try (AsciicastRecorder cast = new AsciicastRecorder(Path.of("session.cast"), 100, 30)) {
+//       program.attach(cast);
+//       program.run(model);
+//   }
+//
+// Each flushed frame becomes one output event, timestamped relative to when recording started.
+public final class AsciicastRecorder implements TerminalBackend, Closeable {
+    private final Writer writer;
+    private final Terminal.TerminalSize size;
+    private final long startNanos = System.nanoTime();
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream(4096);
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    public AsciicastRecorder(Path path, int width, int height) throws IOException {
+        this.size = new Terminal.TerminalSize(Math.max(1, width), Math.max(1, height));
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        writer.write("{\"version\": 2, \"width\": " + size.width() + ", \"height\": " + size.height()
+                + ", \"timestamp\": " + System.currentTimeMillis() / 1000 + "}\n");
+        writer.flush();
+    }
+
+    private final OutputStream output = new OutputStream() {
+        @Override
+        public void write(int b) {
+            synchronized (AsciicastRecorder.this) {
+                frame.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            synchronized (AsciicastRecorder.this) {
+                frame.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (AsciicastRecorder.this) {
+                if (frame.size() == 0) {
+                    return;
+                }
+                double seconds = (System.nanoTime() - startNanos) / 1e9;
+                StringBuilder line = new StringBuilder(frame.size() + 32);
+                line.append('[').append(String.format(java.util.Locale.ROOT, "%.6f", seconds)).append(", \"o\", ");
+                quote(frame.toString(StandardCharsets.UTF_8), line);
+                line.append("]\n");
+                frame.reset();
+                writer.write(line.toString());
+                writer.flush();
+            }
+        }
+    };
+
+    // Recordings have no keyboard; reads block until the recorder is closed
+    private final InputStream input = new InputStream() {
+        @Override
+        public int read() {
+            try {
+                closed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return -1;
+        }
+    };
+
+    @Override
+    public OutputStream output() {
+        return output;
+    }
+
+    @Override
+    public InputStream input() {
+        return input;
+    }
+
+    @Override
+    public Terminal.TerminalSize size() {
+        return size;
+    }
+
+    @Override
+    public void enterRawMode() {
+    }
+
+    @Override
+    public void exitRawMode() {
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed.getCount() == 0) {
+            return;
+        }
+        closed.countDown();
+        writer.close();
+    }
+
+    private static void quote(String text, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == 0x7f) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
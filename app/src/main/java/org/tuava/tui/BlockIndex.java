@@ -0,0 +1,175 @@
+package org.tuava.tui;
+
+import java.util.Arrays;
+
+// A tree of summaries over a double[] (where the minimum and maximum are, and the sum and count of
+// values), eight values per block at the first level and eight blocks per block above that. An
+// aggregate over any range is put together from at most a few dozen summaries, so a chart asking
+// for one aggregate per column of a million-point series reads a few thousand entries, not a
+// million. NaN is a gap and is left out of every aggregate.
+//
+// Summaries are built on first use; whoever writes to the array marks the positions it changed
+// stale. Queries are synchronized because elements may render on several threads at once.
+final class BlockIndex {
+    private static final int SHIFT = 3;
+
+    private final double[] values;
+    // Per level, starting with blocks of 8 values: [level][block]
+    private final int[][] minIndex;
+    private final int[][] maxIndex;
+    private final double[][] sum;
+    private final int[][] count;
+    private final boolean[][] stale;
+
+    BlockIndex(double[] values) {
+        this.values = values;
+        int levels = 0;
+        while ((long) values.length > 1L << (SHIFT * levels)) {
+            levels++;
+        }
+        minIndex = new int[levels][];
+        maxIndex = new int[levels][];
+        sum = new double[levels][];
+        count = new int[levels][];
+        stale = new boolean[levels][];
+        for (int level = 0; level < levels; level++) {
+            int shift = SHIFT * (level + 1);
+            int blocks = (int) ((values.length + (1L << shift) - 1) >> shift);
+            minIndex[level] = new int[blocks];
+            maxIndex[level] = new int[blocks];
+            sum[level] = new double[blocks];
+            count[level] = new int[blocks];
+            stale[level] = new boolean[blocks];
+            Arrays.fill(stale[level], true);
+        }
+    }
+
+    synchronized void invalidate(int index) {
+        for (int level = 0; level < stale.length; level++) {
+            stale[level][index >> (SHIFT * (level + 1))] = true;
+        }
+    }
+
+    // Position of the smallest value in [from, to), the first one on ties, or -1 if there is none
+    synchronized int minIndex(int from, int to) {
+        return extreme(from, to, false);
+    }
+
+    synchronized int maxIndex(int from, int to) {
+        return extreme(from, to, true);
+    }
+
+    // Mean of the values in [from, to), or NaN if there are none
+    synchronized double mean(int from, int to) {
+        long n = (long) total(from, to, true);
+        return n == 0 ? Double.NaN : total(from, to, false) / n;
+    }
+
+    // Number of values (not gaps) in [from, to)
+    synchronized int count(int from, int to) {
+        return (int) total(from, to, true);
+    }
+
+    // The sum of the values in [from, to), or how many there are
+    private double total(int from, int to, boolean counting) {
+        double total = 0;
+        int i = from;
+        while (i < to) {
+            int level = levelAt(i, to);
+            if (level < 0) {
+                if (!Double.isNaN(values[i])) {
+                    total += counting ? 1 : values[i];
+                }
+                i++;
+            } else {
+                int block = summarize(level, i >> (SHIFT * (level + 1)));
+                total += counting ? count[level][block] : sum[level][block];
+                i = blockEnd(level, block);
+            }
+        }
+        return total;
+    }
+
+    private int extreme(int from, int to, boolean max) {
+        int best = -1;
+        int i = from;
+        while (i < to) {
+            int level = levelAt(i, to);
+            int candidate;
+            if (level < 0) {
+                candidate = Double.isNaN(values[i]) ? -1 : i;
+                i++;
+            } else {
+                int block = summarize(level, i >> (SHIFT * (level + 1)));
+                candidate = max ? maxIndex[level][block] : minIndex[level][block];
+                i = blockEnd(level, block);
+            }
+            if (candidate >= 0 && (best < 0 || better(candidate, best, max))) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    // The highest level whose block starts at i and ends by `to`, or -1 for a single value
+    private int levelAt(int i, int to) {
+        int level = -1;
+        while (level + 1 < stale.length) {
+            int shift = SHIFT * (level + 2);
+            if ((i & ((1 << shift) - 1)) != 0 || blockEnd(level + 1, i >> shift) > to) {
+                break;
+            }
+            level++;
+        }
+        return level;
+    }
+
+    private int blockEnd(int level, int block) {
+        return (int) Math.min(values.length, (long) (block + 1) << (SHIFT * (level + 1)));
+    }
+
+    private boolean better(int candidate, int best, boolean max) {
+        return max ? values[candidate] > values[best] : values[candidate] < values[best];
+    }
+
+    private int summarize(int level, int block) {
+        if (!stale[level][block]) {
+            return block;
+        }
+        int min = -1;
+        int max = -1;
+        double total = 0;
+        int n = 0;
+        int first = block << SHIFT;
+        if (level == 0) {
+            for (int k = first; k < blockEnd(0, block); k++) {
+                double v = values[k];
+                if (!Double.isNaN(v)) {
+                    min = min < 0 || v < values[min] ? k : min;
+                    max = max < 0 || v > values[max] ? k : max;
+                    total += v;
+                    n++;
+                }
+            }
+        } else {
+            int children = sum[level - 1].length;
+            for (int child = first; child < Math.min(children, first + (1 << SHIFT)); child++) {
+                summarize(level - 1, child);
+                int childMin = minIndex[level - 1][child];
+                if (childMin >= 0) {
+                    int childMax = maxIndex[level - 1][child];
+                    min = min < 0 || values[childMin] < values[min] ? childMin : min;
+                    max = max < 0 || values[childMax] > values[max] ? childMax : max;
+                    total += sum[level - 1][child];
+                    n += count[level - 1][child];
+                }
+            }
+        }
+        minIndex[level][block] = min;
+        maxIndex[level][block] = max;
+        sum[level][block] = total;
+        count[level][block] = n;
+        stale[level][block] = false;
+        return block;
+    }
+}
@@ -0,0 +1,232 @@
+package org.tuava.tui;
+
+// Writes the difference between two frames in as few bytes as it can. On a slow link every byte of
+// a frame is latency, and the plain encoding (position the cursor absolutely, rewrite the row, erase
+// the rest) spends most of them on cells that did not change.
+//
+// The encoder keeps track of where the cursor is and which attributes are active, and for each row:
+//   - writes only the runs of cells that changed; the cells between two runs are rewritten when
+//     that is shorter than moving past them
+//   - reaches each run with the shortest of an absolute position, relative moves, or CR/LF
+//   - blanks runs of spaces with ECH when the escape is shorter than the spaces
+//   - repeats a character with REP when that is shorter (only when the terminal is known to have it)
+//   - clears a tail that became empty with a single erase-to-end-of-line
+// Every frame ends with default attributes, so the next one starts from a known state.
+final class CellEncoder {
+    private static final String CSI = "\u001b[";
+
+    private boolean repeat;
+    // Where the cursor is, or -1 when unknown (e.g. after writing the last column, where terminals
+    // disagree on what happens next)
+    private int row = -1;
+    private int column = -1;
+    private String sgr = "";
+
+    void repeat(boolean repeat) {
+        this.repeat = repeat;
+    }
+
+    // The screen was just cleared and the cursor homed
+    void home() {
+        row = 0;
+        column = 0;
+        sgr = "";
+    }
+
+    // Appends what turns `previous` into `next` on the terminal; a null `previous` is a blank screen
+    void encode(ScreenBuffer previous, ScreenBuffer next, StringBuilder out) {
+        for (int y = 0; y < next.height(); y++) {
+            if (previous == null || !next.rowEquals(y, previous)) {
+                encodeRow(previous, next, y, out);
+            }
+        }
+        style("", out);
+    }
+
+    private void encodeRow(ScreenBuffer previous, ScreenBuffer next, int y, StringBuilder out) {
+        int width = next.width();
+        // Past `end` the row is blank and one erase clears whatever was there
+        int end = width;
+        while (end > 0 && next.isBlank(end - 1, y)) {
+            end--;
+        }
+        boolean clearTail = false;
+        for (int x = end; previous != null && x < width && !clearTail; x++) {
+            clearTail = !previous.isBlank(x, y);
+        }
+        int x = 0;
+        while (x < end) {
+            if (unchanged(previous, next, x, y)) {
+                x++;
+                continue;
+            }
+            int start = x;
+            while (start > 0 && next.glyph(start, y).isEmpty()) {
+                start--;
+            }
+            int stop = glyphEnd(next, x, y);
+            while (stop < end) {
+                int changed = stop;
+                while (changed < end && unchanged(previous, next, changed, y)) {
+                    changed++;
+                }
+                if (changed == end) {
+                    break;
+                }
+                if (changed > stop && rewriteCost(next, y, stop, changed) > move(y, stop, y, changed).length()) {
+                    break;
+                }
+                stop = glyphEnd(next, changed, y);
+            }
+            moveTo(y, start, out);
+            write(next, y, start, stop, out);
+            x = stop;
+        }
+        if (clearTail) {
+            moveTo(y, end, out);
+            style("", out);
+            out.append(Terminal.ANSI.ERASE_TO_END_OF_LINE);
+        }
+    }
+
+    // Writes cells [from, to) of row y, which start at the cursor
+    private void write(ScreenBuffer screen, int y, int from, int to, StringBuilder out) {
+        int i = from;
+        while (i < to) {
+            String glyph = screen.glyph(i, y);
+            String cellStyle = screen.style(i, y);
+            int w = glyphEnd(screen, i, y) - i;
+            int run = 1;
+            while (w == 1 && i + run < to && screen.glyph(i + run, y).equals(glyph)
+                    && screen.style(i + run, y).equals(cellStyle)) {
+                run++;
+            }
+            if (run > 1 && screen.isBlank(i, y) && eraseCost(run, i + run < to) < run) {
+                // ECH leaves the cursor where it is
+                style("", out);
+                out.append(csi(Terminal.ANSI.ERASE_CHARACTERS, run));
+                column = i;
+                if (i + run < to) {
+                    out.append(csi(Terminal.ANSI.CURSOR_FORWARD, run));
+                    column = i + run;
+                }
+            } else if (run > 1 && repeat && glyph.codePointCount(0, glyph.length()) == 1
+                    && utf8Length(glyph) + csi(Terminal.ANSI.REPEAT_CHARACTER, run - 1).length()
+                            < run * utf8Length(glyph)) {
+                style(cellStyle, out);
+                out.append(glyph).append(csi(Terminal.ANSI.REPEAT_CHARACTER, run - 1));
+                column = i + run;
+            } else {
+                style(cellStyle, out);
+                for (int k = 0; k < run; k++) {
+                    out.append(glyph);
+                }
+                column = i + run * w;
+            }
+            if (column >= screen.width()) {
+                column = -1;
+            }
+            i += run * w;
+        }
+    }
+
+    private void moveTo(int r, int c, StringBuilder out) {
+        if (row == r && column == c) {
+            return;
+        }
+        out.append(move(row, column, r, c));
+        row = r;
+        column = c;
+    }
+
+    // The shortest way from (fromRow, fromColumn) to (r, c); either coordinate may be unknown
+    private static String move(int fromRow, int fromColumn, int r, int c) {
+        String best = c == 0 ? (r == 0 ? Terminal.ANSI.CURSOR_HOME : CSI + (r + 1) + "H")
+                : CSI + (r + 1) + ";" + (c + 1) + "H";
+        if (fromRow < 0) {
+            return best;
+        }
+        String vertical = r > fromRow ? csi(Terminal.ANSI.CURSOR_DOWN, r - fromRow)
+                : r < fromRow ? csi(Terminal.ANSI.CURSOR_UP, fromRow - r) : "";
+        if (fromColumn >= 0) {
+            best = shorter(best, vertical + horizontal(fromColumn, c));
+        }
+        best = shorter(best, "\r" + vertical + horizontal(0, c));
+        if (r > fromRow) {
+            // LF after CR lands in column 0 whether or not the terminal translates it to CR LF
+            best = shorter(best, "\r" + "\n".repeat(r - fromRow) + horizontal(0, c));
+        }
+        return best;
+    }
+
+    private static String horizontal(int from, int to) {
+        return to > from ? csi(Terminal.ANSI.CURSOR_FORWARD, to - from)
+                : to < from ? csi(Terminal.ANSI.CURSOR_BACK, from - to) : "";
+    }
+
+    private static String shorter(String a, String b) {
+        return b.length() < a.length() ? b : a;
+    }
+
+    private void style(String cellStyle, StringBuilder out) {
+        if (!cellStyle.equals(sgr)) {
+            if (!sgr.isEmpty()) {
+                out.append(Terminal.ANSI.RESET);
+            }
+            out.append(cellStyle);
+            sgr = cellStyle;
+        }
+    }
+
+    // Bytes needed to rewrite cells [from, to) of row y, continuing in the style of the cell before
+    private static int rewriteCost(ScreenBuffer screen, int y, int from, int to) {
+        String current = screen.style(from - 1, y);
+        int cost = 0;
+        for (int i = from; i < to; i++) {
+            String cellStyle = screen.style(i, y);
+            if (!cellStyle.equals(current)) {
+                cost += (current.isEmpty() ? 0 : Terminal.ANSI.RESET.length()) + cellStyle.length();
+                current = cellStyle;
+            }
+            cost += utf8Length(screen.glyph(i, y));
+        }
+        return cost;
+    }
+
+    private static int eraseCost(int run, boolean moveOn) {
+        int erase = csi(Terminal.ANSI.ERASE_CHARACTERS, run).length();
+        return moveOn ? erase + csi(Terminal.ANSI.CURSOR_FORWARD, run).length() : erase;
+    }
+
+    private static boolean unchanged(ScreenBuffer previous, ScreenBuffer next, int x, int y) {
+        if (previous == null) {
+            return next.isBlank(x, y);
+        }
+        return next.glyph(x, y).equals(previous.glyph(x, y)) && next.style(x, y).equals(previous.style(x, y));
+    }
+
+    // The column after the glyph at x, past the second half of a wide glyph
+    private static int glyphEnd(ScreenBuffer screen, int x, int y) {
+        int end = x + 1;
+        while (end < screen.width() && screen.glyph(end, y).isEmpty()) {
+            end++;
+        }
+        return end;
+    }
+
+    // One of the counted ANSI sequences with `n` filled in, leaving out a count of 1 (the default)
+    private static String csi(String format, int n) {
+        char command = format.charAt(format.length() - 1);
+        return n == 1 ? CSI + command : CSI + n + command;
+    }
+
+    private static int utf8Length(String s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            // A surrogate pair is four bytes, two for each half
+            bytes += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,195 @@
+package org.tuava.tui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// The child models of a model, each with its own message type, state and view. Messages addressed
+// to a child go straight to it: the runtime calls the child's update, not the parent's, puts the
+// new child in place with Parent.withComponents(), and the parent's view re-renders that child
+// alone, the others reusing their last output.
+//
+//   sealed interface Msg permits Key, ToPanel {}
+//   record ToPanel(String key, PanelMsg message) implements Msg, Components.Routed {}
+//
+//   record Board(Components<Msg> panels) implements ElementModel<Msg>, Components.Parent<Msg> {
+//       static Board of(List<String> names) {
+//           Components<Msg> panels = Components.of();
+//           for (String name : names) {
+//               panels = panels.with(name, Panel.of(name), m -> new ToPanel(name, m));
+//           }
+//           return new Board(panels);
+//       }
+//       public Components<Msg> components() { return panels; }
+//       public Model<Msg> withComponents(Components<Msg> panels) { return new Board(panels); }
+//       public Update<Msg> update(Msg msg) { ... }  // only messages that are not routed
+//       public Element element() {
+//           return Flex.column().children(panels.keys().stream().map(panels::element).toList()).build();
+//       }
+//   }
+//
+// A child's effects come back through its wrap function, so the messages they produce are routed
+// to it again; a wrap function that returns a message that is not Routed (a child asking to be
+// closed, say) reaches the parent's update instead. Children can be parents themselves.
+public final class Components<Msg> {
+    // Versions are unique across all children, so two models updated from the same child (an undo
+    // history, say) never share a version and a cached view
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    // A message for one child: message() is delivered to the child under key()
+    public interface Routed {
+        Object key();
+
+        Object message();
+    }
+
+    // A model with children that the runtime routes to
+    public interface Parent<Msg> extends Model<Msg> {
+        Components<Msg> components();
+
+        // This model with its children replaced, everything else kept
+        Model<Msg> withComponents(Components<Msg> components);
+    }
+
+    private final Map<Object, Child<?, Msg>> children;
+    // The children's views, shared by every Components derived from the same of(). A removed
+    // child's views are dropped with it; views at a size no longer rendered go once idle, swept
+    // at the end of each frame that uses this cache, like the program's Memo cache.
+    private final Memo.Cache views;
+
+    private Components(Map<Object, Child<?, Msg>> children, Memo.Cache views) {
+        this.children = children;
+        this.views = views;
+    }
+
+    public static <Msg> Components<Msg> of() {
+        return new Components<>(Map.of(), new Memo.Cache());
+    }
+
+    // Adds a child, or replaces the one under the same key in place. `wrap` turns the child's
+    // messages into the parent's, normally into a Routed message with this key.
+    public <C> Components<Msg> with(Object key, Model<C> model, Function<? super C, ? extends Msg> wrap) {
+        Child<?, Msg> old = children.get(key);
+        Object identity = old != null ? old.identity : new Object();
+        return put(key, new Child<>(model, wrap, identity, VERSIONS.incrementAndGet()));
+    }
+
+    // Replaces the model of an existing child, keeping its wrap function
+    public <C> Components<Msg> with(Object key, Model<C> model) {
+        @SuppressWarnings("unchecked")
+        Child<C, Msg> old = (Child<C, Msg>) require(key);
+        if (old.model == model) {
+            return this;
+        }
+        return put(key, new Child<>(model, old.wrap, old.identity, VERSIONS.incrementAndGet()));
+    }
+
+    public Components<Msg> without(Object key) {
+        if (!children.containsKey(key)) {
+            return this;
+        }
+        Map<Object, Child<?, Msg>> copy = new LinkedHashMap<>(children);
+        views.remove(copy.remove(key).identity);
+        return new Components<>(Collections.unmodifiableMap(copy), views);
+    }
+
+    public boolean contains(Object key) {
+        return children.containsKey(key);
+    }
+
+    // In the order they were added
+    public Set<Object> keys() {
+        return children.keySet();
+    }
+
+    public int size() {
+        return children.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <M extends Model<?>> M get(Object key) {
+        return (M) require(key).model;
+    }
+
+    // The child's view. It is cached under the child's identity and rendered again only after the
+    // child changes, so a frame where one child changed renders that child alone.
+    public Element element(Object key) {
+        Child<?, Msg> child = require(key);
+        Model<?> model = child.model;
+        return Memo.in(views, child.identity, child.version, () -> (Element) model::view);
+    }
+
+    // Hits, misses and live entries of the children's view cache
+    Memo.Stats viewStats() {
+        return views.stats();
+    }
+
+    // The children's init effects, for the parent's init()
+    public Effect<Msg> init() {
+        List<Effect<Msg>> effects = new ArrayList<>(children.size());
+        for (Child<?, Msg> child : children.values()) {
+            effects.add(child.init());
+        }
+        return Effect.batch(effects);
+    }
+
+    // What the runtime does with each message: a Routed message for one of a Parent's children is
+    // handled by that child (and so on down for nested parents), anything else by model.update()
+    public static <Msg> Update<Msg> update(Model<Msg> model, Msg message) {
+        if (message instanceof Routed routed && model instanceof Parent<Msg> parent) {
+            Components<Msg> components = parent.components();
+            Child<?, Msg> child = components.children.get(routed.key());
+            if (child != null) {
+                Routing<Msg> routing = child.update(routed.message());
+                Model<Msg> next = routing.child == child ? model
+                        : parent.withComponents(components.put(routed.key(), routing.child));
+                return Update.of(next, routing.effect);
+            }
+        }
+        return model.update(message);
+    }
+
+    private Child<?, Msg> require(Object key) {
+        Child<?, Msg> child = children.get(key);
+        if (child == null) {
+            throw new IllegalArgumentException("No component " + key);
+        }
+        return child;
+    }
+
+    private Components<Msg> put(Object key, Child<?, Msg> child) {
+        Map<Object, Child<?, Msg>> copy = new LinkedHashMap<>(children);
+        copy.put(key, child);
+        return new Components<>(Collections.unmodifiableMap(copy), views);
+    }
+
+    private record Routing<Msg>(Child<?, Msg> child, Effect<Msg> effect) {
+    }
+
+    // identity stays the same for as long as the key is present; version changes with the model
+    private record Child<C, Msg>(Model<C> model, Function<? super C, ? extends Msg> wrap, Object identity,
+            long version) {
+        Child {
+            Objects.requireNonNull(model);
+            Objects.requireNonNull(wrap);
+        }
+
+        @SuppressWarnings("unchecked")
+        Routing<Msg> update(Object message) {
+            Update<C> update = Components.update(model, (C) message);
+            Child<C, Msg> next = update.model() == model ? this
+                    : new Child<>(update.model(), wrap, identity, VERSIONS.incrementAndGet());
+            return new Routing<>(next, update.effect().map(wrap));
+        }
+
+        Effect<Msg> init() {
+            return model.init().map(wrap);
+        }
+    }
+}
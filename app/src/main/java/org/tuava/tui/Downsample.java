@@ -0,0 +1,138 @@
+package org.tuava.tui;
+
+import java.util.Arrays;
+
+// Picks the points of a series worth drawing when it has more of them than there are pixels.
+//
+// lttb() is Largest-Triangle-Three-Buckets: the series is cut into buckets and each keeps the
+// point that spans the largest triangle with its neighbours' picks, which keeps the shape, peaks
+// included, far better than sampling. LTTB itself looks at every point, so for long series it runs
+// on a preselection instead: the minimum and maximum of PRESELECT times as many buckets, which the
+// series' range aggregates find without reading every value (MinMaxLTTB).
+public final class Downsample {
+    static final int PRESELECT = 4;
+
+    private Downsample() {
+    }
+
+    // Positions of at most `points` points that keep the shape of the series; NaN gaps are skipped
+    public static int[] lttb(Series series, int points) {
+        int n = series.size();
+        int[] candidates = n > PRESELECT * points ? withEnds(series, minMax(series, PRESELECT * points / 2))
+                : present(series, 0, n);
+        return lttb(series, candidates, points);
+    }
+
+    // Positions of the minimum and maximum of each of `buckets` equal slices, in order; at most
+    // 2 * buckets positions, fewer where a slice has one value or only gaps
+    public static int[] minMax(Series series, int buckets) {
+        int n = series.size();
+        if (n == 0 || buckets <= 0) {
+            return new int[0];
+        }
+        if (n <= 2 * buckets) {
+            return present(series, 0, n);
+        }
+        int[] out = new int[2 * buckets];
+        int count = 0;
+        for (int b = 0; b < buckets; b++) {
+            int from = (int) ((long) b * n / buckets);
+            int to = (int) ((long) (b + 1) * n / buckets);
+            int min = series.minIndex(from, to);
+            if (min < 0) {
+                continue;
+            }
+            int max = series.maxIndex(from, to);
+            out[count++] = Math.min(min, max);
+            if (max != min) {
+                out[count++] = Math.max(min, max);
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    private static int[] lttb(Series series, int[] candidates, int points) {
+        int m = candidates.length;
+        if (m <= points || points <= 2) {
+            if (m <= points) {
+                return candidates;
+            }
+            return points == 2 ? new int[] {candidates[0], candidates[m - 1]} : new int[] {candidates[0]};
+        }
+        int[] out = new int[points];
+        out[0] = candidates[0];
+        double every = (double) (m - 2) / (points - 2);
+        int a = 0;
+        for (int i = 0; i < points - 2; i++) {
+            // The average of the next bucket stands in for the point not picked yet
+            int avgFrom = (int) ((i + 1) * every) + 1;
+            int avgTo = Math.min((int) ((i + 2) * every) + 1, m);
+            double avgX = 0;
+            double avgY = 0;
+            for (int k = avgFrom; k < avgTo; k++) {
+                avgX += candidates[k];
+                avgY += series.get(candidates[k]);
+            }
+            int avgCount = Math.max(1, avgTo - avgFrom);
+            avgX /= avgCount;
+            avgY /= avgCount;
+
+            double ax = candidates[a];
+            double ay = series.get(candidates[a]);
+            int from = (int) (i * every) + 1;
+            int to = (int) ((i + 1) * every) + 1;
+            double largest = -1;
+            int pick = from;
+            for (int k = from; k < to; k++) {
+                double area = Math.abs((ax - avgX) * (series.get(candidates[k]) - ay)
+                        - (ax - candidates[k]) * (avgY - ay));
+                if (area > largest) {
+                    largest = area;
+                    pick = k;
+                }
+            }
+            out[i + 1] = candidates[pick];
+            a = pick;
+        }
+        out[points - 1] = candidates[m - 1];
+        return out;
+    }
+
+    // The preselection with the first and last values of the series added, which LTTB always keeps
+    // but the extremes of the end buckets need not include
+    private static int[] withEnds(Series series, int[] candidates) {
+        if (candidates.length == 0) {
+            return candidates;
+        }
+        int first = 0;
+        while (Double.isNaN(series.get(first))) {
+            first++;
+        }
+        int last = series.size() - 1;
+        while (Double.isNaN(series.get(last))) {
+            last--;
+        }
+        int head = candidates[0] != first ? 1 : 0;
+        int tail = candidates[candidates.length - 1] != last ? 1 : 0;
+        if (head + tail == 0) {
+            return candidates;
+        }
+        int[] out = new int[candidates.length + head + tail];
+        System.arraycopy(candidates, 0, out, head, candidates.length);
+        out[0] = first;
+        out[out.length - 1] = last;
+        return out;
+    }
+
+    // Every position in [from, to) that holds a value
+    private static int[] present(Series series, int from, int to) {
+        int[] out = new int[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (!Double.isNaN(series.get(i))) {
+                out[count++] = i;
+            }
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+}
@@ -1,11 +1,13 @@
 package org.tuava.tui;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 public sealed interface Effect<Msg>
-        permits Effect.None, Effect.Pure, Effect.Once, Effect.Batch, Effect.Quit, Effect.FromFuture {
+        permits Effect.None, Effect.Pure, Effect.Once, Effect.Batch, Effect.Quit, Effect.FromFuture, Effect.Print {
 
     record None<Msg>() implements Effect<Msg> {
     }
@@ -25,6 +27,9 @@ public sealed interface Effect<Msg>
     record FromFuture<Msg>(CompletableFuture<Msg> future) implements Effect<Msg> {
     }
 
+    record Print<Msg>(String text) implements Effect<Msg> {
+    }
+
     static <Msg> Effect<Msg> none() {
         return new None<>();
     }
@@ -42,11 +47,49 @@ public sealed interface Effect<Msg>
         return new Batch<>(effects);
     }
 
+    // For a number of effects known only at run time, e.g. one per child
+    static <Msg> Effect<Msg> batch(List<? extends Effect<Msg>> effects) {
+        @SuppressWarnings("unchecked")
+        Effect<Msg>[] array = (Effect<Msg>[]) effects.toArray(new Effect<?>[0]);
+        return new Batch<>(array);
+    }
+
     static <Msg> Effect<Msg> fromFuture(CompletableFuture<Msg> future) {
         return new FromFuture<>(future);
     }
 
+    static <Msg> Effect<Msg> println(String text) {
+        return new Print<>(text);
+    }
+
     static <Msg> Effect<Msg> quit() {
         return new Quit<>();
     }
+
+    // The same effect delivering its messages through `f`, e.g. to wrap a component's messages
+    // in the parent's. A Once or FromFuture that produces null still produces no message.
+    default <B> Effect<B> map(Function<? super Msg, ? extends B> f) {
+        return switch (this) {
+            case None<Msg> none -> none();
+            case Pure<Msg> pure -> pure(f.apply(pure.message()));
+            case Once<?, Msg> once -> mapOnce(once, f);
+            case Batch<Msg> batch -> {
+                List<Effect<B>> mapped = new ArrayList<>(batch.effects().length);
+                for (Effect<Msg> effect : batch.effects()) {
+                    mapped.add(effect.map(f));
+                }
+                yield batch(mapped);
+            }
+            case Quit<Msg> q -> quit();
+            case FromFuture<Msg> future -> fromFuture(future.future().thenApply(m -> m == null ? null : f.apply(m)));
+            case Print<Msg> print -> println(print.text());
+        };
+    }
+
+    private static <T, A, B> Effect<B> mapOnce(Once<T, A> once, Function<? super A, ? extends B> f) {
+        return new Once<T, B>(once.supplier(), t -> {
+            A m = once.mapper().apply(t);
+            return m == null ? null : f.apply(m);
+        });
+    }
 }
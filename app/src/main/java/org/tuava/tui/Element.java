@@ -2,6 +2,17 @@ package org.tuava.tui;
 
 public interface Element {
 	String render();
-}
 
+	// Rough relative rendering cost, used to decide which subtrees are worth rendering in parallel.
+	// Leaves count as 1; override for elements that do expensive formatting.
+	default int cost() {
+		return 1;
+	}
 
+	// Draws this element into the screen with its top-left corner at (x, y), clipped to the
+	// screen, and returns the rows it takes. The default paints render(); elements that know their
+	// cells override it to skip the string.
+	default int paint(ScreenBuffer screen, int x, int y) {
+		return screen.paint(x, y, render());
+	}
+}
@@ -0,0 +1,22 @@
+package org.tuava.tui;
+
+// A model whose frame is an element tree. The runtime paints the tree straight into a screen
+// buffer and diffs cells instead of parsing text; view() is supplied as an adapter.
+public interface ElementModel<Msg> extends Model<Msg> {
+    Element element();
+
+    // Override to lay out for the output being drawn, like Model.view(TerminalSize)
+    default Element element(Terminal.TerminalSize size) {
+        return element();
+    }
+
+    @Override
+    default String view() {
+        return element().render();
+    }
+
+    @Override
+    default String view(Terminal.TerminalSize size) {
+        return element(size).render();
+    }
+}
@@ -0,0 +1,172 @@
+package org.tuava.tui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Follows a file that is being appended to, for Stream.tail. A WatchService on the parent directory
+// wakes the reader when the file changes; a periodic check covers platforms where watching is slow
+// or unavailable. Everything readable is read with positional FileChannel reads, and each chunk
+// becomes one message carrying all of its complete lines, so a burst of log output costs a handful
+// of updates rather than one per line.
+//
+// Rotation (the path now names a different file) is detected by file key: the old file is read to
+// its end first, then the new one is followed from its start. Truncation (the file shrank) restarts
+// from the beginning.
+final class FileTail<Msg> implements AutoCloseable {
+    static final int CHUNK_SIZE = 64 * 1024;
+    // A line that never ends is delivered in pieces of this size
+    static final int MAX_LINE_BYTES = 1024 * 1024;
+    private static final long RECHECK_MILLIS = 500;
+
+    private final Path path;
+    private final Function<List<String>, Msg> batch;
+    // Null when a failure just stops the stream
+    private final Function<IOException, Msg> failed;
+    private final Consumer<Msg> emit;
+    private final WatchService watcher;
+    private final Thread thread;
+    private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+    private final LineBuffer lines = new LineBuffer(MAX_LINE_BYTES);
+    private FileChannel channel;
+    private Object fileKey;
+    private long position;
+    private volatile boolean closed = false;
+
+    FileTail(String key, Path path, boolean fromStart, Function<List<String>, Msg> batch,
+            Function<IOException, Msg> failed, Consumer<Msg> emit) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.batch = batch;
+        this.failed = failed;
+        this.emit = emit;
+        Path dir = Objects.requireNonNullElse(this.path.getParent(), this.path.getRoot());
+        this.watcher = dir.getFileSystem().newWatchService();
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        if (open() && !fromStart) {
+            position = channel.size();
+        }
+        this.thread = new Thread(this::follow, "tuava-tail-" + key);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void follow() {
+        try {
+            while (!closed) {
+                poll();
+                // Any event in the directory is just a hint to look again
+                var key = watcher.poll(RECHECK_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        } catch (IOException e) {
+            if (!closed && failed != null) {
+                emit.accept(failed.apply(e));
+            }
+        } finally {
+            closeChannel();
+        }
+    }
+
+    private void poll() throws IOException {
+        if (channel == null && !open()) {
+            return;
+        }
+        Object currentKey = currentFileKey();
+        if (currentKey != null && !currentKey.equals(fileKey)) {
+            // Rotated: finish the old file, then start on the new one
+            drain();
+            flushPartial();
+            closeChannel();
+            if (open()) {
+                drain();
+            }
+            return;
+        }
+        if (channel.size() < position) {
+            // Truncated in place
+            position = 0;
+            lines.reset();
+        }
+        drain();
+    }
+
+    private void drain() throws IOException {
+        while (!closed) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n <= 0) {
+                return;
+            }
+            position += n;
+            List<String> complete = lines.split(buffer.array(), n);
+            if (!complete.isEmpty()) {
+                emit.accept(batch.apply(complete));
+            }
+        }
+    }
+
+    // A last line without a terminator is delivered when its file is rotated away
+    private void flushPartial() {
+        String rest = lines.flush();
+        if (rest != null) {
+            emit.accept(batch.apply(List.of(rest)));
+        }
+    }
+
+    private boolean open() throws IOException {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileKey = currentFileKey();
+            position = 0;
+            return true;
+        } catch (NoSuchFileException e) {
+            // Not there yet (or mid-rotation); the directory watch will tell us when it appears
+            channel = null;
+            return false;
+        }
+    }
+
+    private Object currentFileKey() {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watcher.close();
+        thread.interrupt();
+    }
+}
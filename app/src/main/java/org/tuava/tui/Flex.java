@@ -1,16 +1,20 @@
 package org.tuava.tui;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinTask;
 
 public final class Flex implements Element {
 	public enum Direction { ROW, COLUMN }
 	public enum Justify { START, CENTER, END, SPACE_BETWEEN, SPACE_AROUND, SPACE_EVENLY }
 	public enum Align { START, CENTER, END }
 
+	// Cost at which a child subtree is rendered on the fork-join pool when parallel() is used
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 32;
+
 	private final Direction direction;
 	private final Justify justify;
 	private final Align align;
@@ -18,9 +22,27 @@ public final class Flex implements Element {
 	private final Integer width;
 	private final Integer height;
 	private final List<Element> children;
+	private final int parallelThreshold;
+	private final int cost;
+	// Filled in when this is measured or painted
+	private volatile Sizes sizes;
+
+	// Line widths of each child, and the output of those that had to be rendered to find them. A
+	// rendered child (a Spinner, say) or a Memo can look different next frame, so sizes that
+	// depend on one are only good for the frame they were found in; sizes of Text and Table
+	// alone are kept.
+	private record Sizes(int[][] widths, String[] rendered, boolean stable, RenderContext frame) {
+		boolean validIn(RenderContext current) {
+			return stable || (frame != null && frame == current);
+		}
+	}
+
+	// Space before the first block, after the last, and added after each block but the last
+	private record Spacing(int lead, int trail, int[] between) {
+	}
 
 	private Flex(Direction direction, Justify justify, Align align, int gap,
-				 Integer width, Integer height, List<Element> children) {
+				 Integer width, Integer height, List<Element> children, int parallelThreshold) {
 		this.direction = direction;
 		this.justify = justify;
 		this.align = align;
@@ -28,6 +50,10 @@ public final class Flex implements Element {
 		this.width = width;
 		this.height = height;
 		this.children = List.copyOf(children);
+		this.parallelThreshold = parallelThreshold;
+		long total = 1;
+		for (Element e : this.children) total += e.cost();
+		this.cost = (int) Math.min(Integer.MAX_VALUE, total);
 	}
 
 	public static Builder of() { return new Builder(); }
@@ -42,50 +68,20 @@ public final class Flex implements Element {
 		};
 	}
 
+	@Override
+	public int cost() {
+		return cost;
+	}
+
 	private String renderColumn() {
 		List<String[]> blocks = renderChildrenAsBlocks();
 		int containerWidth = width != null ? width : computeMaxWidth(blocks);
 		int contentHeight = sumHeights(blocks) + gap * Math.max(0, blocks.size() - 1);
 		int containerHeight = height != null ? Math.max(height, 0) : contentHeight;
 
-		int remaining = Math.max(0, containerHeight - contentHeight);
-		int topPad = 0, bottomPad = 0;
-		int[] betweenExtra = new int[Math.max(0, blocks.size() - 1)];
-
-		switch (justify) {
-			case START -> bottomPad = remaining;
-			case END -> topPad = remaining;
-			case CENTER -> {
-				topPad = remaining / 2;
-				bottomPad = remaining - topPad;
-			}
-			case SPACE_BETWEEN -> {
-				int slots = Math.max(0, blocks.size() - 1);
-				if (slots > 0) {
-					int per = remaining / slots;
-					int rem = remaining % slots;
-					for (int i = 0; i < slots; i++) {
-						betweenExtra[i] = per + (i < rem ? 1 : 0);
-					}
-				}
-			}
-			case SPACE_AROUND -> {
-				int slots = blocks.size() + 1;
-				int per = remaining / slots;
-				int rem = remaining % slots;
-				topPad = per + (rem > 0 ? 1 : 0);
-				bottomPad = per;
-				int extra = per;
-				for (int i = 0; i < betweenExtra.length; i++) betweenExtra[i] = extra;
-			}
-			case SPACE_EVENLY -> {
-				int slots = blocks.size() + 1;
-				int per = slots == 0 ? 0 : remaining / slots;
-				topPad = per;
-				bottomPad = per;
-				for (int i = 0; i < betweenExtra.length; i++) betweenExtra[i] = per;
-			}
-		}
+		Spacing spacing = spacing(Math.max(0, containerHeight - contentHeight), blocks.size());
+		int topPad = spacing.lead(), bottomPad = spacing.trail();
+		int[] betweenExtra = spacing.between();
 
 		List<String> lines = new ArrayList<>();
 		// Top padding
@@ -131,76 +127,340 @@ public final class Flex implements Element {
 
 		int containerWidth = width != null ? Math.max(width, 0) : childrenWidth + baseGapsWidth;
 		int remaining = Math.max(0, containerWidth - (childrenWidth + baseGapsWidth));
+		Spacing spacing = spacing(remaining, blocks.size());
+		int leftPad = spacing.lead(), rightPad = spacing.trail();
+		int[] betweenExtra = spacing.between();
 
-		int leftPad = 0, rightPad = 0;
-		int[] betweenExtra = new int[Math.max(0, blocks.size() - 1)];
+		List<String> lines = new ArrayList<>(containerHeight);
+		for (int row = 0; row < containerHeight; row++) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(" ".repeat(Math.max(0, leftPad)));
+			for (int i = 0; i < blocks.size(); i++) {
+				String[] block = blocks.get(i);
+				String line = row < block.length ? block[row] : "";
+				int padRightTo = blockWidths[i];
+				sb.append(padRightVisible(line, padRightTo));
+				if (i < blocks.size() - 1) {
+					int spaces = baseGap + betweenExtra[i];
+					sb.append(" ".repeat(Math.max(0, spaces)));
+				}
+			}
+			sb.append(" ".repeat(Math.max(0, rightPad)));
+			// Measured by what shows, so styled rows are padded like plain ones
+			lines.add(padRightVisible(sb.toString(), containerWidth));
+		}
+
+		return String.join("\n", lines);
+	}
 
+	// How the free space is shared out according to justify
+	private Spacing spacing(int remaining, int blocks) {
+		int lead = 0, trail = 0;
+		int[] between = new int[Math.max(0, blocks - 1)];
 		switch (justify) {
-			case START -> rightPad = remaining;
-			case END -> leftPad = remaining;
+			case START -> trail = remaining;
+			case END -> lead = remaining;
 			case CENTER -> {
-				leftPad = remaining / 2;
-				rightPad = remaining - leftPad;
+				lead = remaining / 2;
+				trail = remaining - lead;
 			}
 			case SPACE_BETWEEN -> {
-				int slots = Math.max(0, blocks.size() - 1);
+				int slots = between.length;
 				if (slots > 0) {
 					int per = remaining / slots;
 					int rem = remaining % slots;
-					for (int i = 0; i < slots; i++) betweenExtra[i] = per + (i < rem ? 1 : 0);
+					for (int i = 0; i < slots; i++) between[i] = per + (i < rem ? 1 : 0);
 				}
 			}
 			case SPACE_AROUND -> {
-				int slots = blocks.size() + 1;
-				int per = remaining / slots;
-				int rem = remaining % slots;
-				leftPad = per + (rem > 0 ? 1 : 0);
-				rightPad = per;
-				for (int i = 0; i < betweenExtra.length; i++) betweenExtra[i] = per;
+				int per = remaining / (blocks + 1);
+				int rem = remaining % (blocks + 1);
+				lead = per + (rem > 0 ? 1 : 0);
+				trail = per;
+				Arrays.fill(between, per);
 			}
 			case SPACE_EVENLY -> {
-				int slots = blocks.size() + 1;
-				int per = slots == 0 ? 0 : remaining / slots;
-				leftPad = per;
-				rightPad = per;
-				for (int i = 0; i < betweenExtra.length; i++) betweenExtra[i] = per;
+				int per = remaining / (blocks + 1);
+				lead = per;
+				trail = per;
+				Arrays.fill(between, per);
 			}
 		}
+		return new Spacing(lead, trail, between);
+	}
 
-		List<String> lines = new ArrayList<>(containerHeight);
-		for (int row = 0; row < containerHeight; row++) {
-			StringBuilder sb = new StringBuilder();
-			sb.append(" ".repeat(Math.max(0, leftPad)));
-			for (int i = 0; i < blocks.size(); i++) {
-				String[] block = blocks.get(i);
-				String line = row < block.length ? block[row] : "";
-				int padRightTo = blockWidths[i];
-				sb.append(padRightVisible(line, padRightTo));
-				if (i < blocks.size() - 1) {
-					int spaces = baseGap + betweenExtra[i];
-					sb.append(" ".repeat(Math.max(0, spaces)));
+	// Lays the children out as render() does and has each paint itself at its place, so nothing
+	// is rendered to a string unless it cannot be measured otherwise
+	@Override
+	public int paint(ScreenBuffer screen, int x, int y) {
+		Sizes s = sizes();
+		return switch (direction) {
+			case COLUMN -> paintColumn(screen, x, y, s);
+			case ROW -> paintRow(screen, x, y, s);
+		};
+	}
+
+	private int paintColumn(ScreenBuffer screen, int x, int y, Sizes s) {
+		int[][] widths = s.widths();
+		int containerWidth = columnWidth(widths);
+		int contentHeight = contentHeight(widths);
+		int containerHeight = height != null ? Math.max(height, 0) : contentHeight;
+		Spacing spacing = spacing(Math.max(0, containerHeight - contentHeight), widths.length);
+		int row = y + spacing.lead();
+		for (int b = 0; b < widths.length; b++) {
+			int[] offsets = new int[widths[b].length];
+			for (int i = 0; i < offsets.length; i++) {
+				int free = containerWidth - widths[b][i];
+				offsets[i] = free <= 0 ? 0 : switch (align) {
+					case START -> 0;
+					case END -> free;
+					case CENTER -> free / 2;
+				};
+			}
+			paintChild(screen, b, x, row, offsets, s);
+			row += offsets.length;
+			if (b < widths.length - 1) {
+				row += gap + spacing.between()[b];
+			}
+		}
+		return Math.max(1, row + spacing.trail() - y);
+	}
+
+	private int paintRow(ScreenBuffer screen, int x, int y, Sizes s) {
+		int[][] widths = s.widths();
+		int containerHeight = rowHeight(widths);
+		int[] blockWidths = blockWidths(widths);
+		Spacing spacing = spacing(Math.max(0, rowWidth(blockWidths) - contentWidth(blockWidths)), widths.length);
+		int column = x + spacing.lead();
+		for (int b = 0; b < widths.length; b++) {
+			// A block taller than the row is cut off at its bottom
+			int lines = Math.min(widths[b].length, containerHeight);
+			int free = containerHeight - lines;
+			int top = switch (align) {
+				case START -> 0;
+				case END -> free;
+				case CENTER -> free / 2;
+			};
+			paintChild(screen, b, column, y + top, new int[lines], s);
+			column += blockWidths[b];
+			if (b < widths.length - 1) {
+				column += gap + spacing.between()[b];
+			}
+		}
+		return Math.max(1, containerHeight);
+	}
+
+	// Paints child b with line i at column x + offsets[i]; only as many lines as there are offsets
+	private void paintChild(ScreenBuffer screen, int b, int x, int y, int[] offsets, Sizes s) {
+		if (offsets.length == 0) {
+			return;
+		}
+		boolean whole = offsets.length == s.widths()[b].length;
+		for (int offset : offsets) {
+			whole &= offset == offsets[0];
+		}
+		String rendered = s.rendered()[b];
+		if (whole && rendered == null) {
+			children.get(b).paint(screen, x + offsets[0], y);
+		} else {
+			screen.paint(x, y, rendered != null ? rendered : children.get(b).render(), offsets);
+		}
+	}
+
+	private Sizes sizes() {
+		RenderContext context = RenderContext.current();
+		RenderContext frame = context != null ? context.root() : null;
+		Sizes s = sizes;
+		if (s == null || !s.validIn(frame)) {
+			int n = children.size();
+			int[][] widths = new int[n][];
+			boolean[] unknown = new boolean[n];
+			boolean stable = true;
+			for (int i = 0; i < n; i++) {
+				Element child = children.get(i);
+				if (child instanceof Flex flex) {
+					Sizes nested = flex.sizes();
+					widths[i] = flex.lineWidths(nested);
+					stable &= nested.stable();
+				} else {
+					widths[i] = measure(child);
+					// Rect can hold anything, so only leaves count as stable
+					stable &= child instanceof Text || child instanceof Table;
 				}
+				unknown[i] = widths[i] == null;
 			}
-			sb.append(" ".repeat(Math.max(0, rightPad)));
-			String full = sb.toString();
-			if (full.length() < containerWidth) {
-				full = padRightVisible(full, containerWidth);
+			String[] rendered = renderChildren(unknown);
+			for (int i = 0; i < n; i++) {
+				if (unknown[i]) {
+					widths[i] = lineWidths(rendered[i]);
+				}
 			}
-			lines.add(full);
+			s = new Sizes(widths, rendered, stable, frame);
+			sizes = s;
 		}
+		return s;
+	}
 
-		return String.join("\n", lines);
+	// The visible width of each line of render(), worked out from the children's sizes
+	int[] lineWidths() {
+		return lineWidths(sizes());
+	}
+
+	private int[] lineWidths(Sizes s) {
+		int[][] widths = s.widths();
+		int[] out;
+		if (direction == Direction.ROW) {
+			int[] blockWidths = blockWidths(widths);
+			int total = rowWidth(blockWidths);
+			int laidOut = contentWidth(blockWidths);
+			Spacing spacing = spacing(Math.max(0, total - laidOut), widths.length);
+			int line = spacing.lead() + laidOut + spacing.trail();
+			for (int extra : spacing.between()) line += extra;
+			out = new int[rowHeight(widths)];
+			Arrays.fill(out, Math.max(line, total));
+		} else {
+			int containerWidth = columnWidth(widths);
+			int blank = Math.max(0, containerWidth);
+			int contentHeight = contentHeight(widths);
+			int containerHeight = height != null ? Math.max(height, 0) : contentHeight;
+			Spacing spacing = spacing(Math.max(0, containerHeight - contentHeight), widths.length);
+			int lines = spacing.lead() + contentHeight + spacing.trail();
+			for (int extra : spacing.between()) lines += extra;
+			out = new int[lines];
+			int i = 0;
+			for (int k = 0; k < spacing.lead(); k++) out[i++] = blank;
+			for (int b = 0; b < widths.length; b++) {
+				for (int w : widths[b]) out[i++] = Math.max(containerWidth, w);
+				if (b < widths.length - 1) {
+					for (int k = 0; k < gap + spacing.between()[b]; k++) out[i++] = blank;
+				}
+			}
+			for (int k = 0; k < spacing.trail(); k++) out[i++] = blank;
+		}
+		// No lines at all still renders as one empty line
+		return out.length == 0 ? new int[] {0} : out;
+	}
+
+	private int columnWidth(int[][] widths) {
+		if (width != null) return width;
+		int w = 0;
+		for (int[] block : widths) {
+			for (int line : block) w = Math.max(w, line);
+		}
+		return w;
+	}
+
+	private int contentHeight(int[][] widths) {
+		int h = gap * Math.max(0, widths.length - 1);
+		for (int[] block : widths) h += block.length;
+		return h;
+	}
+
+	private int rowHeight(int[][] widths) {
+		if (height != null) return Math.max(height, 0);
+		int h = 0;
+		for (int[] block : widths) h = Math.max(h, block.length);
+		return h;
+	}
+
+	// Each block is as wide as its widest line, including lines cut off below a fixed height
+	private static int[] blockWidths(int[][] widths) {
+		int[] out = new int[widths.length];
+		for (int b = 0; b < widths.length; b++) {
+			for (int w : widths[b]) out[b] = Math.max(out[b], w);
+		}
+		return out;
+	}
+
+	private int contentWidth(int[] blockWidths) {
+		int w = gap * Math.max(0, blockWidths.length - 1);
+		for (int b : blockWidths) w += b;
+		return w;
+	}
+
+	private int rowWidth(int[] blockWidths) {
+		return width != null ? Math.max(width, 0) : contentWidth(blockWidths);
+	}
+
+	// Line widths of an element that can tell them without rendering, or null
+	static int[] measure(Element element) {
+		return switch (element) {
+			case Flex flex -> flex.lineWidths();
+			case Text text -> text.lineWidths();
+			case Rect rect -> rect.lineWidths();
+			case Table table -> table.lineWidths();
+			case Memo memo -> memo.lineWidths();
+			default -> null;
+		};
+	}
+
+	static int[] lineWidths(String rendered) {
+		String[] lines = rendered.split("\n", -1);
+		int[] widths = new int[lines.length];
+		for (int i = 0; i < lines.length; i++) {
+			widths[i] = TextLayout.width(lines[i]);
+		}
+		return widths;
 	}
 
 	private List<String[]> renderChildrenAsBlocks() {
+		boolean[] all = new boolean[children.size()];
+		Arrays.fill(all, true);
 		List<String[]> blocks = new ArrayList<>(children.size());
-		for (Element e : children) {
-			String rendered = e == null ? "" : e.render();
+		for (String rendered : renderChildren(all)) {
 			blocks.add(rendered.split("\n", -1));
 		}
 		return blocks;
 	}
 
+	// Renders the children marked in `which`, leaving null for the others
+	private String[] renderChildren(boolean[] which) {
+		String[] rendered = new String[children.size()];
+		if (parallelThreshold > 0 && countAbove(parallelThreshold, which) > 1) {
+			renderChildrenInParallel(which, rendered);
+		} else {
+			for (int i = 0; i < rendered.length; i++) {
+				if (which[i]) rendered[i] = children.get(i).render();
+			}
+		}
+		return rendered;
+	}
+
+	// Forks every child at or above the threshold, renders the cheap ones on this thread meanwhile,
+	// then joins in child order so the output is identical to the sequential path. Forking from
+	// inside a pool worker (nested parallel Flex) stays in that pool and is work-stolen.
+	private void renderChildrenInParallel(boolean[] which, String[] rendered) {
+		int n = children.size();
+		List<ForkJoinTask<String>> forked = new ArrayList<>(Collections.nCopies(n, null));
+		// Forked children render for the same frame as this thread
+		RenderContext context = RenderContext.current();
+		for (int i = 0; i < n; i++) {
+			Element e = children.get(i);
+			if (which[i] && e.cost() >= parallelThreshold) {
+				forked.set(i, ForkJoinTask.adapt(() -> RenderContext.within(context, e::render)).fork());
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			if (which[i] && forked.get(i) == null) {
+				rendered[i] = children.get(i).render();
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			ForkJoinTask<String> task = forked.get(i);
+			if (task != null) {
+				rendered[i] = task.join();
+			}
+		}
+	}
+
+	private int countAbove(int threshold, boolean[] which) {
+		int count = 0;
+		for (int i = 0; i < children.size(); i++) {
+			if (which[i] && children.get(i).cost() >= threshold) count++;
+		}
+		return count;
+	}
+
 	private static int sumHeights(List<String[]> blocks) {
 		int h = 0;
 		for (String[] b : blocks) h += b.length;
@@ -248,10 +508,8 @@ public final class Flex implements Element {
 		};
 	}
 
-	private static final Pattern ANSI_PATTERN = Pattern.compile("\\u001B\\[[0-9;]*m");
 	private static int visibleLength(String text) {
-		if (text == null || text.isEmpty()) return 0;
-		return ANSI_PATTERN.matcher(text).replaceAll("").length();
+		return TextLayout.width(text);
 	}
 
 	private static String padRightVisible(String text, int width) {
@@ -272,6 +530,7 @@ public final class Flex implements Element {
 		private Integer width;
 		private Integer height;
 		private final List<Element> children = new ArrayList<>();
+		private int parallelThreshold = 0;
 
 		public Builder direction(Direction direction) { this.direction = Objects.requireNonNull(direction); return this; }
 		public Builder justify(Justify justify) { this.justify = Objects.requireNonNull(justify); return this; }
@@ -281,8 +540,12 @@ public final class Flex implements Element {
 		public Builder height(int height) { this.height = height; return this; }
 		public Builder children(List<? extends Element> elements) { this.children.clear(); this.children.addAll(elements); return this; }
 		public Builder add(Element element) { this.children.add(Objects.requireNonNull(element)); return this; }
+		// Render children whose cost() reaches the threshold concurrently; output is unchanged
+		public Builder parallel() { return parallel(DEFAULT_PARALLEL_THRESHOLD); }
+		public Builder parallel(int threshold) { this.parallelThreshold = Math.max(1, threshold); return this; }
+		public Builder sequential() { this.parallelThreshold = 0; return this; }
 
-		public Flex build() { return new Flex(direction, justify, align, gap, width, height, children); }
+		public Flex build() { return new Flex(direction, justify, align, gap, width, height, children, parallelThreshold); }
 	}
 }
 
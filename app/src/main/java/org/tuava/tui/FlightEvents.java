@@ -0,0 +1,105 @@
+package org.tuava.tui;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Java Flight Recorder events for the update/view/render pipeline. They are created with the usual
+// begin()/shouldCommit() pattern, which JIT-compiles down to nothing while no recording is running.
+final class FlightEvents {
+    private static final String CATEGORY = "Tuava";
+
+    private FlightEvents() {
+    }
+
+    @Name("org.tuava.MessageDispatch")
+    @Label("Message Dispatch")
+    @Description("A message taken off the queue and passed to Model.update")
+    @Category({ CATEGORY, "Update" })
+    @StackTrace(false)
+    static final class Dispatch extends jdk.jfr.Event {
+        @Label("Message Type")
+        String messageType;
+
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWait;
+
+        @Label("Model Changed")
+        boolean modelChanged;
+    }
+
+    @Name("org.tuava.View")
+    @Label("View")
+    @Description("A call to Model.view")
+    @Category({ CATEGORY, "Render" })
+    @StackTrace(false)
+    static final class View extends jdk.jfr.Event {
+        @Label("Model Type")
+        String modelType;
+
+        @Label("Characters")
+        int characters;
+    }
+
+    @Name("org.tuava.TerminalWrite")
+    @Label("Terminal Write")
+    @Description("An encoded frame written and flushed to the terminal backend")
+    @Category({ CATEGORY, "Render" })
+    @StackTrace(false)
+    static final class TerminalWrite extends jdk.jfr.Event {
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("org.tuava.Effect")
+    @Label("Effect")
+    @Description("An effect being run; for Once effects the duration covers the supplier on the effect pool")
+    @Category({ CATEGORY, "Effects" })
+    static final class EffectRun extends jdk.jfr.Event {
+        @Label("Effect Type")
+        String effectType;
+
+        @Label("Produced Message")
+        boolean producedMessage;
+    }
+
+    @Name("org.tuava.Stream")
+    @Label("Stream Lifecycle")
+    @Description("A stream started or stopped by the runtime")
+    @Category({ CATEGORY, "Streams" })
+    static final class StreamLifecycle extends jdk.jfr.Event {
+        @Label("Key")
+        String key;
+
+        @Label("Action")
+        String action;
+
+        @Label("Failure")
+        String failure;
+    }
+
+    static void effect(String effectType, boolean producedMessage) {
+        EffectRun event = new EffectRun();
+        if (event.shouldCommit()) {
+            event.effectType = effectType;
+            event.producedMessage = producedMessage;
+            event.commit();
+        }
+    }
+
+    static void stream(String key, String action, Exception failure) {
+        StreamLifecycle event = new StreamLifecycle();
+        if (event.shouldCommit()) {
+            event.key = key;
+            event.action = action;
+            event.failure = failure == null ? null : failure.toString();
+            event.commit();
+        }
+    }
+}
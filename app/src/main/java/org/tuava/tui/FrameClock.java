@@ -0,0 +1,36 @@
+package org.tuava.tui;
+
+import java.time.Duration;
+
+// The time animations are evaluated at. While a view is being rendered, now() is the time its frame
+// started, so every animated element in it agrees on one instant; anywhere else, in update for
+// instance, it is the current time. The frame belongs to the thread rendering it, so two programs,
+// or the update and render threads of a pipelined one, each see their own.
+//
+// Animated elements call requestFrame() while they are still moving. After each frame the runtime
+// checks for requests and, if there were any, schedules one more redraw at the animation frame rate.
+// Nothing is sent through update and only one redraw is ever outstanding: when the terminal is
+// slow the next frame simply happens later and shows wherever the animations are by then, so any
+// number of animations cost one render per frame.
+public final class FrameClock {
+    private FrameClock() {
+    }
+
+    public static long now() {
+        RenderContext context = RenderContext.current();
+        return context != null ? context.frameNanos() : System.nanoTime();
+    }
+
+    public static Duration since(long startNanos) {
+        return Duration.ofNanos(Math.max(0, now() - startNanos));
+    }
+
+    // Asks for another frame after this one. Only rendering can ask: outside a view there is no
+    // frame to follow, so the call does nothing.
+    public static void requestFrame() {
+        RenderContext context = RenderContext.current();
+        if (context != null) {
+            context.requestFrame();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.tuava.tui;
+
+final class FullscreenRenderer implements Renderer {
+    private ScreenBuffer previousScreen;
+    private final CellEncoder encoder = new CellEncoder();
+
+    @Override
+    public String enter() {
+        previousScreen = null;
+        return Terminal.ANSI.ENTER_ALTERNATE_SCREEN + Terminal.ANSI.CLEAR_SCREEN + Terminal.ANSI.CURSOR_HOME
+                + Terminal.ANSI.HIDE_CURSOR;
+    }
+
+    // Every fullscreen frame, string views included, is painted into a screen buffer, compared cell
+    // by cell with the last one and written with the fewest bytes; the renderer keeps `screen` as
+    // the previous frame
+    String frame(ScreenBuffer screen) {
+        ScreenBuffer old = previousScreen;
+        previousScreen = screen;
+        StringBuilder out = new StringBuilder();
+        if (old == null || old.width() != screen.width() || old.height() != screen.height()) {
+            out.append(Terminal.ANSI.CLEAR_SCREEN).append(Terminal.ANSI.CURSOR_HOME);
+            encoder.home();
+            old = null;
+        }
+        encoder.encode(old, screen, out);
+        return out.toString();
+    }
+
+    // Whether the terminal understands REP, which the encoder then uses for runs of one character
+    void repeatCharacters(boolean repeat) {
+        encoder.repeat(repeat);
+    }
+
+    // Forget what is on screen so the next frame clears and redraws everything, e.g. after a resize
+    void reset() {
+        previousScreen = null;
+    }
+
+    @Override
+    public String exit() {
+        previousScreen = null;
+        return Terminal.ANSI.SHOW_CURSOR + Terminal.ANSI.RESET + "\r\n" + Terminal.ANSI.EXIT_ALTERNATE_SCREEN;
+    }
+}
@@ -0,0 +1,525 @@
+package org.tuava.tui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class HeadlessBackend implements TerminalBackend {
+    private static final byte[] EOF = new byte[0];
+    // Second half of a wide character
+    private static final int CONTINUATION = 0;
+
+    private final BlockingQueue<byte[]> pendingInput = new LinkedBlockingQueue<>();
+    private final ByteArrayOutputStream unflushed = new ByteArrayOutputStream();
+    private final List<String> scrollback = new ArrayList<>();
+    private final List<Runnable> resizeListeners = new CopyOnWriteArrayList<>();
+    private int width;
+    private int height;
+    private int[][] main;
+    private int[][] alternate;
+    private int[][] cells;
+    private int row = 0;
+    private int col = 0;
+    private boolean wrap = true;
+    private boolean cursorVisible = true;
+    private boolean rawMode = false;
+    private long bytesWritten = 0;
+    private long flushes = 0;
+    private boolean synchronizing = false;
+    private long synchronizedUpdates = 0;
+    private String escape;
+
+    public HeadlessBackend() {
+        this(80, 24);
+    }
+
+    public HeadlessBackend(int width, int height) {
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+        this.main = blank(this.width, this.height);
+        this.alternate = blank(this.width, this.height);
+        this.cells = main;
+    }
+
+    private final OutputStream output = new OutputStream() {
+        @Override
+        public void write(int b) {
+            synchronized (HeadlessBackend.this) {
+                unflushed.write(b);
+                bytesWritten++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            synchronized (HeadlessBackend.this) {
+                unflushed.write(b, off, len);
+                bytesWritten += len;
+            }
+        }
+
+        @Override
+        public void flush() {
+            synchronized (HeadlessBackend.this) {
+                flushes++;
+                if (unflushed.size() > 0) {
+                    interpret(unflushed.toString(StandardCharsets.UTF_8));
+                    unflushed.reset();
+                }
+            }
+        }
+    };
+
+    private final InputStream input = new InputStream() {
+        private byte[] current = new byte[0];
+        private int pos = 0;
+
+        @Override
+        public int read() {
+            while (pos >= current.length) {
+                if (current == EOF) {
+                    return -1;
+                }
+                try {
+                    current = pendingInput.take();
+                    pos = 0;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+            }
+            return current[pos++] & 0xff;
+        }
+
+        @Override
+        public int available() {
+            if (pos >= current.length && current != EOF) {
+                byte[] next = pendingInput.poll();
+                if (next != null) {
+                    current = next;
+                    pos = 0;
+                }
+            }
+            return current.length - pos;
+        }
+    };
+
+    @Override
+    public OutputStream output() {
+        return output;
+    }
+
+    @Override
+    public InputStream input() {
+        return input;
+    }
+
+    @Override
+    public synchronized Terminal.TerminalSize size() {
+        return new Terminal.TerminalSize(width, height);
+    }
+
+    @Override
+    public synchronized void enterRawMode() {
+        rawMode = true;
+    }
+
+    @Override
+    public synchronized void exitRawMode() {
+        rawMode = false;
+    }
+
+    // Answers Primary Device Attributes and mode queries like a real terminal, reporting
+    // synchronized output (mode 2026) as supported
+    @Override
+    public boolean answersQueries() {
+        return true;
+    }
+
+    public synchronized boolean isRawMode() {
+        return rawMode;
+    }
+
+    // Scripted input
+
+    public void type(String keys) {
+        send(keys.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void send(byte[] bytes) {
+        if (bytes.length > 0) {
+            pendingInput.offer(bytes.clone());
+        }
+    }
+
+    public void closeInput() {
+        pendingInput.offer(EOF);
+    }
+
+    // Like a window resize: the screen changes size and resize listeners are told, as SIGWINCH
+    // tells them on a real terminal
+    public void resize(int width, int height) {
+        synchronized (this) {
+            this.width = Math.max(1, width);
+            this.height = Math.max(1, height);
+            boolean onAlternate = cells == alternate;
+            main = copyInto(main, this.width, this.height);
+            alternate = copyInto(alternate, this.width, this.height);
+            cells = onAlternate ? alternate : main;
+            row = Math.min(row, this.height - 1);
+            col = Math.min(col, this.width - 1);
+        }
+        for (Runnable listener : resizeListeners) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public AutoCloseable onResize(Runnable listener) {
+        resizeListeners.add(listener);
+        return () -> resizeListeners.remove(listener);
+    }
+
+    // Virtual screen inspection
+
+    public synchronized List<String> screen() {
+        List<String> lines = new ArrayList<>(height);
+        for (int r = 0; r < height; r++) {
+            lines.add(line(r));
+        }
+        return lines;
+    }
+
+    public synchronized String line(int r) {
+        int[] cps = cells[r];
+        int end = cps.length;
+        while (end > 0 && (cps[end - 1] == ' ' || cps[end - 1] == CONTINUATION)) {
+            end--;
+        }
+        StringBuilder sb = new StringBuilder(end);
+        for (int c = 0; c < end; c++) {
+            if (cps[c] != CONTINUATION) {
+                sb.appendCodePoint(cps[c]);
+            }
+        }
+        return sb.toString();
+    }
+
+    public synchronized List<String> scrollback() {
+        return List.copyOf(scrollback);
+    }
+
+    public synchronized int cursorRow() {
+        return row;
+    }
+
+    public synchronized int cursorColumn() {
+        return col;
+    }
+
+    public synchronized boolean isCursorVisible() {
+        return cursorVisible;
+    }
+
+    public synchronized boolean isAlternateScreen() {
+        return cells == alternate;
+    }
+
+    public synchronized long bytesWritten() {
+        return bytesWritten;
+    }
+
+    public synchronized long flushes() {
+        return flushes;
+    }
+
+    // Number of synchronized updates (mode 2026) begun
+    public synchronized long synchronizedUpdates() {
+        return synchronizedUpdates;
+    }
+
+    // Escape sequence interpreter
+
+    private void interpret(String text) {
+        if (escape != null) {
+            text = escape + text;
+            escape = null;
+        }
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == 0x1b) {
+                int end = escapeEnd(text, i);
+                if (end < 0) {
+                    // Sequence split across flushes; finish it on the next one
+                    escape = text.substring(i);
+                    return;
+                }
+                apply(text, i, end);
+                i = end;
+                continue;
+            }
+            switch (c) {
+                case '\r' -> col = 0;
+                case '\n' -> lineFeed();
+                case '\b' -> col = Math.max(0, col - 1);
+                case '\t' -> col = Math.min(width - 1, (col / 8 + 1) * 8);
+                default -> {
+                    if (c >= ' ') {
+                        int cp = text.codePointAt(i);
+                        put(cp);
+                        i += Character.charCount(cp);
+                        continue;
+                    }
+                }
+            }
+            i++;
+        }
+    }
+
+    private static int escapeEnd(String text, int start) {
+        int n = text.length();
+        if (start + 1 >= n) {
+            return -1;
+        }
+        char kind = text.charAt(start + 1);
+        if (kind == '[') {
+            for (int i = start + 2; i < n; i++) {
+                char c = text.charAt(i);
+                if (c >= 0x40 && c <= 0x7e) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        if (kind == ']') {
+            // OSC, terminated by BEL or ST
+            for (int i = start + 2; i < n; i++) {
+                char c = text.charAt(i);
+                if (c == 0x07) {
+                    return i + 1;
+                }
+                if (c == 0x1b && i + 1 < n && text.charAt(i + 1) == '\\') {
+                    return i + 2;
+                }
+            }
+            return -1;
+        }
+        return start + 2;
+    }
+
+    private void apply(String text, int start, int end) {
+        if (text.charAt(start + 1) != '[') {
+            return;
+        }
+        char command = text.charAt(end - 1);
+        String body = text.substring(start + 2, end - 1);
+        boolean isPrivate = body.startsWith("?");
+        int[] params = parseParams(isPrivate ? body.substring(1) : body);
+        int p0 = params.length > 0 ? params[0] : 0;
+        int count = Math.max(1, p0);
+
+        if (command == 'c' && (body.isEmpty() || body.equals("0"))) {
+            // Primary Device Attributes: a VT220 with ANSI colour
+            send("\u001b[?62;22c".getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (isPrivate && command == 'p' && body.endsWith("$")) {
+            // DECRQM: 1 = set, 2 = reset, 0 = unknown
+            int[] query = parseParams(body.substring(1, body.length() - 1));
+            int mode = query.length > 0 ? query[0] : 0;
+            int state = switch (mode) {
+                case 2026 -> synchronizing ? 1 : 2;
+                case 25 -> cursorVisible ? 1 : 2;
+                case 7 -> wrap ? 1 : 2;
+                case 1049 -> cells == alternate ? 1 : 2;
+                default -> 0;
+            };
+            send(("\u001b[?" + mode + ";" + state + "$y").getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (isPrivate) {
+            if (command == 'h' || command == 'l') {
+                boolean set = command == 'h';
+                for (int mode : params) {
+                    switch (mode) {
+                        case 25 -> cursorVisible = set;
+                        case 7 -> wrap = set;
+                        case 2026 -> {
+                            if (set && !synchronizing) {
+                                synchronizedUpdates++;
+                            }
+                            synchronizing = set;
+                        }
+                        case 1049 -> {
+                            cells = set ? alternate : main;
+                            if (set) {
+                                clearAll(alternate);
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                }
+            }
+            return;
+        }
+
+        switch (command) {
+            case 'A' -> row = Math.max(0, row - count);
+            case 'B' -> row = Math.min(height - 1, row + count);
+            case 'C' -> col = Math.min(width - 1, col + count);
+            case 'D' -> col = Math.max(0, Math.min(col, width - 1) - count);
+            case 'E' -> {
+                row = Math.min(height - 1, row + count);
+                col = 0;
+            }
+            case 'F' -> {
+                row = Math.max(0, row - count);
+                col = 0;
+            }
+            case 'G' -> col = Math.min(width - 1, count - 1);
+            case 'd' -> row = Math.min(height - 1, count - 1);
+            case 'H', 'f' -> {
+                row = Math.min(height - 1, Math.max(1, p0) - 1);
+                col = Math.min(width - 1, Math.max(1, params.length > 1 ? params[1] : 0) - 1);
+            }
+            case 'J' -> {
+                switch (p0) {
+                    case 0 -> {
+                        eraseLine(row, Math.min(col, width), width);
+                        for (int r = row + 1; r < height; r++) {
+                            eraseLine(r, 0, width);
+                        }
+                    }
+                    case 1 -> {
+                        for (int r = 0; r < row; r++) {
+                            eraseLine(r, 0, width);
+                        }
+                        eraseLine(row, 0, Math.min(col + 1, width));
+                    }
+                    default -> clearAll(cells);
+                }
+            }
+            case 'K' -> {
+                switch (p0) {
+                    case 0 -> eraseLine(row, Math.min(col, width), width);
+                    case 1 -> eraseLine(row, 0, Math.min(col + 1, width));
+                    default -> eraseLine(row, 0, width);
+                }
+            }
+            case 'X' -> eraseLine(row, Math.min(col, width), Math.min(width, col + count));
+            case 'b' -> {
+                int c = Math.min(col, width) - 1;
+                while (c > 0 && cells[row][c] == CONTINUATION) {
+                    c--;
+                }
+                int last = c >= 0 ? cells[row][c] : ' ';
+                for (int k = 0; k < count; k++) {
+                    put(last);
+                }
+            }
+            default -> {
+                // SGR and anything else do not affect the character grid
+            }
+        }
+    }
+
+    private static int[] parseParams(String body) {
+        if (body.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = body.split(";", -1);
+        int[] params = new int[parts.length];
+        for (int k = 0; k < parts.length; k++) {
+            try {
+                params[k] = parts[k].isEmpty() ? 0 : Integer.parseInt(parts[k]);
+            } catch (NumberFormatException e) {
+                params[k] = 0;
+            }
+        }
+        return params;
+    }
+
+    // Characters take the columns a terminal gives them: wide ones two, combining marks none (the
+    // virtual screen keeps base characters only)
+    private void put(int cp) {
+        int w = TextLayout.codePointWidth(cp);
+        if (w == 0 || w > width) {
+            return;
+        }
+        if (col + w > width) {
+            if (!wrap) {
+                col = width - w;
+                put(cp);
+                col = width;
+                return;
+            }
+            col = 0;
+            lineFeed();
+        }
+        int[] line = cells[row];
+        // Overwriting half of a wide character blanks the other half
+        if (line[col] == CONTINUATION && col > 0) {
+            line[col - 1] = ' ';
+        }
+        if (col + w < width && line[col + w] == CONTINUATION) {
+            line[col + w] = ' ';
+        }
+        line[col] = cp;
+        for (int c = col + 1; c < col + w; c++) {
+            line[c] = CONTINUATION;
+        }
+        col += w;
+    }
+
+    private void lineFeed() {
+        if (row < height - 1) {
+            row++;
+            return;
+        }
+        if (cells == main) {
+            scrollback.add(line(0));
+        }
+        System.arraycopy(cells, 1, cells, 0, height - 1);
+        int[] fresh = new int[width];
+        Arrays.fill(fresh, ' ');
+        cells[height - 1] = fresh;
+    }
+
+    private void eraseLine(int r, int from, int to) {
+        if (from < to) {
+            Arrays.fill(cells[r], from, to, ' ');
+        }
+    }
+
+    private void clearAll(int[][] grid) {
+        for (int[] line : grid) {
+            Arrays.fill(line, ' ');
+        }
+    }
+
+    private static int[][] blank(int width, int height) {
+        int[][] grid = new int[height][width];
+        for (int[] line : grid) {
+            Arrays.fill(line, ' ');
+        }
+        return grid;
+    }
+
+    private static int[][] copyInto(int[][] grid, int width, int height) {
+        int[][] resized = blank(width, height);
+        for (int r = 0; r < Math.min(height, grid.length); r++) {
+            System.arraycopy(grid[r], 0, resized[r], 0, Math.min(width, grid[r].length));
+        }
+        return resized;
+    }
+}
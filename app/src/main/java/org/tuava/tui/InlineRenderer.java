@@ -0,0 +1,104 @@
+package org.tuava.tui;
+
+import java.util.List;
+
+final class InlineRenderer implements Renderer {
+    private final int maxLines;
+    private String[] previous = new String[0];
+
+    InlineRenderer(int maxLines) {
+        this.maxLines = Math.max(1, maxLines);
+    }
+
+    @Override
+    public String enter() {
+        // Lines wider than the terminal must not wrap, or the region would drift
+        return "\r" + Terminal.ANSI.DISABLE_LINE_WRAP + Terminal.ANSI.HIDE_CURSOR;
+    }
+
+    String frame(String view, List<String> printed) {
+        String[] lines = view.split("\n", -1);
+        if (lines.length > maxLines) {
+            lines = java.util.Arrays.copyOf(lines, maxLines);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int row = Math.max(0, previous.length - 1);
+        int drawn = previous.length;
+
+        if (!printed.isEmpty()) {
+            // Scroll permanent lines out above the live region, then redraw it from scratch
+            moveUp(sb, row);
+            sb.append('\r').append(Terminal.ANSI.ERASE_DOWN);
+            for (String line : printed) {
+                sb.append(line.replace("\n", "\r\n")).append(Terminal.ANSI.RESET).append("\r\n");
+            }
+            previous = new String[0];
+            row = 0;
+            drawn = 0;
+        }
+
+        for (int i = 0; i < lines.length; i++) {
+            if (i < previous.length && lines[i].equals(previous[i])) {
+                continue;
+            }
+            if (i < drawn) {
+                if (i > row) {
+                    sb.append(String.format(Terminal.ANSI.CURSOR_DOWN, i - row));
+                } else {
+                    moveUp(sb, row - i);
+                }
+            } else {
+                // Grow the region; LF scrolls the terminal when we are on its last line
+                if (drawn > 0) {
+                    if (drawn - 1 > row) {
+                        sb.append(String.format(Terminal.ANSI.CURSOR_DOWN, drawn - 1 - row));
+                    }
+                    while (drawn <= i) {
+                        sb.append("\r\n");
+                        drawn++;
+                    }
+                } else {
+                    drawn = i + 1;
+                }
+            }
+            row = i;
+            sb.append('\r').append(lines[i]).append(Terminal.ANSI.RESET).append(Terminal.ANSI.ERASE_TO_END_OF_LINE);
+        }
+
+        if (drawn > lines.length) {
+            // The region shrank: wipe the stale rows below the new last line
+            int target = lines.length;
+            if (target > row) {
+                sb.append(String.format(Terminal.ANSI.CURSOR_DOWN, target - row));
+            } else {
+                moveUp(sb, row - target);
+            }
+            sb.append('\r').append(Terminal.ANSI.ERASE_DOWN);
+            row = target;
+        }
+
+        int last = lines.length - 1;
+        if (last > row) {
+            sb.append(String.format(Terminal.ANSI.CURSOR_DOWN, last - row));
+        } else {
+            moveUp(sb, row - last);
+        }
+        sb.append('\r');
+
+        previous = lines;
+        return sb.toString();
+    }
+
+    @Override
+    public String exit() {
+        // Leave the final frame in the scrollback and hand the next line back to the shell
+        return "\r\n" + Terminal.ANSI.ENABLE_LINE_WRAP + Terminal.ANSI.SHOW_CURSOR + Terminal.ANSI.RESET;
+    }
+
+    private static void moveUp(StringBuilder sb, int rows) {
+        if (rows > 0) {
+            sb.append(String.format(Terminal.ANSI.CURSOR_UP, rows));
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package org.tuava.tui;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Append-only binary journal of the messages a Program processed, in the order it processed them.
+//
+// Layout: an 8-byte magic, a version int and the recording start time (epoch millis), followed by
+// records of [source byte][offset nanos long][payload length int][payload]. A zero source byte ends
+// the journal, so a file cut short by a crash still reads back up to its last complete record.
+public final class Journal {
+    private static final byte[] MAGIC = "TUAVAJNL".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + 4 + 8;
+    private static final int RECORD_HEADER_SIZE = 1 + 8 + 4;
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private Journal() {
+    }
+
+    public enum Source {
+        // A terminal event, journaled before it is mapped to a message
+        INPUT,
+        // A message emitted by a Stream
+        STREAM,
+        // The result of an asynchronous effect (Once, FromFuture)
+        EFFECT,
+        // A marker for an Effect.Pure message; replay regenerates it by re-running update
+        PURE;
+
+        byte code() {
+            return (byte) (ordinal() + 1);
+        }
+
+        static Source of(byte code) {
+            Source[] all = values();
+            if (code < 1 || code > all.length) {
+                throw new IllegalStateException("Corrupt journal record type: " + code);
+            }
+            return all[code - 1];
+        }
+    }
+
+    public interface Codec<Msg> {
+        void write(Msg message, DataOutput out) throws IOException;
+
+        Msg read(DataInput in) throws IOException;
+
+        static <E extends Enum<E>> Codec<E> ofEnum(Class<E> type) {
+            E[] constants = type.getEnumConstants();
+            return new Codec<>() {
+                @Override
+                public void write(E message, DataOutput out) throws IOException {
+                    out.writeShort(message.ordinal());
+                }
+
+                @Override
+                public E read(DataInput in) throws IOException {
+                    return constants[in.readUnsignedShort()];
+                }
+            };
+        }
+
+        static Codec<Event> events() {
+            return EventCodec.INSTANCE;
+        }
+    }
+
+    public record Entry(long offsetNanos, Source source, byte[] payload) {
+        public Event event() throws IOException {
+            return EventCodec.INSTANCE.read(new DataInputStream(new ByteArrayInputStream(payload)));
+        }
+
+        public <Msg> Msg message(Codec<Msg> codec) throws IOException {
+            return codec.read(new DataInputStream(new ByteArrayInputStream(payload)));
+        }
+    }
+
+    public static Writer record(Path path) throws IOException {
+        return new Writer(path);
+    }
+
+    public static Reader open(Path path) throws IOException {
+        return new Reader(path);
+    }
+
+    public static final class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final long startNanos = System.nanoTime();
+        private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+        private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+        private MappedByteBuffer buffer;
+        private long position = 0;
+        // Lets the scratch buffer drain into the mapping without copying its array
+        private final OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                buffer.put((byte) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                buffer.put(b, off, len);
+            }
+        };
+
+        private Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ensure(HEADER_SIZE);
+            buffer.put(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+            position = HEADER_SIZE;
+        }
+
+        public long startNanos() {
+            return startNanos;
+        }
+
+        public void event(long atNanos, Event event) throws IOException {
+            scratch.reset();
+            EventCodec.INSTANCE.write(event, scratchOut);
+            append(Source.INPUT, atNanos);
+        }
+
+        public <Msg> void message(Source source, long atNanos, Msg message, Codec<Msg> codec) throws IOException {
+            scratch.reset();
+            if (source != Source.PURE) {
+                codec.write(message, scratchOut);
+            }
+            append(source, atNanos);
+        }
+
+        private void append(Source source, long atNanos) throws IOException {
+            scratchOut.flush();
+            int length = scratch.size();
+            ensure(RECORD_HEADER_SIZE + length);
+            buffer.put(source.code()).putLong(Math.max(0, atNanos - startNanos)).putInt(length);
+            scratch.writeTo(sink);
+            position += RECORD_HEADER_SIZE + length;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer != null && buffer.remaining() >= bytes) {
+                return;
+            }
+            if (buffer != null) {
+                buffer.force();
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(CHUNK_SIZE, bytes));
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (buffer != null) {
+                    buffer.force();
+                }
+                channel.truncate(position);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    public static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long size;
+        private final long startedAtMillis;
+        private MappedByteBuffer buffer;
+        private long bufferStart;
+        private long position;
+
+        private Reader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a journal: " + path);
+            }
+            map(0, HEADER_SIZE);
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a journal: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported journal version " + version + ": " + path);
+            }
+            this.startedAtMillis = buffer.getLong();
+            this.position = HEADER_SIZE;
+        }
+
+        public long startedAtMillis() {
+            return startedAtMillis;
+        }
+
+        // Returns null at the end of the journal
+        public Entry next() throws IOException {
+            if (size - position < RECORD_HEADER_SIZE) {
+                return null;
+            }
+            map(position, RECORD_HEADER_SIZE);
+            byte code = buffer.get();
+            if (code == 0) {
+                return null;
+            }
+            long offset = buffer.getLong();
+            int length = buffer.getInt();
+            if (length < 0 || size - position - RECORD_HEADER_SIZE < length) {
+                return null;
+            }
+            map(position + RECORD_HEADER_SIZE, length);
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            position += RECORD_HEADER_SIZE + length;
+            return new Entry(offset, Source.of(code), payload);
+        }
+
+        private void map(long at, int bytes) throws IOException {
+            if (buffer == null || at < bufferStart || at + bytes > bufferStart + buffer.limit()) {
+                bufferStart = at;
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, at,
+                        Math.min(size - at, Math.max(CHUNK_SIZE, bytes)));
+            }
+            buffer.position((int) (at - bufferStart));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class EventCodec implements Codec<Event> {
+        static final EventCodec INSTANCE = new EventCodec();
+
+        @Override
+        public void write(Event event, DataOutput out) throws IOException {
+            switch (event) {
+                case Event.KeyEvent key -> {
+                    out.writeByte(1);
+                    out.writeShort(key.key().ordinal());
+                    out.writeUTF(key.sequence());
+                }
+                case Event.MouseEvent mouse -> {
+                    out.writeByte(2);
+                    out.writeInt(mouse.x());
+                    out.writeInt(mouse.y());
+                    out.writeByte(mouse.button().ordinal());
+                    out.writeByte(mouse.action().ordinal());
+                }
+                case Event.ResizeEvent resize -> {
+                    out.writeByte(3);
+                    out.writeInt(resize.width());
+                    out.writeInt(resize.height());
+                }
+                case Event.TickEvent tick -> {
+                    out.writeByte(4);
+                    out.writeLong(tick.timestamp());
+                }
+            }
+        }
+
+        @Override
+        public Event read(DataInput in) throws IOException {
+            int kind = in.readByte();
+            return switch (kind) {
+                case 1 -> new Event.KeyEvent(Event.Key.values()[in.readUnsignedShort()], in.readUTF());
+                case 2 -> new Event.MouseEvent(in.readInt(), in.readInt(),
+                        Event.MouseButton.values()[in.readByte()], Event.MouseAction.values()[in.readByte()]);
+                case 3 -> new Event.ResizeEvent(in.readInt(), in.readInt());
+                case 4 -> new Event.TickEvent(in.readLong());
+                default -> throw new IOException("Unknown event kind in journal: " + kind);
+            };
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.tuava.tui;
+
+// Log-linear histogram in the style of HdrHistogram: every power of two is split into 32 linear
+// sub-buckets, so any recorded value is reported within ~3% using a fixed array and no allocation.
+// Recording is meant for a single writer; readers on other threads see an approximate view.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[indexOf(v)]++;
+        total++;
+        sum += v;
+        if (v < min) {
+            min = v;
+        }
+        if (v > max) {
+            max = v;
+        }
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public long min() {
+        return total == 0 ? 0 : min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    // p in [0, 100]
+    public long percentile(double p) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, p)) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestEquivalent(i));
+            }
+        }
+        return max;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(counts, 0);
+        total = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift);
+        return ((shift + 1) << SUB_BUCKET_BITS) + (sub - SUB_BUCKETS);
+    }
+
+    static long highestEquivalent(int index) {
+        int bucket = index >>> SUB_BUCKET_BITS;
+        if (bucket == 0) {
+            return index;
+        }
+        int shift = bucket - 1;
+        long sub = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -1,16 +1,11 @@
 package org.tuava.tui;
 
 import java.util.List;
-import java.util.regex.Pattern;
 
 public class Layout {
-    private static final Pattern ANSI_PATTERN = Pattern.compile("\\u001B\\[[0-9;]*m");
 
     private static int visibleLength(String text) {
-        if (text == null || text.isEmpty()) {
-            return 0;
-        }
-        return ANSI_PATTERN.matcher(text).replaceAll("").length();
+        return TextLayout.width(text);
     }
 
     private static String spaces(int count) {
@@ -54,12 +49,7 @@ public class Layout {
         for (int i = 0; i < height - 2; i++) {
             sb.append("│");
             if (i < lines.length) {
-                String line = lines[i];
-                if (visibleLength(line) > width - 2) {
-                    // naive truncate by code units; acceptable for ASCII demos
-                    line = line.substring(0, width - 2);
-                }
-                sb.append(padRight(line, width - 2));
+                sb.append(padRight(TextLayout.truncate(lines[i], width - 2), width - 2));
             } else {
                 sb.append(" ".repeat(width - 2));
             }
@@ -0,0 +1,67 @@
+package org.tuava.tui;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits a byte stream read in arbitrary chunks into UTF-8 lines, carrying an unfinished line over
+// to the next chunk. A trailing '\r' is dropped. Shared by the file and process streams.
+final class LineBuffer {
+    private final int maxLineBytes;
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+
+    // A line that never ends is delivered in pieces of maxLineBytes
+    LineBuffer(int maxLineBytes) {
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    // The lines completed by bytes[0, length)
+    List<String> split(byte[] bytes, int length) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == '\n') {
+                lines.add(line(bytes, start, i));
+                start = i + 1;
+            }
+        }
+        partial.write(bytes, start, length - start);
+        if (partial.size() >= maxLineBytes) {
+            lines.add(line(bytes, length, length));
+        }
+        return lines;
+    }
+
+    // The unfinished line, if any, e.g. the last line of a file without a terminator
+    String flush() {
+        if (partial.size() == 0) {
+            return null;
+        }
+        byte[] rest = partial.toByteArray();
+        partial.reset();
+        return line(rest, 0, rest.length);
+    }
+
+    void reset() {
+        partial.reset();
+    }
+
+    // Completes the pending partial line with bytes[from, to)
+    private String line(byte[] bytes, int from, int to) {
+        byte[] whole = bytes;
+        int start = from;
+        int end = to;
+        if (partial.size() > 0) {
+            partial.write(bytes, from, to - from);
+            whole = partial.toByteArray();
+            start = 0;
+            end = whole.length;
+            partial.reset();
+        }
+        if (end > start && whole[end - 1] == '\r') {
+            end--;
+        }
+        return new String(whole, start, end - start, StandardCharsets.UTF_8);
+    }
+}
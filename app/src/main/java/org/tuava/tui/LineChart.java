@@ -0,0 +1,160 @@
+package org.tuava.tui;
+
+import java.util.Objects;
+
+// A line chart drawn with braille dots, two across and four down per cell. A series with more
+// points than there are dots across is reduced with Downsample.lttb() first, so the line keeps its
+// peaks and a million points render about as fast as a few hundred.
+//
+// The series belongs in the model, created once with Series.of() or a TimeSeries snapshot, so its
+// summaries are built once rather than on every frame.
+//
+//   LineChart.of(model.requests()).width(60).height(8).labels().build()
+public final class LineChart implements Element {
+	private static final int BRAILLE = 0x2800;
+	// Bit of each dot in a braille cell, by [row][column]
+	private static final int[][] DOTS = {{0x01, 0x08}, {0x02, 0x10}, {0x04, 0x20}, {0x40, 0x80}};
+
+	private final Series series;
+	private final int width;
+	private final int height;
+	private final Double min;
+	private final Double max;
+	private final boolean labels;
+	private final Style style;
+
+	private LineChart(Builder b) {
+		this.series = b.series;
+		this.width = b.width;
+		this.height = b.height;
+		this.min = b.min;
+		this.max = b.max;
+		this.labels = b.labels;
+		this.style = b.style;
+	}
+
+	public static Builder of(Series series) {
+		return new Builder(series);
+	}
+
+	@Override
+	public String render() {
+		int n = series.size();
+		double low = min != null ? min : value(series.minIndex(0, n), 0);
+		double high = max != null ? max : value(series.maxIndex(0, n), 0);
+		String top = labels ? label(high) : "";
+		String bottom = labels ? label(low) : "";
+		int gutter = labels ? Math.max(top.length(), bottom.length()) + 1 : 0;
+		int columns = Math.max(1, width - gutter);
+		int dotsAcross = columns * 2;
+		int dotsDown = height * 4;
+
+		int[] cells = new int[columns * height];
+		boolean reduced = n > dotsAcross;
+		int[] points = Downsample.lttb(series, reduced ? dotsAcross : n);
+		int previousX = -1;
+		int previousY = -1;
+		for (int i = 0; i < points.length; i++) {
+			int index = points[i];
+			int x = n <= 1 ? 0 : (int) Math.round((double) index * (dotsAcross - 1) / (n - 1));
+			double t = high > low ? (Math.min(high, Math.max(low, series.get(index))) - low) / (high - low) : 0.5;
+			int y = dotsDown - 1 - (int) Math.round(t * (dotsDown - 1));
+			// NaN points are never picked; when every point is drawn, one missing between two picks
+			// is a gap in the line. Reduced series bridge gaps narrower than a bucket.
+			if (previousX >= 0 && (reduced || index - points[i - 1] == 1)) {
+				line(cells, columns, previousX, previousY, x, y);
+			} else {
+				dot(cells, columns, x, y);
+			}
+			previousX = x;
+			previousY = y;
+		}
+
+		StringBuilder out = new StringBuilder();
+		for (int row = 0; row < height; row++) {
+			if (row > 0) {
+				out.append('\n');
+			}
+			if (labels) {
+				String label = row == 0 ? top : row == height - 1 ? bottom : "";
+				out.append(Layout.padLeft(label, gutter - 1)).append(' ');
+			}
+			StringBuilder line = new StringBuilder(columns);
+			for (int c = 0; c < columns; c++) {
+				int bits = cells[row * columns + c];
+				line.append(bits == 0 ? ' ' : (char) (BRAILLE + bits));
+			}
+			out.append(style.render(line.toString()));
+		}
+		return out.toString();
+	}
+
+	private double value(int index, double otherwise) {
+		return index < 0 ? otherwise : series.get(index);
+	}
+
+	// Bresenham between two dots
+	private static void line(int[] cells, int columns, int x0, int y0, int x1, int y1) {
+		int dx = Math.abs(x1 - x0);
+		int dy = -Math.abs(y1 - y0);
+		int sx = x0 < x1 ? 1 : -1;
+		int sy = y0 < y1 ? 1 : -1;
+		int err = dx + dy;
+		while (true) {
+			dot(cells, columns, x0, y0);
+			if (x0 == x1 && y0 == y1) {
+				return;
+			}
+			int e2 = 2 * err;
+			if (e2 >= dy) {
+				err += dy;
+				x0 += sx;
+			}
+			if (e2 <= dx) {
+				err += dx;
+				y0 += sy;
+			}
+		}
+	}
+
+	private static void dot(int[] cells, int columns, int x, int y) {
+		int cell = (y / 4) * columns + x / 2;
+		if (x >= 0 && y >= 0 && cell < cells.length && x / 2 < columns) {
+			cells[cell] |= DOTS[y % 4][x % 2];
+		}
+	}
+
+	private static String label(double v) {
+		if (v == Math.rint(v) && Math.abs(v) < 1e9) {
+			return Long.toString((long) v);
+		}
+		return String.format("%.3g", v);
+	}
+
+	public static final class Builder {
+		private final Series series;
+		private int width = 40;
+		private int height = 8;
+		private Double min;
+		private Double max;
+		private boolean labels = false;
+		private Style style = Style.of();
+
+		private Builder(Series series) {
+			this.series = Objects.requireNonNull(series);
+		}
+
+		// Columns including the labels
+		public Builder width(int width) { this.width = Math.max(1, width); return this; }
+		public Builder height(int height) { this.height = Math.max(1, height); return this; }
+		// Fixed bottom of the scale instead of the series' smallest value
+		public Builder min(double min) { this.min = min; return this; }
+		// Fixed top of the scale instead of the series' largest value
+		public Builder max(double max) { this.max = max; return this; }
+		// The top and bottom of the scale on the left
+		public Builder labels() { this.labels = true; return this; }
+		public Builder style(Style style) { this.style = Objects.requireNonNull(style); return this; }
+
+		public LineChart build() { return new LineChart(this); }
+	}
+}
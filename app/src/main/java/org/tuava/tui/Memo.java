@@ -0,0 +1,259 @@
+package org.tuava.tui;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// A subtree with a stable identity that is only re-rendered when its inputs change.
+//
+//   Memo.of("clock", model.time(), () -> clockPanel(model.time()))
+//
+// The key identifies the subtree across frames and the deps are compared with equals() against the
+// ones it was last rendered with; when they match, the previous output is reused and the body is
+// not even built. Deps should be immutable and cheap to compare (records, ids, versions).
+// Each Program has its own cache, split by the output size the view is rendered for, so keys must
+// only be unique among the memos one view contains. Outside a program's render nothing is cached.
+public final class Memo implements Element {
+	// Entries not used for this many frames are dropped
+	static final int MAX_IDLE_FRAMES = 120;
+
+	private final Object key;
+	private final List<Object> deps;
+	private final Supplier<? extends Element> body;
+	// A cache of its own instead of the program's, or null
+	private final Cache own;
+	private Element built;
+	// Whether building or drawing the body asked for another frame
+	private boolean animated;
+
+	private Memo(Object key, List<Object> deps, Supplier<? extends Element> body, Cache own) {
+		this.key = Objects.requireNonNull(key);
+		this.deps = deps;
+		this.body = Objects.requireNonNull(body);
+		this.own = own;
+	}
+
+	public static Memo of(Object key, Object deps, Supplier<? extends Element> body) {
+		return new Memo(key, Arrays.asList(deps), body, null);
+	}
+
+	public static Memo of(Object key, List<?> deps, Supplier<? extends Element> body) {
+		return new Memo(key, List.copyOf(deps), body, null);
+	}
+
+	// Kept in `cache` rather than the program's, for an owner that drops entries itself
+	static Memo in(Cache cache, Object key, Object deps, Supplier<? extends Element> body) {
+		return new Memo(key, Arrays.asList(deps), body, Objects.requireNonNull(cache));
+	}
+
+	@Override
+	public String render() {
+		Cache cache = cache();
+		if (cache == null) {
+			return tracked(() -> body().render());
+		}
+		Slot slot = slot();
+		Cached cached = cache.current(slot, deps);
+		if (cached != null && cached.rendered != null) {
+			cache.hits.incrementAndGet();
+			return cached.rendered;
+		}
+		cache.misses.incrementAndGet();
+		if (cached != null) {
+			// Painted before but never rendered as text
+			cached.rendered = body().render();
+			return cached.rendered;
+		}
+		String rendered = tracked(() -> body().render());
+		Cached entry = new Cached(deps, Flex.lineWidths(rendered), cache.frame);
+		entry.rendered = rendered;
+		keep(cache, slot, entry);
+		return rendered;
+	}
+
+	// Paints the body's cells once and copies them while the deps stay the same
+	@Override
+	public int paint(ScreenBuffer screen, int x, int y) {
+		Cache cache = cache();
+		if (cache == null) {
+			return tracked(() -> body().paint(screen, x, y));
+		}
+		Slot slot = slot();
+		Cached cached = cache.current(slot, deps);
+		if (cached != null && cached.cells == null && cached.rendered != null) {
+			cached.cells = cells(cached.widths, cached.rendered);
+		}
+		if (cached != null) {
+			cache.hits.incrementAndGet();
+			screen.blit(cached.cells, x, y);
+			return cached.cells.height();
+		}
+		cache.misses.incrementAndGet();
+		Cached entry = tracked(() -> paintBody(cache.frame));
+		keep(cache, slot, entry);
+		screen.blit(entry.cells, x, y);
+		return entry.cells.height();
+	}
+
+	private Cached paintBody(long frame) {
+		Element element = body();
+		int[] widths = Flex.measure(element);
+		if (widths == null) {
+			String rendered = element.render();
+			Cached entry = new Cached(deps, Flex.lineWidths(rendered), frame);
+			entry.rendered = rendered;
+			entry.cells = cells(entry.widths, rendered);
+			return entry;
+		}
+		Cached entry = new Cached(deps, widths, frame);
+		entry.cells = new ScreenBuffer(maxWidth(widths), widths.length);
+		element.paint(entry.cells, 0, 0);
+		return entry;
+	}
+
+	// For a Flex laying this out
+	int[] lineWidths() {
+		Cache cache = cache();
+		Cached cached = cache != null ? cache.current(slot(), deps) : null;
+		if (cached != null) {
+			return cached.widths;
+		}
+		int[] widths = tracked(() -> Flex.measure(body()));
+		return widths != null ? widths : Flex.lineWidths(render());
+	}
+
+	// Its own cache or that of the program rendering this; none outside a program's render
+	private Cache cache() {
+		RenderContext context = RenderContext.current();
+		if (context == null) {
+			return null;
+		}
+		if (own != null) {
+			context.used(own);
+			return own;
+		}
+		return context.memos();
+	}
+
+	private Slot slot() {
+		return new Slot(RenderContext.current().size(), key);
+	}
+
+	private void keep(Cache cache, Slot slot, Cached entry) {
+		if (animated) {
+			// Animated content changes with time rather than deps, so it is never reused
+			cache.entries.remove(slot);
+		} else {
+			cache.entries.put(slot, entry);
+		}
+	}
+
+	// Runs part of the body's work in a context of its own, to see whether it asks for a frame
+	private <T> T tracked(Supplier<T> work) {
+		RenderContext context = RenderContext.current();
+		if (context == null) {
+			return work.get();
+		}
+		RenderContext part = context.nested();
+		T result = RenderContext.within(part, work);
+		animated |= part.frameRequested();
+		return result;
+	}
+
+	private static ScreenBuffer cells(int[] widths, String rendered) {
+		ScreenBuffer cells = new ScreenBuffer(maxWidth(widths), widths.length);
+		cells.paint(0, 0, rendered);
+		return cells;
+	}
+
+	private static int maxWidth(int[] widths) {
+		int max = 0;
+		for (int w : widths) {
+			max = Math.max(max, w);
+		}
+		return max;
+	}
+
+	// Cheap when the cached output is still valid, so a parallel Flex does not fork a cache hit
+	@Override
+	public int cost() {
+		Cache cache = cache();
+		if (cache != null && cache.current(slot(), deps) != null) {
+			return 1;
+		}
+		return body().cost();
+	}
+
+	private Element body() {
+		if (built == null) {
+			built = tracked(() -> Objects.requireNonNull(body.get(), "Memo body returned null"));
+		}
+		return built;
+	}
+
+	public record Stats(long hits, long misses, int entries) {
+	}
+
+	// One program's memoized output, or the views a Components keeps for its children. Entries are
+	// keyed by the output size as well as the memo key, since a size-aware view can build different
+	// subtrees under one key at each size.
+	static final class Cache {
+		private final Map<Slot, Cached> entries = new ConcurrentHashMap<>();
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+		private volatile long frame;
+
+		// The entry for `deps`, if any
+		private Cached current(Slot slot, List<Object> deps) {
+			Cached cached = entries.get(slot);
+			if (cached != null && cached.deps.equals(deps)) {
+				cached.lastFrame = frame;
+				return cached;
+			}
+			return null;
+		}
+
+		Stats stats() {
+			return new Stats(hits.get(), misses.get(), entries.size());
+		}
+
+		void clear() {
+			entries.clear();
+		}
+
+		// Drops the entries under `key` at every size
+		void remove(Object key) {
+			entries.keySet().removeIf(slot -> slot.key().equals(key));
+		}
+
+		// Called by the runtime after each frame: advances the frame counter and drops idle entries
+		void endFrame() {
+			long now = ++frame;
+			if (now % 16 == 0) {
+				entries.values().removeIf(c -> now - c.lastFrame > MAX_IDLE_FRAMES);
+			}
+		}
+	}
+
+	private record Slot(Terminal.TerminalSize size, Object key) {
+	}
+
+	// The output as text, as cells, or both, whichever has been asked for
+	private static final class Cached {
+		final List<Object> deps;
+		final int[] widths;
+		volatile String rendered;
+		volatile ScreenBuffer cells;
+		volatile long lastFrame;
+
+		Cached(List<Object> deps, int[] widths, long lastFrame) {
+			this.deps = deps;
+			this.widths = widths;
+			this.lastFrame = lastFrame;
+		}
+	}
+}
@@ -5,6 +5,12 @@ public interface Model<Msg> {
 
     String view();
 
+    // Override to lay out for the output being drawn. The runtime calls it once per distinct
+    // output size per frame and shares the result between outputs of that size.
+    default String view(Terminal.TerminalSize size) {
+        return view();
+    }
+
     default Effect<Msg> init() {
         return Effect.none();
     }
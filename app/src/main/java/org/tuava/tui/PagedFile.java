@@ -0,0 +1,262 @@
+package org.tuava.tui;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Random access to the lines of a file of any size, for Pager.
+//
+// The file is memory-mapped in 1 GiB segments on first use, so only pages that are actually read
+// come into memory and the heap stays flat. A daemon thread builds a sparse line index in the
+// background, recording the offset of every INDEX_STRIDE-th line (about 8 MB of heap per billion
+// lines). Lines are usable as soon as the index has reached them; tail() and linesFrom() work by
+// byte position and do not need the index at all. The file is read as it was when opened.
+public final class PagedFile implements AutoCloseable {
+    static final int INDEX_STRIDE = 128;
+    // Longer lines are cut when read; the rest of the line is skipped
+    public static final int MAX_LINE_BYTES = 16 * 1024;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final int BLOCK_SHIFT = 13;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int SCAN_CHUNK = 64 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final int segmentShift;
+    private final long segmentSize;
+    private final MappedByteBuffer[] segments;
+    private final Thread indexer;
+
+    // index[k >> BLOCK_SHIFT][k & (BLOCK_SIZE - 1)] = offset of line k * INDEX_STRIDE
+    private volatile long[][] index = new long[16][];
+    // Lines whose start offsets the index covers, and the bytes scanned so far
+    private volatile long indexedLines = 0;
+    private volatile long indexedBytes = 0;
+    private volatile boolean indexComplete = false;
+    private volatile boolean closed = false;
+
+    private PagedFile(Path path, int segmentShift) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.segmentShift = segmentShift;
+        this.segmentSize = 1L << segmentShift;
+        this.segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) >>> segmentShift)];
+        this.indexer = new Thread(this::buildIndex, "tuava-pager-index-" + path.getFileName());
+        indexer.setDaemon(true);
+    }
+
+    public static PagedFile open(Path path) throws IOException {
+        return open(path, SEGMENT_SHIFT);
+    }
+
+    // Smaller segments let tests cross segment boundaries without gigabyte files
+    static PagedFile open(Path path, int segmentShift) throws IOException {
+        PagedFile file = new PagedFile(path, segmentShift);
+        file.indexer.start();
+        return file;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // Number of lines known so far; final once isIndexComplete()
+    public long lineCount() {
+        return indexedLines;
+    }
+
+    public boolean isIndexComplete() {
+        return indexComplete;
+    }
+
+    // Fraction of the file the index has covered, 0..1
+    public double indexProgress() {
+        return size == 0 ? 1.0 : (double) indexedBytes / size;
+    }
+
+    // Up to `count` lines starting at line `first`; fewer if the index has not reached them yet
+    public List<String> lines(long first, int count) {
+        long available = indexedLines;
+        if (first < 0 || first >= available || count <= 0) {
+            return List.of();
+        }
+        long entry = first / INDEX_STRIDE;
+        long offset = indexEntry(entry);
+        for (long skip = first - entry * INDEX_STRIDE; skip > 0; skip--) {
+            offset = nextLine(offset);
+        }
+        return read(offset, (int) Math.min(count, available - first));
+    }
+
+    // The last `count` lines, found by scanning backwards from the end of the file
+    public List<String> tail(int count) {
+        long start = size;
+        if (start > 0 && byteAt(start - 1) == '\n') {
+            start--;
+        }
+        for (int found = 0; found < count && start > 0; found++) {
+            start = lineStartBefore(start);
+            if (found < count - 1 && start > 0) {
+                start--;
+            }
+        }
+        return read(start, count);
+    }
+
+    // Up to `count` lines starting with the first line that begins at or after `byteOffset`;
+    // with a fraction of size() this jumps anywhere in the file before the index gets there
+    public List<String> linesFrom(long byteOffset, int count) {
+        long offset = Math.max(0, Math.min(byteOffset, size));
+        if (offset > 0 && byteAt(offset - 1) != '\n') {
+            offset = nextLine(offset);
+        }
+        return read(offset, count);
+    }
+
+    private List<String> read(long offset, int count) {
+        List<String> lines = new ArrayList<>(Math.max(0, count));
+        byte[] buffer = new byte[256];
+        while (lines.size() < count && offset < size) {
+            int length = 0;
+            long pos = offset;
+            while (pos < size) {
+                byte b = byteAt(pos);
+                if (b == '\n') {
+                    break;
+                }
+                if (length < MAX_LINE_BYTES) {
+                    if (length == buffer.length) {
+                        buffer = java.util.Arrays.copyOf(buffer, Math.min(MAX_LINE_BYTES, length * 2));
+                    }
+                    buffer[length++] = b;
+                } else {
+                    pos = nextLine(pos) - 1;
+                    break;
+                }
+                pos++;
+            }
+            if (length > 0 && buffer[length - 1] == '\r') {
+                length--;
+            }
+            lines.add(new String(buffer, 0, length, StandardCharsets.UTF_8));
+            offset = pos + 1;
+        }
+        return lines;
+    }
+
+    // Offset just after the next '\n' at or after `offset`, or size
+    private long nextLine(long offset) {
+        long pos = offset;
+        while (pos < size && byteAt(pos) != '\n') {
+            pos++;
+        }
+        return Math.min(size, pos + 1);
+    }
+
+    // Start of the line containing the byte just before `end`
+    private long lineStartBefore(long end) {
+        long pos = end;
+        while (pos > 0 && byteAt(pos - 1) != '\n') {
+            pos--;
+        }
+        return pos;
+    }
+
+    private byte byteAt(long pos) {
+        return segment((int) (pos >>> segmentShift)).get((int) (pos & (segmentSize - 1)));
+    }
+
+    private MappedByteBuffer segment(int n) {
+        MappedByteBuffer segment = segments[n];
+        if (segment == null) {
+            synchronized (segments) {
+                segment = segments[n];
+                if (segment == null) {
+                    long start = (long) n << segmentShift;
+                    try {
+                        segment = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                Math.min(segmentSize, size - start));
+                    } catch (IOException e) {
+                        throw new java.io.UncheckedIOException("Cannot map " + path, e);
+                    }
+                    segments[n] = segment;
+                }
+            }
+        }
+        return segment;
+    }
+
+    private long indexEntry(long k) {
+        return index[(int) (k >>> BLOCK_SHIFT)][(int) (k & (BLOCK_SIZE - 1))];
+    }
+
+    private void addIndexEntry(long k, long offset) {
+        int block = (int) (k >>> BLOCK_SHIFT);
+        long[][] blocks = index;
+        if (block == blocks.length) {
+            blocks = java.util.Arrays.copyOf(blocks, blocks.length * 2);
+        }
+        if (blocks[block] == null) {
+            blocks[block] = new long[BLOCK_SIZE];
+        }
+        blocks[block][(int) (k & (BLOCK_SIZE - 1))] = offset;
+        // Published by the volatile write of indexedLines that follows
+        index = blocks;
+    }
+
+    private void buildIndex() {
+        byte[] chunk = new byte[SCAN_CHUNK];
+        long lines = 0;
+        long pos = 0;
+        try {
+            if (size > 0) {
+                addIndexEntry(0, 0);
+            }
+            while (pos < size && !closed) {
+                MappedByteBuffer segment = segment((int) (pos >>> segmentShift));
+                int at = (int) (pos & (segmentSize - 1));
+                int n = Math.min(chunk.length, segment.limit() - at);
+                segment.get(at, chunk, 0, n);
+                for (int i = 0; i < n; i++) {
+                    if (chunk[i] == '\n') {
+                        lines++;
+                        long next = pos + i + 1;
+                        if (lines % INDEX_STRIDE == 0 && next < size) {
+                            addIndexEntry(lines / INDEX_STRIDE, next);
+                        }
+                    }
+                }
+                pos += n;
+                indexedBytes = pos;
+                indexedLines = lines;
+            }
+            if (!closed) {
+                if (size > 0 && byteAt(size - 1) != '\n') {
+                    // Last line without a terminator
+                    lines++;
+                }
+                indexedLines = lines;
+                indexComplete = true;
+            }
+        } catch (RuntimeException e) {
+            // Closed under us or unreadable; what is indexed so far stays usable
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+}
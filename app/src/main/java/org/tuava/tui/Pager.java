@@ -0,0 +1,136 @@
+package org.tuava.tui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// A viewport onto a PagedFile. Rendering reads only the visible lines, so its cost depends on the
+// height of the viewport, not on the size of the file. The model keeps the PagedFile and the
+// position; the element is rebuilt each view like any other.
+//
+//   Pager.of(file).top(model.topLine()).width(120).height(40).lineNumbers().build()
+public final class Pager implements Element {
+	private final PagedFile file;
+	private final long top;
+	private final Long byteOffset;
+	private final boolean end;
+	private final int width;
+	private final int height;
+	private final boolean lineNumbers;
+	private final boolean statusLine;
+
+	private Pager(Builder b) {
+		this.file = b.file;
+		this.top = b.top;
+		this.byteOffset = b.byteOffset;
+		this.end = b.end;
+		this.width = b.width;
+		this.height = b.height;
+		this.lineNumbers = b.lineNumbers;
+		this.statusLine = b.statusLine;
+	}
+
+	public static Builder of(PagedFile file) {
+		return new Builder(file);
+	}
+
+	@Override
+	public String render() {
+		int rows = Math.max(0, statusLine ? height - 1 : height);
+		List<String> lines;
+		if (end) {
+			lines = file.tail(rows);
+		} else if (byteOffset != null) {
+			lines = file.linesFrom(byteOffset, rows);
+		} else {
+			lines = file.lines(top, rows);
+		}
+		// Line numbers are only known where the index has them
+		boolean numbered = lineNumbers && !end && byteOffset == null;
+		int gutter = numbered ? Long.toString(top + rows).length() + 1 : 0;
+		List<String> out = new ArrayList<>(height);
+		for (int i = 0; i < rows; i++) {
+			String line = i < lines.size() ? sanitize(lines.get(i)) : "";
+			StringBuilder row = new StringBuilder();
+			if (numbered && i < lines.size()) {
+				row.append(Style.of().foreground(Style.Color.YELLOW)
+						.render(Layout.padLeft(Long.toString(top + i + 1), gutter - 1))).append(' ');
+			} else if (numbered) {
+				row.append(" ".repeat(gutter));
+			}
+			row.append(TextLayout.truncate(line, width - gutter, TextLayout.Ellipsis.NONE));
+			out.add(Layout.padRight(row.toString(), width));
+		}
+		if (statusLine) {
+			out.add(status());
+		}
+		return String.join("\n", out);
+	}
+
+	@Override
+	public int cost() {
+		return Math.max(1, height);
+	}
+
+	private String status() {
+		String position;
+		if (end) {
+			position = "end";
+		} else if (byteOffset != null) {
+			position = String.format("%.0f%%", file.size() == 0 ? 100.0 : 100.0 * byteOffset / file.size());
+		} else {
+			position = "line " + (top + 1);
+		}
+		String count = file.isIndexComplete() ? file.lineCount() + " lines"
+				: String.format("%d+ lines, indexing %.0f%%", file.lineCount(), file.indexProgress() * 100);
+		String text = " " + file.path().getFileName() + "  " + position + "  " + count;
+		return Style.of().background(Style.Color.WHITE).foreground(Style.Color.BLACK)
+				.render(Layout.padRight(TextLayout.truncate(text, width), width));
+	}
+
+	private static String sanitize(String line) {
+		// Sanitise control characters so file content cannot move the cursor or restyle the screen
+		StringBuilder sb = null;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c < 0x20 || c == 0x7f) {
+				if (sb == null) {
+					sb = new StringBuilder(line.length() + 8).append(line, 0, i);
+				}
+				sb.append(c == '\t' ? "    " : "?");
+			} else if (sb != null) {
+				sb.append(c);
+			}
+		}
+		return sb == null ? line : sb.toString();
+	}
+
+	public static final class Builder {
+		private final PagedFile file;
+		private long top = 0;
+		private Long byteOffset;
+		private boolean end = false;
+		private int width = 80;
+		private int height = 24;
+		private boolean lineNumbers = false;
+		private boolean statusLine = false;
+
+		private Builder(PagedFile file) {
+			this.file = Objects.requireNonNull(file);
+		}
+
+		// First visible line (0-based); lines the index has not reached yet render empty
+		public Builder top(long line) { this.top = Math.max(0, line); this.byteOffset = null; this.end = false; return this; }
+		// Start at the first line at or after this byte offset; works before indexing finishes
+		public Builder byteOffset(long offset) { this.byteOffset = Math.max(0, offset); this.end = false; return this; }
+		// Show the last lines of the file
+		public Builder end() { this.end = true; this.byteOffset = null; return this; }
+		public Builder width(int width) { this.width = Math.max(1, width); return this; }
+		public Builder height(int height) { this.height = Math.max(1, height); return this; }
+		public Builder lineNumbers() { this.lineNumbers = true; return this; }
+		// Last row shows the file name, position and indexing progress
+		public Builder statusLine() { this.statusLine = true; return this; }
+
+		public Pager build() { return new Pager(this); }
+	}
+}
@@ -0,0 +1,237 @@
+package org.tuava.tui;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+// Runs a local command for as long as the stream is active and delivers its output in batches of
+// lines. Each pipe has its own reader thread. While the program keeps up, every read becomes one
+// message; when this stream already has maxPending messages waiting for update, lines are held
+// back and merged into the next batch instead. Once maxBufferedBytes are held the reader stops
+// reading, the pipe fills and the command blocks on its own writes, so a command that prints
+// megabytes can neither flood the queue nor grow the heap.
+//
+//   Stream.process("build", "gradle", "build")
+//       .stdout(lines -> new Msg.Output(lines))
+//       .exit(code -> new Msg.Finished(code))
+//       .build()
+//
+// Stopping the stream destroys the command and its descendants; nothing is emitted after that.
+public final class ProcessStream<Msg> implements Stream<Msg> {
+    static final int CHUNK_SIZE = 64 * 1024;
+    static final int MAX_LINE_BYTES = 1024 * 1024;
+    private static final long BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long DESTROY_GRACE_MILLIS = 500;
+
+    private final String key;
+    private final List<String> command;
+    private final Path directory;
+    private final Function<List<String>, Msg> stdout;
+    private final Function<List<String>, Msg> stderr;
+    private final IntFunction<Msg> exit;
+    private final Function<IOException, Msg> failed;
+    private final int maxPending;
+    private final int maxBufferedBytes;
+
+    private ProcessStream(Builder<Msg> b) {
+        this.key = b.key;
+        this.command = List.copyOf(b.command);
+        this.directory = b.directory;
+        this.stdout = Objects.requireNonNull(b.stdout, "stdout mapper is required");
+        this.stderr = b.stderr;
+        this.exit = b.exit;
+        this.failed = b.failed;
+        this.maxPending = b.maxPending;
+        this.maxBufferedBytes = b.maxBufferedBytes;
+    }
+
+    public static <Msg> Builder<Msg> of(String key, String... command) {
+        return new Builder<>(key, List.of(command));
+    }
+
+    public static <Msg> Builder<Msg> of(String key, List<String> command) {
+        return new Builder<>(key, command);
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public AutoCloseable start(Consumer<Msg> emit, ScheduledExecutorService executor) {
+        return new Run(emit);
+    }
+
+    private final class Run implements AutoCloseable {
+        private final Consumer<Msg> emit;
+        private final Emitter<Msg> emitter;
+        private final Process process;
+        private final Thread out;
+        private final Thread err;
+        private volatile boolean closed = false;
+
+        Run(Consumer<Msg> emit) {
+            this.emit = emit;
+            // Without a program behind it (e.g. a test calling start directly) nothing is ever pending
+            this.emitter = emit instanceof Emitter<Msg> e ? e : null;
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .redirectInput(ProcessBuilder.Redirect.PIPE)
+                    .redirectErrorStream(stderr == null);
+            if (directory != null) {
+                builder.directory(directory.toFile());
+            }
+            Process started;
+            try {
+                started = builder.start();
+                started.getOutputStream().close();
+            } catch (IOException e) {
+                this.process = null;
+                this.out = null;
+                this.err = null;
+                if (failed != null) {
+                    emit.accept(failed.apply(e));
+                    return;
+                }
+                throw new java.io.UncheckedIOException("Cannot start " + command, e);
+            }
+            this.process = started;
+            this.err = stderr == null ? null
+                    : new Thread(() -> pump(process.getErrorStream(), stderr), "tuava-process-" + key + "-err");
+            this.out = new Thread(() -> {
+                pump(process.getInputStream(), stdout);
+                finish();
+            }, "tuava-process-" + key);
+            if (err != null) {
+                err.setDaemon(true);
+                err.start();
+            }
+            out.setDaemon(true);
+            out.start();
+        }
+
+        private void pump(InputStream in, Function<List<String>, Msg> map) {
+            LineBuffer splitter = new LineBuffer(MAX_LINE_BYTES);
+            byte[] buffer = new byte[CHUNK_SIZE];
+            List<String> held = new ArrayList<>();
+            long heldBytes = 0;
+            try {
+                int n;
+                while (!closed && (n = in.read(buffer)) >= 0) {
+                    held.addAll(splitter.split(buffer, n));
+                    heldBytes += n;
+                    // Deliver now if the program is keeping up; otherwise keep reading into the same
+                    // batch while there is output and room, and wait when there is neither
+                    while (!held.isEmpty() && !closed) {
+                        if (pending() < maxPending) {
+                            deliver(map, held);
+                            held = new ArrayList<>();
+                            heldBytes = 0;
+                            break;
+                        }
+                        if (heldBytes < maxBufferedBytes && in.available() > 0) {
+                            break;
+                        }
+                        LockSupport.parkNanos(BACKOFF_NANOS);
+                    }
+                }
+            } catch (IOException e) {
+                // Pipe closed by destroy()
+            }
+            String rest = splitter.flush();
+            if (rest != null) {
+                held.add(rest);
+            }
+            if (!held.isEmpty()) {
+                deliver(map, held);
+            }
+        }
+
+        // All output is delivered before the exit message
+        private void finish() {
+            try {
+                if (err != null) {
+                    err.join();
+                }
+                int code = process.waitFor();
+                if (exit != null && !closed) {
+                    emit.accept(exit.apply(code));
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        }
+
+        private int pending() {
+            return emitter == null ? 0 : emitter.pending();
+        }
+
+        private void deliver(Function<List<String>, Msg> map, List<String> lines) {
+            if (!closed) {
+                emit.accept(map.apply(lines));
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (process == null) {
+                return;
+            }
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+            try {
+                if (!process.waitFor(DESTROY_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    process.descendants().forEach(ProcessHandle::destroyForcibly);
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static final class Builder<Msg> {
+        private final String key;
+        private final List<String> command;
+        private Path directory;
+        private Function<List<String>, Msg> stdout;
+        private Function<List<String>, Msg> stderr;
+        private IntFunction<Msg> exit;
+        private Function<IOException, Msg> failed;
+        private int maxPending = 2;
+        private int maxBufferedBytes = 4 * 1024 * 1024;
+
+        private Builder(String key, List<String> command) {
+            this.key = Objects.requireNonNull(key);
+            if (command.isEmpty()) {
+                throw new IllegalArgumentException("Empty command");
+            }
+            this.command = command;
+        }
+
+        public Builder<Msg> directory(Path directory) { this.directory = directory; return this; }
+        // Batches of stdout lines; also stderr unless stderr() is set
+        public Builder<Msg> stdout(Function<List<String>, Msg> map) { this.stdout = map; return this; }
+        public Builder<Msg> stderr(Function<List<String>, Msg> map) { this.stderr = map; return this; }
+        // Sent once after all output, with the exit code
+        public Builder<Msg> exit(IntFunction<Msg> map) { this.exit = map; return this; }
+        // Sent instead of throwing when the command cannot be started
+        public Builder<Msg> failed(Function<IOException, Msg> map) { this.failed = map; return this; }
+        // Messages of this stream that may wait for update before output is held back
+        public Builder<Msg> maxPending(int messages) { this.maxPending = Math.max(1, messages); return this; }
+        // Output held back per pipe before reading stops and the command blocks
+        public Builder<Msg> maxBufferedBytes(int bytes) { this.maxBufferedBytes = Math.max(CHUNK_SIZE, bytes); return this; }
+
+        public ProcessStream<Msg> build() { return new ProcessStream<>(this); }
+    }
+}
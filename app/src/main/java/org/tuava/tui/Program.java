@@ -1,6 +1,9 @@
 package org.tuava.tui;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Optional;
 import java.util.List;
 import java.util.Map;
@@ -11,27 +14,142 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 public class Program<Msg> {
+    static final Duration DEFAULT_INLINE_FRAME_INTERVAL = Duration.ofMillis(50);
+    static final int DEFAULT_ANIMATION_FRAME_RATE = 30;
+    // How often a fullscreen program on the system terminal checks its size when there is no
+    // SIGWINCH to tell it; each check runs stty
+    private static final long LOCAL_SIZE_POLL_MILLIS = 1000;
+    // Key for the single shared view of models that do not override view(TerminalSize)
+    private static final Terminal.TerminalSize ANY_SIZE = new Terminal.TerminalSize(0, 0);
+    private static final ClassValue<Boolean> SIZE_AWARE = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return overrides(type, "view", Terminal.TerminalSize.class)
+                    || overrides(type, "element", Terminal.TerminalSize.class);
+        }
+    };
+
     private final Terminal terminal;
+    private final Renderer renderer;
+    private final long frameIntervalNanos;
+    private final AdaptiveFrameRate adaptiveFrameRate;
+    private final Duration probeTimeout;
+    private volatile Terminal.Capabilities capabilities = Terminal.Capabilities.NONE;
     private final ExecutorService executor;
     private final ScheduledExecutorService scheduler;
     private volatile boolean running = false;
     private final Thread shutdownHook;
     private volatile boolean cleanedUp = false;
-    private final BlockingQueue<Msg> messageQueue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Queued<Msg>> messageQueue = new LinkedBlockingQueue<>();
     private final java.util.function.Function<Event, Optional<Msg>> eventToMessage;
     private final java.util.function.Function<Model<Msg>, List<Stream<Msg>>> streamsForModel;
     private final Map<String, AutoCloseable> activeStreams = new ConcurrentHashMap<>();
+    private final List<String> printed = new ArrayList<>();
+    private final ProgramListener[] listeners;
+    private final ProgramMetrics metrics;
+    private final Event.KeyEvent overlayToggle;
+    private volatile boolean overlay = false;
+    private final Path recordPath;
+    private final Path replayPath;
+    private final Journal.Codec<Msg> journalCodec;
+    private final double replaySpeed;
+    private final Semaphore replayStep = new Semaphore(0);
+    private final java.util.Queue<Msg> replayPure = new ConcurrentLinkedQueue<>();
+    private final List<RemoteViewer> viewers = new CopyOnWriteArrayList<>();
+    // Views of cachedModel by output size, so outputs of equal size share one view() call
+    private final Map<Terminal.TerminalSize, String> viewCache = new java.util.HashMap<>();
+    // For element views: the tree by size (ANY_SIZE unless size-aware) and its painted screens
+    private final Map<Terminal.TerminalSize, Element> elementCache = new java.util.HashMap<>();
+    private final Map<Terminal.TerminalSize, ScreenBuffer> screenCache = new java.util.HashMap<>();
+    private Model<Msg> cachedModel;
+    // Asking the backend can mean running stty, so the size is read at startup and again only when
+    // the backend signals a resize or the terminal reports one; rendering uses the last one
+    private volatile Terminal.TerminalSize localSize;
+    private AutoCloseable resizeSignal;
+    private Journal.Writer journal;
+    private Thread replayThread;
     private Thread inputThread;
+    private Thread loopThread;
+    private final long animationIntervalNanos;
+    // The last frame had running animations, so views depend on time as well as on the model
+    private boolean animating = false;
+    // The frame being rendered; views are computed within it so animations read its time
+    private RenderContext frame;
+    private final Memo.Cache memos = new Memo.Cache();
+    private final java.util.concurrent.atomic.AtomicBoolean animationFrameScheduled =
+            new java.util.concurrent.atomic.AtomicBoolean();
+    private boolean dirty = false;
+    private long dirtySinceNanos;
+    private long lastFrameNanos;
+    // Set when frames are drawn on their own thread (Builder.pipelined())
+    private final RenderLoop renderLoop;
+
+    // `pending` is the emitting stream's count of unhandled messages, if it came from a stream
+    private record Queued<Msg>(Msg message, long enqueuedNanos, Journal.Source source, Event event,
+            AtomicInteger pending) {
+    }
+
+    // A model to draw with the lines printed above it since the last frame. `dirtySinceNanos` is
+    // when the oldest change it shows was queued, if `dirty`.
+    private record Frame<Msg>(Model<Msg> model, List<String> printed, boolean dirty, long dirtySinceNanos) {
+        // This frame replacing `older`, which was never drawn: its printed lines are kept
+        Frame<Msg> after(Frame<Msg> older) {
+            if (older == null) {
+                return this;
+            }
+            List<String> lines = new ArrayList<>(older.printed());
+            lines.addAll(printed);
+            return new Frame<>(model, lines, dirty || older.dirty(),
+                    older.dirty() ? older.dirtySinceNanos() : dirtySinceNanos);
+        }
+    }
 
     public Program(java.util.function.Function<Event, Optional<Msg>> eventToMessage,
             java.util.function.Function<Model<Msg>, List<Stream<Msg>>> streamsForModel) {
-        this.terminal = new Terminal();
+        this(new Builder<>(eventToMessage, streamsForModel));
+    }
+
+    private Program(Builder<Msg> builder) {
+        this.terminal = builder.backend != null ? new Terminal(builder.backend) : new Terminal();
+        if (builder.inlineLines > 0) {
+            this.renderer = new InlineRenderer(builder.inlineLines);
+            Duration interval = builder.frameInterval != null ? builder.frameInterval : DEFAULT_INLINE_FRAME_INTERVAL;
+            this.frameIntervalNanos = Math.max(0, interval.toNanos());
+        } else {
+            this.renderer = new FullscreenRenderer();
+            this.frameIntervalNanos = builder.frameInterval != null ? Math.max(0, builder.frameInterval.toNanos()) : 0;
+        }
+        this.adaptiveFrameRate = builder.adaptiveFrameRate ? new AdaptiveFrameRate() : null;
+        this.probeTimeout = builder.probeTimeout;
         this.executor = Executors.newCachedThreadPool();
+        this.metrics = new ProgramMetrics(messageQueue::size, activeStreams::size, executor, this::frameInterval);
+        List<ProgramListener> all = new ArrayList<>();
+        all.add(metrics);
+        if (adaptiveFrameRate != null) {
+            all.add(adaptiveFrameRate);
+        }
+        all.addAll(builder.listeners);
+        this.listeners = all.toArray(new ProgramListener[0]);
+        this.overlayToggle = builder.overlayToggle;
+        this.recordPath = builder.recordPath;
+        this.replayPath = builder.replayPath;
+        this.journalCodec = builder.journalCodec;
+        this.replaySpeed = builder.replaySpeed;
+        this.animationIntervalNanos = TimeUnit.SECONDS.toNanos(1) / builder.animationFrameRate;
+        this.renderLoop = builder.pipelined ? new RenderLoop() : null;
         this.scheduler = Executors.newScheduledThreadPool(2);
-        this.eventToMessage = eventToMessage;
-        this.streamsForModel = streamsForModel;
+        this.eventToMessage = builder.eventToMessage;
+        this.streamsForModel = builder.streamsForModel;
         this.shutdownHook = new Thread(() -> {
             try {
                 cleanup();
@@ -41,17 +159,44 @@ public class Program<Msg> {
         Runtime.getRuntime().addShutdownHook(this.shutdownHook);
     }
 
+    public static <Msg> Builder<Msg> of(java.util.function.Function<Event, Optional<Msg>> eventToMessage,
+            java.util.function.Function<Model<Msg>, List<Stream<Msg>>> streamsForModel) {
+        return new Builder<>(eventToMessage, streamsForModel);
+    }
+
     public void run(Model<Msg> initialModel) throws IOException {
+        if (recordPath != null) {
+            journal = Journal.record(recordPath);
+        }
         terminal.enterRawMode();
-        terminal.enterAlternateScreen();
-        terminal.clear();
-        terminal.hideCursor();
+        // Before the input reader starts, which would otherwise consume the answers
+        capabilities = terminal.probe(probeTimeout);
+        if (renderer instanceof FullscreenRenderer fullscreen) {
+            // REP is not in the answers; terminals new enough for synchronized output all have it
+            fullscreen.repeatCharacters(capabilities.synchronizedOutput());
+        }
+        terminal.print(renderer.enter());
+        localSize = terminal.getSize();
+        resizeSignal = terminal.backend().onResize(this::localSizeChanged);
+        if (resizeSignal == null && renderer instanceof FullscreenRenderer
+                && terminal.backend() instanceof SystemBackend) {
+            scheduler.scheduleWithFixedDelay(() -> localResized(terminal.getSize()), LOCAL_SIZE_POLL_MILLIS,
+                    LOCAL_SIZE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
 
         running = true;
+        synchronized (this) {
+            loopThread = Thread.currentThread();
+        }
         Model<Msg> currentModel = initialModel;
 
         // Initial render
-        render(currentModel);
+        if (renderLoop != null) {
+            renderLoop.start();
+            renderLoop.publish(new Frame<>(currentModel, List.of(), false, 0));
+        } else {
+            render(currentModel);
+        }
 
         // Process initial effect
         processEffect(initialModel.init());
@@ -67,8 +212,10 @@ public class Program<Msg> {
                         if (event == null) {
                             break;
                         }
-                        Optional<Msg> maybe = eventToMessage.apply(event);
-                        maybe.ifPresent(messageQueue::offer);
+                        if (event instanceof Event.ResizeEvent resize) {
+                            localResized(new Terminal.TerminalSize(resize.width(), resize.height()));
+                        }
+                        dispatch(event);
                     }
                 } catch (IOException ignored) {
                 }
@@ -76,25 +223,87 @@ public class Program<Msg> {
             inputThread.setDaemon(true);
             inputThread.start();
 
+            if (replayPath != null) {
+                replayThread = new Thread(this::replayJournal, "tuava-journal-replay");
+                replayThread.setDaemon(true);
+                replayThread.start();
+            }
+
             while (running) {
-                Msg msg;
+                Queued<Msg> queued;
                 try {
-                    msg = messageQueue.take();
+                    if (dirty) {
+                        // A frame is owed; wait for more messages only until it is due
+                        long wait = lastFrameNanos + frameInterval() - System.nanoTime();
+                        queued = wait > 0 ? messageQueue.poll(wait, TimeUnit.NANOSECONDS) : messageQueue.poll();
+                    } else {
+                        queued = messageQueue.take();
+                    }
                 } catch (InterruptedException ie) {
                     if (!running)
                         break;
                     continue;
                 }
-                Update<Msg> upd = currentModel.update(msg);
-                if (upd.model() != currentModel) {
-                    Model<Msg> previous = currentModel;
-                    currentModel = upd.model();
+                if (queued != null && queued.message() == null) {
+                    markDirty(queued.enqueuedNanos());
+                } else if (queued != null) {
+                    if (journal != null) {
+                        journalMessage(queued);
+                    }
+                    FlightEvents.Dispatch dispatch = new FlightEvents.Dispatch();
+                    dispatch.begin();
+                    long start = System.nanoTime();
+                    // Messages for a component go to it directly rather than through the parent
+                    Update<Msg> upd = Components.update(currentModel, queued.message());
+                    long end = System.nanoTime();
+                    dispatch.end();
+                    if (queued.pending() != null) {
+                        queued.pending().decrementAndGet();
+                    }
+                    if (dispatch.shouldCommit()) {
+                        dispatch.messageType = queued.message().getClass().getName();
+                        dispatch.queueWait = start - queued.enqueuedNanos();
+                        dispatch.modelChanged = upd.model() != currentModel;
+                        dispatch.commit();
+                    }
+                    for (ProgramListener listener : listeners) {
+                        listener.onMessage(queued.message(), start - queued.enqueuedNanos(), end - start);
+                    }
+                    if (upd.model() != currentModel) {
+                        Model<Msg> previous = currentModel;
+                        currentModel = upd.model();
+                        markDirty(queued.enqueuedNanos());
+                        diffStreams(previous, currentModel);
+                    }
+                    processEffect(upd.effect());
+                    if (replayPath != null) {
+                        replayStep.release();
+                    }
+                }
+                if (dirty && renderLoop != null) {
+                    // The render thread paces frames itself and draws whichever model is newest then
+                    publish(currentModel);
+                } else if (dirty && System.nanoTime() - lastFrameNanos >= frameInterval()) {
                     render(currentModel);
-                    diffStreams(previous, currentModel);
                 }
-                processEffect(upd.effect());
+            }
+            // Never leave the last state undrawn, e.g. the final tick of a progress bar
+            if (dirty && renderLoop != null) {
+                publish(currentModel);
+            } else if (dirty) {
+                render(currentModel);
+            }
+            if (renderLoop != null) {
+                renderLoop.finish();
             }
         } finally {
+            synchronized (this) {
+                loopThread = null;
+                Thread.interrupted();
+            }
+            if (renderLoop != null) {
+                renderLoop.finish();
+            }
             cleanup();
             try {
                 Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
@@ -104,41 +313,506 @@ public class Program<Msg> {
         }
     }
 
+    // Shows this program on another terminal as well, e.g. a session client. The viewer gets its own
+    // diffed frames and its input is treated like local input. Closing the handle detaches it.
+    public AutoCloseable attach(TerminalBackend backend) {
+        return attach(backend, "viewer", () -> {
+        });
+    }
+
+    RemoteViewer attach(TerminalBackend backend, String name, Runnable onDetach) {
+        RemoteViewer viewer = new RemoteViewer(backend, this::dispatch, this::requestRedraw, detached -> {
+            viewers.remove(detached);
+            onDetach.run();
+        }, name);
+        viewers.add(viewer);
+        viewer.start();
+        requestRedraw();
+        if (cleanedUp) {
+            viewer.close();
+        }
+        return viewer;
+    }
+
+    // What the local terminal supports, as probed when the program started
+    public Terminal.Capabilities capabilities() {
+        return capabilities;
+    }
+
+    public int viewers() {
+        return viewers.size();
+    }
+
+    // Input from the local terminal or an attached viewer
+    private void dispatch(Event event) {
+        for (ProgramListener listener : listeners) {
+            listener.onEvent(event);
+        }
+        if (event.equals(overlayToggle)) {
+            setDebugOverlay(!overlay);
+            return;
+        }
+        if (replayPath != null) {
+            // Live input would break determinism; it can only stop the replay
+            if (event instanceof Event.KeyEvent key && key.key() == Event.Key.CTRL_C) {
+                quit();
+            }
+            return;
+        }
+        Optional<Msg> maybe = eventToMessage.apply(event);
+        maybe.ifPresent(m -> enqueue(m, Journal.Source.INPUT, event));
+    }
+
+    public ProgramMetrics metrics() {
+        return metrics;
+    }
+
+    // Hits, misses and live entries of this program's Memo cache
+    public Memo.Stats memoStats() {
+        return memos.stats();
+    }
+
+    public void setDebugOverlay(boolean visible) {
+        overlay = visible;
+        requestRedraw();
+    }
+
+    private void requestRedraw() {
+        messageQueue.offer(new Queued<>(null, System.nanoTime(), null, null, null));
+    }
+
+    private void enqueue(Msg message, Journal.Source source) {
+        enqueue(message, source, null);
+    }
+
+    private void enqueue(Msg message, Journal.Source source, Event event) {
+        messageQueue.offer(new Queued<>(message, System.nanoTime(), source, event, null));
+    }
+
+    private Stream.Emitter<Msg> emitter() {
+        AtomicInteger pending = new AtomicInteger();
+        return new Stream.Emitter<>() {
+            @Override
+            public void accept(Msg message) {
+                pending.incrementAndGet();
+                messageQueue.offer(new Queued<>(message, System.nanoTime(), Journal.Source.STREAM, null, pending));
+            }
+
+            @Override
+            public int pending() {
+                return pending.get();
+            }
+        };
+    }
+
+    private void journalMessage(Queued<Msg> queued) {
+        try {
+            if (queued.source() == Journal.Source.INPUT) {
+                journal.event(queued.enqueuedNanos(), queued.event());
+            } else {
+                journal.message(queued.source(), queued.enqueuedNanos(), queued.message(), journalCodec);
+            }
+        } catch (IOException e) {
+            // A failing journal must not take the UI down; stop recording instead
+            closeJournal();
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ignored) {
+            }
+            journal = null;
+        }
+    }
+
+    // Feeds journaled messages back one at a time, waiting for each to be processed, so the
+    // update sequence is exactly the recorded one regardless of timing.
+    private void replayJournal() {
+        try (Journal.Reader reader = Journal.open(replayPath)) {
+            long start = System.nanoTime();
+            Journal.Entry entry;
+            while (running && (entry = reader.next()) != null) {
+                if (replaySpeed > 0) {
+                    long due = start + (long) (entry.offsetNanos() / replaySpeed);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+                Msg message;
+                Event event = null;
+                switch (entry.source()) {
+                    case INPUT -> {
+                        event = entry.event();
+                        message = eventToMessage.apply(event).orElse(null);
+                    }
+                    case PURE -> message = replayPure.poll();
+                    default -> message = entry.message(journalCodec);
+                }
+                if (message == null) {
+                    continue;
+                }
+                enqueue(message, entry.source(), event);
+                replayStep.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failed("Journal replay", e);
+        }
+        quit();
+    }
+
+    // Reports a failure of background work to the listeners
+    void failed(String what, Exception error) {
+        for (ProgramListener listener : listeners) {
+            listener.onFailure(what, error);
+        }
+    }
+
+    private void markDirty(long sinceNanos) {
+        if (!dirty) {
+            dirty = true;
+            dirtySinceNanos = sinceNanos;
+        }
+    }
+
+    private void publish(Model<Msg> model) {
+        List<String> lines = printed.isEmpty() ? List.of() : List.copyOf(printed);
+        printed.clear();
+        renderLoop.publish(new Frame<>(model, lines, true, dirtySinceNanos));
+        dirty = false;
+    }
+
     private void render(Model<Msg> model) {
-        terminal.clear();
-        terminal.moveCursor(1, 1);
-        String view = model.view().replace("\n", "\r\n");
-        terminal.print(view);
+        render(new Frame<>(model, printed, dirty, dirtySinceNanos));
+        printed.clear();
+        dirty = false;
+    }
+
+    // Runs on the update loop, or on the render thread when pipelined
+    private void render(Frame<Msg> next) {
+        Model<Msg> model = next.model();
+        FlightEvents.View viewEvent = new FlightEvents.View();
+        viewEvent.begin();
+        long start = System.nanoTime();
+        frame = RenderContext.frame(start, memos);
+        if (model != cachedModel || animating) {
+            viewCache.clear();
+            elementCache.clear();
+            screenCache.clear();
+            cachedModel = model;
+        }
+        boolean sized = SIZE_AWARE.get(model.getClass());
+        // Element trees are painted into a ScreenBuffer rather than parsed from text
+        boolean elements = model instanceof ElementModel;
+        String overlayText = overlay ? metrics.overlay() : null;
+        String overlayLines = overlayText != null ? "\n" + overlayText : "";
+        ScreenBuffer screen = null;
+        String view;
+        if (renderer instanceof FullscreenRenderer) {
+            // The renderer keeps the frame it is given to diff against, so it gets its own copy.
+            // String views are painted into one too, so every fullscreen frame is diffed by cell.
+            Terminal.TerminalSize size = localSize;
+            if (elements) {
+                screen = screenFor(model, size, sized).copy();
+                view = null;
+            } else {
+                view = viewFor(model, sized ? size : ANY_SIZE, false);
+                screen = new ScreenBuffer(size.width(), size.height());
+                screen.paint(0, 0, view);
+            }
+            if (overlayText != null) {
+                int rows = overlayText.split("\n", -1).length;
+                screen.paint(0, Math.max(0, screen.height() - rows), overlayText);
+            }
+        } else {
+            view = viewFor(model, sized ? localSize : ANY_SIZE, elements);
+        }
+        for (RemoteViewer viewer : viewers) {
+            String shared = elements ? screenFor(model, viewer.size(), sized).toString()
+                    : viewFor(model, sized ? viewer.size() : ANY_SIZE, false);
+            viewer.offer(shared + overlayLines);
+        }
+        animating = frame.frameRequested();
+        if (animating) {
+            scheduleAnimationFrame(start);
+        }
+        frame.endFrame();
+        long viewed = System.nanoTime();
+        viewEvent.end();
+        if (viewEvent.shouldCommit()) {
+            viewEvent.modelType = model.getClass().getName();
+            viewEvent.characters = view != null ? view.length() : screen.width() * screen.height();
+            viewEvent.commit();
+        }
+        String frame = screen != null ? ((FullscreenRenderer) renderer).frame(screen)
+                : ((InlineRenderer) renderer).frame(view + overlayLines, next.printed());
+        if (capabilities.synchronizedOutput() && !frame.isEmpty()) {
+            // The terminal shows the whole frame at once instead of painting it as it arrives
+            frame = Terminal.ANSI.BEGIN_SYNCHRONIZED_UPDATE + frame + Terminal.ANSI.END_SYNCHRONIZED_UPDATE;
+        }
+        long encoded = System.nanoTime();
+        long bytesBefore = terminal.bytesWritten();
+        FlightEvents.TerminalWrite write = new FlightEvents.TerminalWrite();
+        write.begin();
+        terminal.print(frame);
+        long end = System.nanoTime();
+        write.end();
+        if (write.shouldCommit()) {
+            write.bytes = terminal.bytesWritten() - bytesBefore;
+            write.commit();
+        }
+        long latency = next.dirty() ? end - next.dirtySinceNanos() : 0;
+        for (ProgramListener listener : listeners) {
+            listener.onFrame(viewed - start, encoded - viewed, end - encoded, terminal.bytesWritten() - bytesBefore,
+                    latency);
+        }
+        lastFrameNanos = end;
+    }
+
+    // The render thread of a pipelined program. The update loop hands over each new model through a
+    // single slot that the next one overwrites, so updates never wait for the terminal and a slow
+    // write only means the frames in between are skipped; the thread draws whatever is newest when
+    // it is ready for the next frame, at most once per frame interval.
+    private final class RenderLoop implements Runnable {
+        private final AtomicReference<Frame<Msg>> latest = new AtomicReference<>();
+        private volatile boolean open = true;
+        private volatile Throwable failure;
+        private Thread thread;
+
+        void start() {
+            thread = new Thread(this, "tuava-render");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void publish(Frame<Msg> frame) {
+            latest.accumulateAndGet(frame, (older, newer) -> newer.after(older));
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Frame<Msg> frame = latest.getAndSet(null);
+                    if (frame == null) {
+                        if (!open) {
+                            return;
+                        }
+                        LockSupport.park(this);
+                        continue;
+                    }
+                    long wait;
+                    while (open && (wait = lastFrameNanos + frameInterval() - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(this, wait);
+                    }
+                    render(newest(frame));
+                }
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                quit();
+            }
+        }
+
+        // Whatever arrived while waiting for the frame to be due replaces `frame`
+        private Frame<Msg> newest(Frame<Msg> frame) {
+            Frame<Msg> newer = latest.getAndSet(null);
+            return newer == null ? frame : newer.after(frame);
+        }
+
+        // Draws the last model published, stops the thread and rethrows what a view threw, if any.
+        // Called by the update loop once it has stopped.
+        void finish() {
+            if (thread == null) {
+                return;
+            }
+            open = false;
+            LockSupport.unpark(thread);
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    // quit() from another thread; the frame still has to be finished
+                    interrupted = true;
+                }
+            }
+            thread = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable e = failure;
+            failure = null;
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            } else if (e instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    // The configured interval, stretched while the terminal drains frames slower than that
+    private long frameInterval() {
+        return adaptiveFrameRate == null ? frameIntervalNanos
+                : Math.max(frameIntervalNanos, adaptiveFrameRate.intervalNanos());
+    }
+
+    // One redraw at a time: if frames take longer than the interval, the in-between ones are skipped
+    // and the next shows the animations wherever they are by then
+    private void scheduleAnimationFrame(long frameStart) {
+        if (animationFrameScheduled.compareAndSet(false, true)) {
+            long delay = Math.max(0, frameStart + animationIntervalNanos - System.nanoTime());
+            try {
+                scheduler.schedule(() -> {
+                    animationFrameScheduled.set(false);
+                    requestRedraw();
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (java.util.concurrent.RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    private String viewFor(Model<Msg> model, Terminal.TerminalSize size, boolean elements) {
+        String view = viewCache.get(size);
+        if (view == null) {
+            if (elements) {
+                Element element = elementFor(model, size);
+                view = RenderContext.within(frame.sized(size), element::render);
+            } else {
+                view = RenderContext.within(frame.sized(size), () -> size == ANY_SIZE ? model.view() : model.view(size));
+            }
+            viewCache.put(size, view);
+        }
+        return view;
+    }
+
+    private Element elementFor(Model<Msg> model, Terminal.TerminalSize size) {
+        Element element = elementCache.get(size);
+        if (element == null) {
+            ElementModel<Msg> tree = (ElementModel<Msg>) model;
+            element = RenderContext.within(frame.sized(size),
+                    () -> size == ANY_SIZE ? tree.element() : tree.element(size));
+            elementCache.put(size, element);
+        }
+        return element;
+    }
+
+    // The element view painted at one output size; a model that is not size-aware builds its tree
+    // once and has it painted at each size
+    private ScreenBuffer screenFor(Model<Msg> model, Terminal.TerminalSize size, boolean sized) {
+        ScreenBuffer screen = screenCache.get(size);
+        if (screen == null) {
+            ScreenBuffer painted = new ScreenBuffer(size.width(), size.height());
+            Terminal.TerminalSize treeSize = sized ? size : ANY_SIZE;
+            Element element = elementFor(model, treeSize);
+            RenderContext.within(frame.sized(treeSize), () -> element.paint(painted, 0, 0));
+            screen = painted;
+            screenCache.put(size, screen);
+        }
+        return screen;
+    }
+
+    private static boolean overrides(Class<?> type, String method, Class<?>... parameters) {
+        try {
+            Class<?> declaring = type.getMethod(method, parameters).getDeclaringClass();
+            return declaring != Model.class && declaring != ElementModel.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // From the backend's resize signal, which can arrive on any thread; the size is read on the
+    // scheduler
+    private void localSizeChanged() {
+        try {
+            scheduler.execute(() -> localResized(terminal.getSize()));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    // From a resize signal, the fallback poll or a resize report on the local terminal
+    private void localResized(Terminal.TerminalSize size) {
+        if (!size.equals(localSize)) {
+            localSize = size;
+            requestRedraw();
+        }
     }
 
     private void processEffect(Effect<Msg> effect) {
         switch (effect) {
             case Effect.None<Msg> none -> {
             }
-            case Effect.Pure<Msg> pure -> messageQueue.offer(pure.message());
+            case Effect.Pure<Msg> pure -> {
+                FlightEvents.effect("Pure", true);
+                if (replayPath != null) {
+                    // Held back until the journal says when it was processed
+                    replayPure.offer(pure.message());
+                } else {
+                    enqueue(pure.message(), Journal.Source.PURE);
+                }
+            }
             case Effect.Once<?, ?> o -> {
                 @SuppressWarnings("unchecked")
                 Effect.Once<Object, Msg> once = (Effect.Once<Object, Msg>) o;
+                if (replayPath != null) {
+                    // The result is in the journal
+                    return;
+                }
                 executor.submit(() -> {
+                    FlightEvents.EffectRun event = new FlightEvents.EffectRun();
+                    event.begin();
                     Object r = once.supplier().get();
                     Msg m = once.mapper().apply(r);
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.effectType = "Once";
+                        event.producedMessage = m != null;
+                        event.commit();
+                    }
                     if (m != null)
-                        messageQueue.offer(m);
+                        enqueue(m, Journal.Source.EFFECT);
                 });
             }
-            case Effect.FromFuture<Msg> fut -> fut.future().thenAccept(messageQueue::offer);
+            case Effect.FromFuture<Msg> fut -> {
+                if (replayPath == null) {
+                    fut.future().thenAccept(m -> {
+                        FlightEvents.effect("FromFuture", m != null);
+                        if (m != null)
+                            enqueue(m, Journal.Source.EFFECT);
+                    });
+                }
+            }
             case Effect.Batch<Msg> batch -> {
                 for (Effect<Msg> e : batch.effects()) {
                     processEffect(e);
                 }
             }
-            case Effect.Quit<Msg> q -> quit();
+            case Effect.Quit<Msg> q -> {
+                FlightEvents.effect("Quit", false);
+                quit();
+            }
+            case Effect.Print<Msg> print -> {
+                FlightEvents.effect("Print", false);
+                printed.add(print.text());
+                markDirty(System.nanoTime());
+            }
             default -> {
             }
         }
     }
 
     private void diffStreams(Model<Msg> previous, Model<Msg> current) {
+        if (replayPath != null) {
+            // Stream emissions are in the journal
+            return;
+        }
         List<Stream<Msg>> desired = streamsForModel.apply(current);
         HashSet<String> desiredKeys = new HashSet<>();
         for (Stream<Msg> s : desired) {
@@ -146,9 +820,11 @@ public class Program<Msg> {
             desiredKeys.add(key);
             if (!activeStreams.containsKey(key)) {
                 try {
-                    AutoCloseable handle = s.start(messageQueue::offer, scheduler);
+                    AutoCloseable handle = s.start(emitter(), scheduler);
                     activeStreams.put(key, handle);
-                } catch (Exception ignored) {
+                    FlightEvents.stream(key, "start", null);
+                } catch (Exception e) {
+                    FlightEvents.stream(key, "start", e);
                 }
             }
         }
@@ -156,7 +832,9 @@ public class Program<Msg> {
             if (!desiredKeys.contains(entry.getKey())) {
                 try {
                     entry.getValue().close();
-                } catch (Exception ignored) {
+                    FlightEvents.stream(entry.getKey(), "stop", null);
+                } catch (Exception e) {
+                    FlightEvents.stream(entry.getKey(), "stop", e);
                 }
                 activeStreams.remove(entry.getKey());
             }
@@ -165,6 +843,12 @@ public class Program<Msg> {
 
     public void quit() {
         running = false;
+        synchronized (this) {
+            if (loopThread != null && loopThread != Thread.currentThread()) {
+                // Wake the update loop if it is blocked waiting for a message
+                loopThread.interrupt();
+            }
+        }
     }
 
     private void cleanup() throws IOException {
@@ -173,13 +857,15 @@ public class Program<Msg> {
         }
         cleanedUp = true;
         try {
-            terminal.showCursor();
-            System.out.print(Terminal.ANSI.RESET);
-            System.out.println();
-            System.out.flush();
+            terminal.print(renderer.exit());
         } finally {
-            terminal.exitAlternateScreen();
             terminal.exitRawMode();
+            if (resizeSignal != null) {
+                try {
+                    resizeSignal.close();
+                } catch (Exception ignored) {
+                }
+            }
             executor.shutdown();
             if (scheduler != null) {
                 scheduler.shutdownNow();
@@ -193,10 +879,130 @@ public class Program<Msg> {
             for (var entry : activeStreams.entrySet()) {
                 try {
                     entry.getValue().close();
-                } catch (Exception ignored) {
+                    FlightEvents.stream(entry.getKey(), "stop", null);
+                } catch (Exception e) {
+                    FlightEvents.stream(entry.getKey(), "stop", e);
                 }
             }
             activeStreams.clear();
+            if (replayThread != null) {
+                replayThread.interrupt();
+            }
+            for (RemoteViewer viewer : viewers) {
+                viewer.close();
+            }
+            closeJournal();
+        }
+    }
+
+    public static final class Builder<Msg> {
+        private final java.util.function.Function<Event, Optional<Msg>> eventToMessage;
+        private final java.util.function.Function<Model<Msg>, List<Stream<Msg>>> streamsForModel;
+        private int inlineLines = 0;
+        private Duration frameInterval;
+        private TerminalBackend backend;
+        private final List<ProgramListener> listeners = new ArrayList<>();
+        private Event.KeyEvent overlayToggle;
+        private Path recordPath;
+        private Path replayPath;
+        private Journal.Codec<Msg> journalCodec;
+        private double replaySpeed = 1.0;
+        private int animationFrameRate = DEFAULT_ANIMATION_FRAME_RATE;
+        private boolean adaptiveFrameRate = true;
+        private Duration probeTimeout = Terminal.DEFAULT_PROBE_TIMEOUT;
+        private boolean pipelined = false;
+
+        private Builder(java.util.function.Function<Event, Optional<Msg>> eventToMessage,
+                java.util.function.Function<Model<Msg>, List<Stream<Msg>>> streamsForModel) {
+            this.eventToMessage = eventToMessage;
+            this.streamsForModel = streamsForModel;
+        }
+
+        // Render into the last `lines` rows of the normal screen instead of the alternate screen
+        public Builder<Msg> inline(int lines) {
+            this.inlineLines = Math.max(1, lines);
+            return this;
+        }
+
+        public Builder<Msg> frameInterval(Duration interval) {
+            this.frameInterval = java.util.Objects.requireNonNull(interval);
+            return this;
+        }
+
+        // Lower the frame rate while the terminal drains output slowly (on by default); when off,
+        // frames are drawn at the frame interval however long writes block
+        public Builder<Msg> adaptiveFrameRate(boolean enabled) {
+            this.adaptiveFrameRate = enabled;
+            return this;
+        }
+
+        // How long to wait for the terminal to answer capability queries at startup; zero skips probing
+        public Builder<Msg> probeTimeout(Duration timeout) {
+            this.probeTimeout = java.util.Objects.requireNonNull(timeout);
+            return this;
+        }
+
+        // Redraws per second while a Spinner, Tween or other FrameClock animation is running
+        public Builder<Msg> animationFrameRate(int framesPerSecond) {
+            if (framesPerSecond <= 0) {
+                throw new IllegalArgumentException("Animation frame rate must be positive: " + framesPerSecond);
+            }
+            this.animationFrameRate = framesPerSecond;
+            return this;
+        }
+
+        // Draw frames on a separate thread so that update never waits for the terminal. The view
+        // then runs on that thread, so models must be immutable (or at least not change once
+        // returned from update). Listeners get onFrame on the render thread.
+        public Builder<Msg> pipelined() {
+            this.pipelined = true;
+            return this;
+        }
+
+        public Builder<Msg> backend(TerminalBackend backend) {
+            this.backend = java.util.Objects.requireNonNull(backend);
+            return this;
+        }
+
+        public Builder<Msg> listener(ProgramListener listener) {
+            this.listeners.add(java.util.Objects.requireNonNull(listener));
+            return this;
+        }
+
+        // Key that shows/hides the metrics overlay; the key is not forwarded to the model
+        public Builder<Msg> debugOverlay(Event.KeyEvent toggle) {
+            this.overlayToggle = java.util.Objects.requireNonNull(toggle);
+            return this;
+        }
+
+        // Journal every processed message to `path`; the codec serializes stream and effect messages
+        public Builder<Msg> record(Path path, Journal.Codec<Msg> codec) {
+            this.recordPath = java.util.Objects.requireNonNull(path);
+            this.journalCodec = java.util.Objects.requireNonNull(codec);
+            return this;
+        }
+
+        // Drive the program from a journal instead of the terminal, streams and async effects
+        public Builder<Msg> replay(Path path, Journal.Codec<Msg> codec) {
+            this.replayPath = java.util.Objects.requireNonNull(path);
+            this.journalCodec = java.util.Objects.requireNonNull(codec);
+            return this;
+        }
+
+        // 1.0 replays with the recorded timing, 2.0 twice as fast, 0 as fast as possible
+        public Builder<Msg> replaySpeed(double speed) {
+            if (speed < 0 || Double.isNaN(speed)) {
+                throw new IllegalArgumentException("Replay speed must be >= 0: " + speed);
+            }
+            this.replaySpeed = speed;
+            return this;
+        }
+
+        public Program<Msg> build() {
+            if (recordPath != null && replayPath != null) {
+                throw new IllegalStateException("A program cannot record and replay at the same time");
+            }
+            return new Program<>(this);
         }
     }
 }
@@ -0,0 +1,21 @@
+package org.tuava.tui;
+
+// Callbacks from the Program runtime; all durations are in nanoseconds.
+public interface ProgramListener {
+    // Called on the input thread for every event read from the terminal
+    default void onEvent(Event event) {
+    }
+
+    default void onMessage(Object message, long queuedNanos, long updateNanos) {
+    }
+
+    // latencyNanos runs from when the oldest message shown in this frame was queued to the end of the write.
+    // Called on the render thread in a pipelined program, on the update loop otherwise.
+    default void onFrame(long viewNanos, long encodeNanos, long writeNanos, long bytes, long latencyNanos) {
+    }
+
+    // Called when background work of the runtime fails without stopping the program, e.g. a
+    // session connection that could not be accepted or a journal that could not be replayed
+    default void onFailure(String what, Exception error) {
+    }
+}
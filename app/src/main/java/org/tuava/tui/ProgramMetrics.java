@@ -0,0 +1,154 @@
+package org.tuava.tui;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+// Runtime metrics for a Program. Recording happens on the update loop without allocation;
+// snapshot() may be called from any thread and gives a slightly racy but consistent-enough view.
+public final class ProgramMetrics implements ProgramListener {
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private final IntSupplier queueDepth;
+    private final IntSupplier activeStreams;
+    private final ExecutorService effects;
+    private final LongSupplier frameInterval;
+
+    private final LatencyHistogram update = new LatencyHistogram();
+    private final LatencyHistogram view = new LatencyHistogram();
+    private final LatencyHistogram render = new LatencyHistogram();
+    private final LatencyHistogram frameLatency = new LatencyHistogram();
+    private final LatencyHistogram bytesPerFrame = new LatencyHistogram();
+
+    private volatile long messages = 0;
+    private volatile long frames = 0;
+    private volatile long bytesWritten = 0;
+    private volatile long windowStartNanos = System.nanoTime();
+    private volatile long windowStartMessages = 0;
+    private volatile double messagesPerSecond = 0;
+
+    ProgramMetrics(IntSupplier queueDepth, IntSupplier activeStreams, ExecutorService effects,
+            LongSupplier frameInterval) {
+        this.queueDepth = queueDepth;
+        this.activeStreams = activeStreams;
+        this.effects = effects;
+        this.frameInterval = frameInterval;
+    }
+
+    @Override
+    public void onMessage(Object message, long queuedNanos, long updateNanos) {
+        update.record(updateNanos);
+        messages++;
+        long now = System.nanoTime();
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            messagesPerSecond = (messages - windowStartMessages) * 1e9 / elapsed;
+            windowStartNanos = now;
+            windowStartMessages = messages;
+        }
+    }
+
+    @Override
+    public void onFrame(long viewNanos, long encodeNanos, long writeNanos, long bytes, long latencyNanos) {
+        view.record(viewNanos);
+        render.record(encodeNanos + writeNanos);
+        bytesPerFrame.record(bytes);
+        if (latencyNanos > 0) {
+            frameLatency.record(latencyNanos);
+        }
+        frames++;
+        bytesWritten += bytes;
+    }
+
+    public Snapshot snapshot() {
+        int active = 0;
+        int pool = 0;
+        int largest = 0;
+        if (effects instanceof ThreadPoolExecutor tpe) {
+            active = tpe.getActiveCount();
+            pool = tpe.getPoolSize();
+            largest = tpe.getLargestPoolSize();
+        }
+        // Let the rate decay once messages stop arriving instead of freezing at the last window
+        long elapsed = System.nanoTime() - windowStartNanos;
+        double rate = elapsed >= RATE_WINDOW_NANOS ? (messages - windowStartMessages) * 1e9 / elapsed
+                : messagesPerSecond;
+        return new Snapshot(messages, rate, queueDepth.getAsInt(), activeStreams.getAsInt(),
+                active, pool, largest, frames, bytesWritten, frameInterval.getAsLong(),
+                Percentiles.of(update), Percentiles.of(view), Percentiles.of(render),
+                Percentiles.of(frameLatency), Percentiles.of(bytesPerFrame));
+    }
+
+    public LatencyHistogram updateTimes() {
+        return update.copy();
+    }
+
+    public LatencyHistogram viewTimes() {
+        return view.copy();
+    }
+
+    public LatencyHistogram renderTimes() {
+        return render.copy();
+    }
+
+    public LatencyHistogram frameLatencies() {
+        return frameLatency.copy();
+    }
+
+    public LatencyHistogram bytesPerFrame() {
+        return bytesPerFrame.copy();
+    }
+
+    // Lines for the debug overlay
+    String overlay() {
+        Snapshot s = snapshot();
+        String timings = String.format("update %s/%s  view %s/%s  render %s/%s  latency %s/%s  (p50/p99)",
+                duration(s.update().p50()), duration(s.update().p99()),
+                duration(s.view().p50()), duration(s.view().p99()),
+                duration(s.render().p50()), duration(s.render().p99()),
+                duration(s.frameLatency().p50()), duration(s.frameLatency().p99()));
+        String counters = String.format(
+                "%.0f msg/s  queue %d  streams %d  effects %d/%d  %d B/frame  %d frames  interval %s",
+                s.messagesPerSecond(), s.queueDepth(), s.activeStreams(), s.effectThreadsActive(),
+                s.effectThreadsPool(), s.bytesPerFrame().p50(), s.frames(), duration(s.frameIntervalNanos()));
+        Style style = Style.of().foreground(Style.Color.BLACK).background(Style.Color.YELLOW);
+        return style.render(timings) + "\n" + style.render(counters);
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1fus", nanos / 1e3);
+        }
+        return String.format("%.1fms", nanos / 1e6);
+    }
+
+    public record Snapshot(
+            long messages,
+            double messagesPerSecond,
+            int queueDepth,
+            int activeStreams,
+            int effectThreadsActive,
+            int effectThreadsPool,
+            int effectThreadsLargest,
+            long frames,
+            long bytesWritten,
+            // Current minimum time between frames, raised when the terminal drains slowly
+            long frameIntervalNanos,
+            Percentiles update,
+            Percentiles view,
+            Percentiles render,
+            Percentiles frameLatency,
+            Percentiles bytesPerFrame) {
+    }
+
+    public record Percentiles(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+        static Percentiles of(LatencyHistogram h) {
+            return new Percentiles(h.count(), h.mean(), h.percentile(50), h.percentile(90), h.percentile(99),
+                    h.percentile(99.9), h.max());
+        }
+    }
+}
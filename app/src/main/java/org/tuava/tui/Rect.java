@@ -9,12 +9,16 @@ public final class Rect implements Element {
 	private final int height;
 	private final List<Element> children;
 	private final boolean boxed;
+	private final int cost;
 
 	private Rect(int width, int height, List<Element> children, boolean boxed) {
 		this.width = width;
 		this.height = height;
 		this.children = List.copyOf(children);
 		this.boxed = boxed;
+		long total = 1;
+		for (Element e : this.children) total += e.cost();
+		this.cost = (int) Math.min(Integer.MAX_VALUE, total);
 	}
 
 	public static Builder width(int width) {
@@ -40,6 +44,50 @@ public final class Rect implements Element {
 		return content;
 	}
 
+	@Override
+	public int paint(ScreenBuffer screen, int x, int y) {
+		if (boxed) {
+			return screen.paint(x, y, render());
+		}
+		int row = y;
+		for (Element e : children) {
+			row += e.paint(screen, x, row);
+		}
+		// No children still renders as one empty line
+		return Math.max(1, row - y);
+	}
+
+	// The children's lines one after another; null if one of them cannot be measured
+	int[] lineWidths() {
+		if (boxed) {
+			return null;
+		}
+		int[][] blocks = new int[children.size()][];
+		int lines = 0;
+		for (int i = 0; i < blocks.length; i++) {
+			blocks[i] = Flex.measure(children.get(i));
+			if (blocks[i] == null) {
+				return null;
+			}
+			lines += blocks[i].length;
+		}
+		if (lines == 0) {
+			return new int[] {0};
+		}
+		int[] out = new int[lines];
+		int i = 0;
+		for (int[] block : blocks) {
+			System.arraycopy(block, 0, out, i, block.length);
+			i += block.length;
+		}
+		return out;
+	}
+
+	@Override
+	public int cost() {
+		return cost;
+	}
+
 	public static final class Builder {
 		private Integer width;
 		private Integer height;
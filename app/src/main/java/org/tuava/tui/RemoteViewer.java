@@ -0,0 +1,106 @@
+package org.tuava.tui;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// An extra screen attached to a running Program. The update loop only hands it the latest view;
+// diffing against what this client already shows, encoding and the (possibly slow) write happen on
+// the viewer's own thread, and a client that falls behind simply skips to the newest frame.
+final class RemoteViewer implements AutoCloseable {
+    private final Terminal terminal;
+    private final FullscreenRenderer renderer = new FullscreenRenderer();
+    private final Consumer<Event> input;
+    private final Runnable redraw;
+    private final Consumer<RemoteViewer> onDetach;
+    private final AtomicReference<String> pending = new AtomicReference<>();
+    private final Thread writer;
+    private final Thread reader;
+    private volatile boolean resized = false;
+    private volatile boolean closed = false;
+
+    RemoteViewer(TerminalBackend backend, Consumer<Event> input, Runnable redraw, Consumer<RemoteViewer> onDetach,
+            String name) {
+        this.terminal = new Terminal(backend);
+        this.input = input;
+        this.redraw = redraw;
+        this.onDetach = onDetach;
+        this.writer = new Thread(this::writeLoop, "tuava-viewer-writer-" + name);
+        this.reader = new Thread(this::readLoop, "tuava-viewer-reader-" + name);
+        writer.setDaemon(true);
+        reader.setDaemon(true);
+    }
+
+    void start() {
+        writer.start();
+        reader.start();
+    }
+
+    Terminal.TerminalSize size() {
+        return terminal.getSize();
+    }
+
+    void offer(String view) {
+        pending.set(view);
+        LockSupport.unpark(writer);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            terminal.print(renderer.enter() + Terminal.ANSI.DISABLE_LINE_WRAP);
+            while (!closed && !terminal.checkError()) {
+                String view = pending.getAndSet(null);
+                if (view == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                if (resized) {
+                    resized = false;
+                    renderer.reset();
+                }
+                // Painted at this client's size, so it is clipped to it and diffed by cell
+                Terminal.TerminalSize size = terminal.getSize();
+                ScreenBuffer screen = new ScreenBuffer(size.width(), size.height());
+                screen.paint(0, 0, view);
+                terminal.print(renderer.frame(screen));
+            }
+            if (!terminal.checkError()) {
+                terminal.print(Terminal.ANSI.ENABLE_LINE_WRAP + renderer.exit());
+            }
+        } finally {
+            closed = true;
+            onDetach.accept(this);
+        }
+    }
+
+    private void readLoop() {
+        try {
+            terminal.enterRawMode();
+            Event event;
+            while (!closed && (event = terminal.readEvent()) != null) {
+                if (event instanceof Event.ResizeEvent resize) {
+                    // Sizes are per client, so they are not passed on to the shared model
+                    if (terminal.backend() instanceof SocketBackend socket) {
+                        socket.resize(resize.width(), resize.height());
+                    }
+                    resized = true;
+                    redraw.run();
+                    continue;
+                }
+                input.accept(event);
+            }
+        } catch (IOException ignored) {
+            // Disconnected
+        }
+        close();
+    }
+}
@@ -0,0 +1,110 @@
+package org.tuava.tui;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// The frame a thread is rendering for. The runtime binds one to its render thread for each view it
+// renders, so the frame time, frame requests and memo cache belong to that program and that view
+// alone: another Program rendering at the same time, or the update thread of a pipelined one, never
+// sees them. Work forked for the view (a parallel Flex) runs within the same context.
+final class RenderContext {
+    private static final ThreadLocal<RenderContext> CURRENT = new ThreadLocal<>();
+
+    private final long frameNanos;
+    private final Memo.Cache memos;
+    // The output size the view is rendered for, which Memo entries are kept apart by
+    private final Terminal.TerminalSize size;
+    private final RenderContext parent;
+    // Caches other than memos that the frame used (those of Components), shared by the whole frame
+    private final Set<Memo.Cache> caches;
+    private volatile boolean frameRequested;
+
+    private RenderContext(long frameNanos, Memo.Cache memos, Terminal.TerminalSize size, RenderContext parent,
+            Set<Memo.Cache> caches) {
+        this.frameNanos = frameNanos;
+        this.memos = memos;
+        this.size = size;
+        this.parent = parent;
+        this.caches = caches;
+    }
+
+    static RenderContext frame(long frameNanos, Memo.Cache memos) {
+        return new RenderContext(frameNanos, memos, null, null, ConcurrentHashMap.newKeySet());
+    }
+
+    // The context of the calling thread, or null outside rendering
+    static RenderContext current() {
+        return CURRENT.get();
+    }
+
+    // A context for part of the view that tells whether that part asked for another frame; its
+    // requests count for the whole view as well
+    RenderContext nested() {
+        return new RenderContext(frameNanos, memos, size, this, caches);
+    }
+
+    // The context of the view rendered for one output size within this frame
+    RenderContext sized(Terminal.TerminalSize size) {
+        return new RenderContext(frameNanos, memos, size, this, caches);
+    }
+
+    // The context the runtime bound for the whole frame, which every part of it descends from
+    RenderContext root() {
+        RenderContext c = this;
+        while (c.parent != null) {
+            c = c.parent;
+        }
+        return c;
+    }
+
+    long frameNanos() {
+        return frameNanos;
+    }
+
+    Memo.Cache memos() {
+        return memos;
+    }
+
+    // Notes a cache other than memos that this frame reads or fills, so endFrame() sweeps it too
+    void used(Memo.Cache cache) {
+        caches.add(cache);
+    }
+
+    // Called by the runtime once the frame is drawn: ends it for memos and every other cache it used
+    void endFrame() {
+        memos.endFrame();
+        for (Memo.Cache cache : caches) {
+            cache.endFrame();
+        }
+    }
+
+    Terminal.TerminalSize size() {
+        return size;
+    }
+
+    void requestFrame() {
+        for (RenderContext c = this; c != null && !c.frameRequested; c = c.parent) {
+            c.frameRequested = true;
+        }
+    }
+
+    boolean frameRequested() {
+        return frameRequested;
+    }
+
+    // Runs `work` with `context` bound to this thread; a null context runs it outside any frame
+    static <T> T within(RenderContext context, Supplier<T> work) {
+        RenderContext previous = CURRENT.get();
+        CURRENT.set(context);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
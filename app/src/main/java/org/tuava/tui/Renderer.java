@@ -0,0 +1,7 @@
+package org.tuava.tui;
+
+interface Renderer {
+    String enter();
+
+    String exit();
+}
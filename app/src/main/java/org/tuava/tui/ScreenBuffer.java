@@ -0,0 +1,217 @@
+package org.tuava.tui;
+
+import java.util.Arrays;
+
+// A grid of terminal cells that elements paint into. Each cell holds one glyph (a code point with
+// any combining marks) and the SGR sequences it is drawn with; a wide glyph occupies its cell and
+// the one after it, which is then empty. Everything outside the grid is clipped.
+//
+// The runtime paints Element views into a buffer of the terminal's size and diffs it against the
+// previous frame cell by cell, so styled text is never turned into a string and parsed back.
+public final class ScreenBuffer {
+    private static final String BLANK = " ";
+    // Second half of a wide glyph
+    private static final String CONTINUATION = "";
+
+    private final int width;
+    private final int height;
+    private final String[] glyphs;
+    private final String[] styles;
+
+    public ScreenBuffer(int width, int height) {
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        this.glyphs = new String[this.width * this.height];
+        this.styles = new String[this.width * this.height];
+        clear();
+    }
+
+    private ScreenBuffer(ScreenBuffer other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.glyphs = other.glyphs.clone();
+        this.styles = other.styles.clone();
+    }
+
+    public ScreenBuffer copy() {
+        return new ScreenBuffer(this);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public void clear() {
+        Arrays.fill(glyphs, BLANK);
+        Arrays.fill(styles, "");
+    }
+
+    // Writes plain text (no escape sequences) on row y from column x with the given style and
+    // returns the columns used. Only the first line is written.
+    public int put(int x, int y, String text, Style style) {
+        String sgr = style == null ? "" : style.sgr();
+        int[] column = {x};
+        TextLayout.cells(text, (line, glyph, w, ignored) -> {
+            if (line == 0) {
+                column[0] = set(column[0], y, glyph, w, sgr);
+            }
+        });
+        return column[0] - x;
+    }
+
+    // Paints rendered element output, escape sequences included, with its first line at row y and
+    // returns the number of lines it has
+    public int paint(int x, int y, String rendered) {
+        int[] at = {0, x};
+        return TextLayout.cells(rendered, (line, glyph, w, sgr) -> {
+            if (line != at[0]) {
+                at[0] = line;
+                at[1] = x;
+            }
+            at[1] = set(at[1], y + line, glyph, w, sgr);
+        });
+    }
+
+    // The same with line i starting at column x + offsets[i]; lines past the offsets are left out
+    int paint(int x, int y, String rendered, int[] offsets) {
+        int[] at = {0, x + (offsets.length > 0 ? offsets[0] : 0)};
+        return TextLayout.cells(rendered, (line, glyph, w, sgr) -> {
+            if (line >= offsets.length) {
+                return;
+            }
+            if (line != at[0]) {
+                at[0] = line;
+                at[1] = x + offsets[line];
+            }
+            at[1] = set(at[1], y + line, glyph, w, sgr);
+        });
+    }
+
+    // Copies all of `from` onto this buffer with its top-left corner at (x, y), clipped
+    void blit(ScreenBuffer from, int x, int y) {
+        for (int row = 0; row < from.height; row++) {
+            int start = row * from.width;
+            for (int col = 0; col < from.width; col++) {
+                String glyph = from.glyphs[start + col];
+                if (glyph.isEmpty() && col > 0) {
+                    // Written with the first half
+                    continue;
+                }
+                int w = 1;
+                while (!glyph.isEmpty() && col + w < from.width && from.glyphs[start + col + w].isEmpty()) {
+                    w++;
+                }
+                set(x + col, y + row, glyph.isEmpty() ? BLANK : glyph, w, from.styles[start + col]);
+            }
+        }
+    }
+
+    private int set(int x, int y, String glyph, int w, String sgr) {
+        if (w == 0) {
+            // A stray zero-width code point with nothing to attach to
+            return x;
+        }
+        if (y < 0 || y >= height || x + w <= 0 || x >= width) {
+            return x + w;
+        }
+        if (x < 0 || x + w > width) {
+            // A wide glyph cut by an edge shows as blank
+            for (int c = Math.max(0, x); c < Math.min(width, x + w); c++) {
+                write(c, y, BLANK, sgr);
+            }
+            return x + w;
+        }
+        write(x, y, glyph, sgr);
+        for (int c = x + 1; c < x + w; c++) {
+            write(c, y, CONTINUATION, sgr);
+        }
+        // Overwriting the first half of a wide glyph blanks the second
+        for (int c = x + w; c < width && glyphs[y * width + c].isEmpty(); c++) {
+            glyphs[y * width + c] = BLANK;
+        }
+        return x + w;
+    }
+
+    private void write(int x, int y, String glyph, String sgr) {
+        int i = y * width + x;
+        // Overwriting the second half of a wide glyph blanks the first
+        if (glyphs[i].isEmpty() && x > 0 && !glyph.isEmpty()) {
+            int c = x - 1;
+            while (c > 0 && glyphs[y * width + c].isEmpty()) {
+                c--;
+            }
+            glyphs[y * width + c] = BLANK;
+        }
+        glyphs[i] = glyph;
+        styles[i] = sgr;
+    }
+
+    // The glyph at a cell; empty for the second half of a wide glyph
+    String glyph(int x, int y) {
+        return glyphs[y * width + x];
+    }
+
+    // The SGR sequences a cell is drawn with; empty for default attributes
+    String style(int x, int y) {
+        return styles[y * width + x];
+    }
+
+    // A space with default attributes, which is what erasing leaves behind
+    boolean isBlank(int x, int y) {
+        int i = y * width + x;
+        return BLANK.equals(glyphs[i]) && styles[i].isEmpty();
+    }
+
+    public boolean rowEquals(int y, ScreenBuffer other) {
+        if (other == null || other.width != width || y >= other.height) {
+            return false;
+        }
+        int from = y * width;
+        return Arrays.equals(glyphs, from, from + width, other.glyphs, from, from + width)
+                && Arrays.equals(styles, from, from + width, other.styles, from, from + width);
+    }
+
+    // Row y as text for the terminal; trailing unstyled blanks are left out and an active style is
+    // reset at the end
+    public String row(int y) {
+        int from = y * width;
+        int end = from + width;
+        while (end > from && BLANK.equals(glyphs[end - 1]) && styles[end - 1].isEmpty()) {
+            end--;
+        }
+        StringBuilder sb = new StringBuilder(end - from + 16);
+        String current = "";
+        for (int i = from; i < end; i++) {
+            String sgr = styles[i];
+            if (!sgr.equals(current)) {
+                if (!current.isEmpty()) {
+                    sb.append(Terminal.ANSI.RESET);
+                }
+                sb.append(sgr);
+                current = sgr;
+            }
+            sb.append(glyphs[i]);
+        }
+        if (!current.isEmpty()) {
+            sb.append(Terminal.ANSI.RESET);
+        }
+        return sb.toString();
+    }
+
+    // All rows joined with '\n', the same shape as a String view
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < height; y++) {
+            if (y > 0) {
+                sb.append('\n');
+            }
+            sb.append(row(y));
+        }
+        return sb.toString();
+    }
+}
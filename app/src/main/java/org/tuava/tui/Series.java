@@ -0,0 +1,87 @@
+package org.tuava.tui;
+
+// A sequence of numbers for charts, read by position. NaN marks a gap and is skipped by the
+// aggregates. The range aggregates scan by default; implementations with summaries of their data
+// override them, which is what lets charts draw huge series at a cost set by their width.
+public interface Series {
+    int size();
+
+    double get(int index);
+
+    // Position of the smallest value in [from, to), or -1 if the range holds none
+    default int minIndex(int from, int to) {
+        int best = -1;
+        for (int i = from; i < to; i++) {
+            double v = get(i);
+            if (!Double.isNaN(v) && (best < 0 || v < get(best))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    default int maxIndex(int from, int to) {
+        int best = -1;
+        for (int i = from; i < to; i++) {
+            double v = get(i);
+            if (!Double.isNaN(v) && (best < 0 || v > get(best))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // Mean of the values in [from, to), or NaN if the range holds none
+    default double mean(int from, int to) {
+        double total = 0;
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            double v = get(i);
+            if (!Double.isNaN(v)) {
+                total += v;
+                n++;
+            }
+        }
+        return n == 0 ? Double.NaN : total / n;
+    }
+
+    // The array is used as it is, not copied, and must not change afterwards; its block summaries
+    // are built on first use and kept with the series, so wrap it once and keep the series
+    static Series of(double... values) {
+        return new Series() {
+            private BlockIndex index;
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public double get(int i) {
+                return values[i];
+            }
+
+            @Override
+            public int minIndex(int from, int to) {
+                return index().minIndex(from, to);
+            }
+
+            @Override
+            public int maxIndex(int from, int to) {
+                return index().maxIndex(from, to);
+            }
+
+            @Override
+            public double mean(int from, int to) {
+                return index().mean(from, to);
+            }
+
+            private synchronized BlockIndex index() {
+                if (index == null) {
+                    index = new BlockIndex(values);
+                }
+                return index;
+            }
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package org.tuava.tui;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+// Connects this terminal to a SessionServer: puts it in raw mode, forwards keys, reports its size
+// whenever it changes and copies frames to the screen. Ctrl+] detaches.
+//
+//   java -cp ... org.tuava.tui.SessionClient /tmp/monitor.sock
+//   java -cp ... org.tuava.tui.SessionClient localhost:7777
+public final class SessionClient {
+    private static final int DETACH = 0x1d;
+    private static final long SIZE_POLL_MILLIS = 500;
+
+    private final SocketChannel channel;
+    private final SystemBackend terminal = new SystemBackend();
+    private volatile boolean connected = true;
+
+    private SessionClient(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SessionClient <host:port | socket path>");
+            System.exit(2);
+        }
+        SocketAddress address = SessionServer.address(args[0]);
+        SocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+        channel.connect(address);
+        new SessionClient(channel).run();
+        System.exit(0);
+    }
+
+    private void run() throws IOException {
+        terminal.enterRawMode();
+        try {
+            Thread screen = new Thread(this::copyFrames, "tuava-client-screen");
+            screen.setDaemon(true);
+            screen.start();
+            Thread size = new Thread(this::watchSize, "tuava-client-size");
+            size.setDaemon(true);
+            size.start();
+            forwardKeys();
+        } finally {
+            connected = false;
+            channel.close();
+            terminal.exitRawMode();
+            // In case the server went away without restoring the screen
+            System.out.print(Terminal.ANSI.ENABLE_LINE_WRAP + Terminal.ANSI.SHOW_CURSOR + Terminal.ANSI.RESET
+                    + Terminal.ANSI.EXIT_ALTERNATE_SCREEN);
+            System.out.flush();
+        }
+    }
+
+    private void forwardKeys() throws IOException {
+        InputStream in = terminal.input();
+        byte[] buffer = new byte[256];
+        while (connected) {
+            int n = in.read(buffer);
+            if (n < 0) {
+                return;
+            }
+            for (int i = 0; i < n; i++) {
+                if ((buffer[i] & 0xff) == DETACH) {
+                    send(buffer, 0, i);
+                    return;
+                }
+            }
+            send(buffer, 0, n);
+        }
+    }
+
+    private void copyFrames() {
+        OutputStream out = new FileOutputStream(FileDescriptor.out);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try {
+            while (channel.read(buffer) >= 0) {
+                out.write(buffer.array(), 0, buffer.position());
+                out.flush();
+                buffer.clear();
+            }
+        } catch (IOException ignored) {
+        }
+        if (!connected) {
+            // Detached from this side; run() restores the terminal
+            return;
+        }
+        // The server ended the session; stdin is still blocked in forwardKeys, so leave from here
+        connected = false;
+        try {
+            terminal.exitRawMode();
+        } catch (IOException ignored) {
+        }
+        System.exit(0);
+    }
+
+    private void watchSize() {
+        Terminal.TerminalSize last = null;
+        try {
+            while (connected) {
+                Terminal.TerminalSize size = terminal.size();
+                if (!size.equals(last)) {
+                    byte[] report = String.format(Terminal.ANSI.REPORT_SIZE, size.height(), size.width())
+                            .getBytes(StandardCharsets.US_ASCII);
+                    send(report, 0, report.length);
+                    last = size;
+                }
+                Thread.sleep(SIZE_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Keys and size reports come from different threads; keep each write whole
+    private synchronized void send(byte[] bytes, int offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
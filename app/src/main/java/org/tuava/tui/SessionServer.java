@@ -0,0 +1,223 @@
+package org.tuava.tui;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Serves one running Program to any number of session clients over TCP or a Unix domain socket.
+// The program's model, streams and view are shared; each client only costs the diffing and
+// encoding of its own frames. Clients speak plain terminal bytes plus the xterm size report
+// `CSI 8 ; rows ; cols t`, so SessionClient (or anything that sends that report) can connect.
+//
+// There is no authentication: whoever can connect gets the program's keyboard. A Unix domain
+// socket is protected by its file permissions, and TCP is limited to loopback unless start() is
+// told otherwise.
+public final class SessionServer implements AutoCloseable {
+    private static final Terminal.TerminalSize DEFAULT_SIZE = new Terminal.TerminalSize(80, 24);
+    // File type bits of a unix:mode attribute, and the value for a socket
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFSOCK = 0140000;
+
+    private final Program<?> program;
+    private final ServerSocketChannel server;
+    private final Path socketFile;
+    // What the socket file this server created is identified by, so close() leaves other files alone
+    private final Object socketKey;
+    private final Map<SocketBackend, AutoCloseable> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Thread acceptor;
+    private volatile boolean closed = false;
+
+    private SessionServer(Program<?> program, ServerSocketChannel server, Path socketFile, Object socketKey) {
+        this.program = program;
+        this.server = server;
+        this.socketFile = socketFile;
+        this.socketKey = socketKey;
+        this.acceptor = new Thread(this::acceptLoop, "tuava-session-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    // Serves on a Unix domain socket or a loopback TCP address
+    public static SessionServer start(Program<?> program, SocketAddress address) throws IOException {
+        return start(program, address, false);
+    }
+
+    // With `allowRemote`, TCP may also be bound to other addresses, 0.0.0.0 included. Anyone who can
+    // reach the port then controls the program, so only use it on a trusted network or behind a tunnel.
+    public static SessionServer start(Program<?> program, SocketAddress address, boolean allowRemote)
+            throws IOException {
+        ServerSocketChannel server;
+        Path socketFile = null;
+        if (address instanceof UnixDomainSocketAddress unix) {
+            socketFile = unix.getPath();
+            removeStaleSocket(socketFile);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            InetAddress host = address instanceof InetSocketAddress inet ? inet.getAddress() : null;
+            if (!allowRemote && (host == null || !host.isLoopbackAddress())) {
+                throw new IOException("Refusing to serve on " + address
+                        + ": sessions are unauthenticated, so only loopback addresses are allowed");
+            }
+            server = ServerSocketChannel.open();
+            server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        }
+        Object socketKey = null;
+        try {
+            server.bind(address);
+            if (socketFile != null) {
+                socketKey = Files.readAttributes(socketFile, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+                        .fileKey();
+            }
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        SessionServer session = new SessionServer(program, server, socketFile, socketKey);
+        session.acceptor.start();
+        return session;
+    }
+
+    // A socket file left behind by a previous run would make bind fail. Anything else at the path
+    // is never deleted, nor is the socket of a server that still accepts connections.
+    private static void removeStaleSocket(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        if (!isSocket(path)) {
+            throw new IOException(path + " exists and is not a socket");
+        }
+        boolean listening;
+        try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+            listening = probe.isConnected();
+        } catch (IOException e) {
+            listening = false;
+        }
+        if (listening) {
+            throw new IOException(path + " is in use by another server");
+        }
+        Files.delete(path);
+    }
+
+    private static boolean isSocket(Path path) throws IOException {
+        try {
+            int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return (mode & S_IFMT) == S_IFSOCK;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // No unix attribute view: a socket is at least neither a file, a directory nor a link
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+        }
+    }
+
+    // "host:port" or ":port" for TCP, anything else is a Unix domain socket path
+    public static SocketAddress address(String spec) {
+        int colon = spec.lastIndexOf(':');
+        if (colon >= 0 && colon < spec.length() - 1 && spec.substring(colon + 1).chars().allMatch(Character::isDigit)) {
+            String host = colon == 0 ? "127.0.0.1" : spec.substring(0, colon);
+            return new InetSocketAddress(host, Integer.parseInt(spec.substring(colon + 1)));
+        }
+        return UnixDomainSocketAddress.of(spec);
+    }
+
+    public SocketAddress address() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    public int clients() {
+        return clients.size();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                program.failed("Session accept", e);
+                continue;
+            }
+            try {
+                if (socketFile == null) {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                }
+                SocketBackend backend = new SocketBackend(channel, DEFAULT_SIZE);
+                clients.put(backend, program.attach(backend, "client-" + ids.incrementAndGet(), () -> {
+                    clients.remove(backend);
+                    backend.close();
+                }));
+                if (!channel.isOpen()) {
+                    // Detached before it was registered
+                    clients.remove(backend);
+                } else if (closed) {
+                    // The server closed while this one was attaching, maybe after close() had
+                    // already detached the others
+                    detach(backend);
+                }
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // Whichever of close() and the accept loop gets here first detaches the client
+    private void detach(SocketBackend backend) {
+        AutoCloseable viewer = clients.remove(backend);
+        if (viewer != null) {
+            try {
+                viewer.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    // The socket file is still the one bind() created, not something put there since
+    private boolean ownsSocketFile() {
+        try {
+            if (!isSocket(socketFile)) {
+                return false;
+            }
+            Object key = Files.readAttributes(socketFile, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+                    .fileKey();
+            return socketKey == null || socketKey.equals(key);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Detaches every client (restoring their screens) and stops accepting new ones
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            server.close();
+        } finally {
+            for (SocketBackend backend : clients.keySet()) {
+                detach(backend);
+            }
+            if (socketFile != null && ownsSocketFile()) {
+                Files.deleteIfExists(socketFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.tuava.tui;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// Backend for a session client connected to a SessionServer. Reads and writes go straight to the
+// channel rather than through Channels.newInputStream/newOutputStream, whose blocking lock would
+// stall frame writes while the reader waits for keys.
+final class SocketBackend implements TerminalBackend {
+    private final SocketChannel channel;
+    private volatile Terminal.TerminalSize size;
+
+    SocketBackend(SocketChannel channel, Terminal.TerminalSize initialSize) {
+        this.channel = channel;
+        this.size = initialSize;
+    }
+
+    private final OutputStream output = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    };
+
+    private final InputStream input = new InputStream() {
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024).flip();
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int n = channel.read(buffer);
+                buffer.flip();
+                if (n < 0) {
+                    return -1;
+                }
+            }
+            return buffer.hasRemaining() ? buffer.get() & 0xff : read();
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    };
+
+    @Override
+    public OutputStream output() {
+        return output;
+    }
+
+    @Override
+    public InputStream input() {
+        return input;
+    }
+
+    @Override
+    public Terminal.TerminalSize size() {
+        return size;
+    }
+
+    void resize(int width, int height) {
+        size = new Terminal.TerminalSize(Math.max(1, width), Math.max(1, height));
+    }
+
+    // The client's own terminal is in raw mode; nothing to do on this side
+    @Override
+    public void enterRawMode() {
+    }
+
+    @Override
+    public void exitRawMode() {
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.tuava.tui;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// A bar per column showing a series at a glance. A series longer than the width is cut into one
+// bucket per column and each bar shows its bucket's maximum (or minimum or mean), taken from the
+// series' range aggregates, so a million points cost about as much as a few thousand.
+//
+// The series belongs in the model, created once with Series.of() or a TimeSeries snapshot, so its
+// summaries are built once rather than on every frame.
+//
+//   Sparkline.of(model.latency()).width(40).style(Style.of().foreground(Style.Color.GREEN)).build()
+public final class Sparkline implements Element {
+	private static final String[] BARS = {" ", "▁", "▂", "▃", "▄", "▅", "▆", "▇", "█"};
+
+	public enum Aggregate {
+		MAX,
+		MIN,
+		MEAN
+	}
+
+	private final Series series;
+	private final int width;
+	private final int height;
+	private final Double min;
+	private final Double max;
+	private final Aggregate aggregate;
+	private final Style style;
+
+	private Sparkline(Builder b) {
+		this.series = b.series;
+		this.width = b.width;
+		this.height = b.height;
+		this.min = b.min;
+		this.max = b.max;
+		this.aggregate = b.aggregate;
+		this.style = b.style;
+	}
+
+	public static Builder of(Series series) {
+		return new Builder(series);
+	}
+
+	@Override
+	public String render() {
+		double[] values = columns();
+		double low = min != null ? min : Arrays.stream(values).filter(v -> !Double.isNaN(v)).min().orElse(0);
+		double high = max != null ? max : Arrays.stream(values).filter(v -> !Double.isNaN(v)).max().orElse(0);
+		int levels = height * 8;
+		// Eighths of a cell each column is filled to; the smallest value still gets a sliver
+		int[] fill = new int[width];
+		for (int c = 0; c < width; c++) {
+			double v = c < values.length ? values[c] : Double.NaN;
+			if (Double.isNaN(v)) {
+				continue;
+			}
+			double t = high > low ? (Math.min(high, Math.max(low, v)) - low) / (high - low) : 0.5;
+			fill[c] = 1 + (int) Math.round(t * (levels - 1));
+		}
+		StringBuilder out = new StringBuilder();
+		for (int row = 0; row < height; row++) {
+			if (row > 0) {
+				out.append('\n');
+			}
+			int below = (height - 1 - row) * 8;
+			StringBuilder line = new StringBuilder(width);
+			for (int c = 0; c < width; c++) {
+				line.append(BARS[Math.max(0, Math.min(8, fill[c] - below))]);
+			}
+			out.append(style.render(line.toString()));
+		}
+		return out.toString();
+	}
+
+	// One value per column, left-aligned when the series is shorter than the width
+	private double[] columns() {
+		int n = series.size();
+		int columns = Math.min(width, n);
+		double[] values = new double[columns];
+		for (int c = 0; c < columns; c++) {
+			int from = (int) ((long) c * n / columns);
+			int to = (int) ((long) (c + 1) * n / columns);
+			values[c] = switch (aggregate) {
+				case MAX -> valueAt(series.maxIndex(from, to));
+				case MIN -> valueAt(series.minIndex(from, to));
+				case MEAN -> series.mean(from, to);
+			};
+		}
+		return values;
+	}
+
+	private double valueAt(int index) {
+		return index < 0 ? Double.NaN : series.get(index);
+	}
+
+	public static final class Builder {
+		private final Series series;
+		private int width = 40;
+		private int height = 1;
+		private Double min;
+		private Double max;
+		private Aggregate aggregate = Aggregate.MAX;
+		private Style style = Style.of();
+
+		private Builder(Series series) {
+			this.series = Objects.requireNonNull(series);
+		}
+
+		public Builder width(int width) { this.width = Math.max(1, width); return this; }
+		// Rows the bars span; each row adds eight levels
+		public Builder height(int height) { this.height = Math.max(1, height); return this; }
+		// Fixed bottom of the scale instead of the smallest value shown
+		public Builder min(double min) { this.min = min; return this; }
+		// Fixed top of the scale instead of the largest value shown
+		public Builder max(double max) { this.max = max; return this; }
+		// What a bar shows when it stands for several points
+		public Builder aggregate(Aggregate aggregate) { this.aggregate = Objects.requireNonNull(aggregate); return this; }
+		public Builder style(Style style) { this.style = Objects.requireNonNull(style); return this; }
+
+		public Sparkline build() { return new Sparkline(this); }
+	}
+}
@@ -0,0 +1,79 @@
+package org.tuava.tui;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+// An activity indicator driven by the frame clock. The frame shown is worked out from the time at
+// render, so a spinner needs no stream or messages; it keeps the runtime redrawing for as long as it
+// is part of the view.
+//
+//   Spinner.of().label("Building").build()
+public final class Spinner implements Element {
+	public static final List<String> DOTS = List.of("⠋", "⠙", "⠹", "⠸", "⠼", "⠴", "⠦", "⠧", "⠇", "⠏");
+	public static final List<String> LINE = List.of("-", "\\", "|", "/");
+	public static final List<String> ARC = List.of("◜", "◠", "◝", "◞", "◡", "◟");
+
+	private final List<String> frames;
+	private final long intervalNanos;
+	private final Style style;
+	private final String label;
+
+	private Spinner(Builder b) {
+		this.frames = b.frames;
+		this.intervalNanos = b.interval.toNanos();
+		this.style = b.style;
+		this.label = b.label;
+	}
+
+	public static Builder of() {
+		return new Builder();
+	}
+
+	@Override
+	public String render() {
+		FrameClock.requestFrame();
+		String frame = style.render(frames.get(Math.floorMod(FrameClock.now() / intervalNanos, frames.size())));
+		return label == null ? frame : frame + " " + label;
+	}
+
+	public static final class Builder {
+		private List<String> frames = DOTS;
+		private Duration interval = Duration.ofMillis(80);
+		private Style style = Style.of().foreground(Style.Color.CYAN);
+		private String label;
+
+		private Builder() {
+		}
+
+		public Builder frames(List<String> frames) {
+			if (frames.isEmpty()) {
+				throw new IllegalArgumentException("A spinner needs at least one frame");
+			}
+			this.frames = List.copyOf(frames);
+			return this;
+		}
+
+		public Builder interval(Duration interval) {
+			if (interval.isZero() || interval.isNegative()) {
+				throw new IllegalArgumentException("Spinner interval must be positive: " + interval);
+			}
+			this.interval = interval;
+			return this;
+		}
+
+		public Builder style(Style style) {
+			this.style = Objects.requireNonNull(style);
+			return this;
+		}
+
+		public Builder label(String label) {
+			this.label = label;
+			return this;
+		}
+
+		public Spinner build() {
+			return new Spinner(this);
+		}
+	}
+}
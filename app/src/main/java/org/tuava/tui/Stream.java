@@ -10,6 +10,44 @@ public interface Stream<Msg> {
 
     AutoCloseable start(Consumer<Msg> emit, java.util.concurrent.ScheduledExecutorService executor) throws Exception;
 
+    // What a Program passes to start(). pending() is the number of this stream's messages that are
+    // queued but not yet handled by update, so a fast producer can batch or pause instead of
+    // flooding the queue.
+    interface Emitter<Msg> extends Consumer<Msg> {
+        int pending();
+    }
+
+    // The same stream, under the same key, delivering its messages through `f`, e.g. to wrap a
+    // component's messages in the parent's. Backpressure still sees the program's pending count.
+    default <B> Stream<B> map(Function<? super Msg, ? extends B> f) {
+        Stream<Msg> source = this;
+        return new Stream<B>() {
+            @Override
+            public String key() {
+                return source.key();
+            }
+
+            @Override
+            public AutoCloseable start(Consumer<B> emit, java.util.concurrent.ScheduledExecutorService executor)
+                    throws Exception {
+                if (emit instanceof Emitter<B> emitter) {
+                    return source.start(new Emitter<Msg>() {
+                        @Override
+                        public void accept(Msg message) {
+                            emitter.accept(f.apply(message));
+                        }
+
+                        @Override
+                        public int pending() {
+                            return emitter.pending();
+                        }
+                    }, executor);
+                }
+                return source.start(message -> emit.accept(f.apply(message)), executor);
+            }
+        };
+    }
+
     static <Msg> Stream<Msg> interval(String key, Duration period, Supplier<Msg> supplier) {
         return new Stream<Msg>() {
             @Override
@@ -26,6 +64,41 @@ public interface Stream<Msg> {
         };
     }
 
+    // Follows a growing file like `tail -f`, starting at its current end. Each message carries
+    // the complete lines of one read chunk (up to 64 KiB), so bursts arrive as a few large batches.
+    // Rotation and truncation are followed. The stream runs on its own watcher thread; if reading
+    // fails it stops, and `failed`, when given, turns the error into a last message.
+    static <Msg> Stream<Msg> tail(String key, java.nio.file.Path path, Function<java.util.List<String>, Msg> batch) {
+        return tail(key, path, false, batch);
+    }
+
+    static <Msg> Stream<Msg> tail(String key, java.nio.file.Path path, boolean fromStart,
+            Function<java.util.List<String>, Msg> batch) {
+        return tail(key, path, fromStart, batch, null);
+    }
+
+    static <Msg> Stream<Msg> tail(String key, java.nio.file.Path path, boolean fromStart,
+            Function<java.util.List<String>, Msg> batch, Function<java.io.IOException, Msg> failed) {
+        return new Stream<Msg>() {
+            @Override
+            public String key() {
+                return key;
+            }
+
+            @Override
+            public AutoCloseable start(Consumer<Msg> emit, java.util.concurrent.ScheduledExecutorService executor)
+                    throws java.io.IOException {
+                return new FileTail<>(key, path, fromStart, batch, failed, emit);
+            }
+        };
+    }
+
+    // Runs a command and delivers its output in batches of lines, holding output back while the
+    // program is behind. See ProcessStream.
+    static <Msg> ProcessStream.Builder<Msg> process(String key, String... command) {
+        return ProcessStream.of(key, command);
+    }
+
     static <Msg> Stream<Msg> resize(String key, Function<Terminal.TerminalSize, Msg> map,
             Supplier<Terminal.TerminalSize> getSize) {
         return new Stream<Msg>() {
@@ -37,6 +37,11 @@ public record Style(
     }
 
     public String render(String text) {
+        return sgr() + text + Terminal.ANSI.RESET;
+    }
+
+    // The escape sequences that switch this style on; empty for the default style
+    public String sgr() {
         StringBuilder sb = new StringBuilder();
 
         if (foreground != Color.DEFAULT) {
@@ -58,9 +63,6 @@ public record Style(
             sb.append(Terminal.ANSI.REVERSE);
         }
 
-        sb.append(text);
-        sb.append(Terminal.ANSI.RESET);
-
         return sb.toString();
     }
 
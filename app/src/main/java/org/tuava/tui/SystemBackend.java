@@ -0,0 +1,138 @@
+package org.tuava.tui;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+public class SystemBackend implements TerminalBackend {
+
+    @Override
+    public OutputStream output() {
+        return System.out;
+    }
+
+    @Override
+    public InputStream input() {
+        return System.in;
+    }
+
+    // Queries would end up in a file or pipe unless both ends are the terminal
+    @Override
+    public boolean answersQueries() {
+        return System.console() != null;
+    }
+
+    @Override
+    public void enterRawMode() throws IOException {
+        // Check if we're running in a proper terminal
+        if (System.console() != null || isRunningInTerminal()) {
+            try {
+                // Enable raw mode using stty - wait for completion
+                ProcessBuilder pb = new ProcessBuilder("stty", "raw", "-echo", "min", "1", "time", "0");
+                pb.redirectInput(ProcessBuilder.Redirect.INHERIT);
+                pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+                pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+                Process process = pb.start();
+                int exitCode = process.waitFor();
+                if (exitCode == 0) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while setting raw mode", e);
+            } catch (Exception e) {
+                // Fall through to non-raw mode
+            }
+        }
+
+        // Fallback: simulate raw mode behavior without actual raw mode
+        System.err.println("Warning: Running in non-terminal mode. Some features may not work correctly.");
+    }
+
+    @Override
+    public void exitRawMode() throws IOException {
+        try {
+            // Only try to restore if we're in a real terminal
+            if (System.console() != null || isRunningInTerminal()) {
+                ProcessBuilder pb = new ProcessBuilder("stty", "sane");
+                pb.redirectInput(ProcessBuilder.Redirect.INHERIT);
+                pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+                pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+                Process process = pb.start();
+                process.waitFor();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while restoring terminal mode", e);
+        } catch (Exception e) {
+            // Ignore errors during cleanup
+        }
+    }
+
+    // SIGWINCH through sun.misc.Signal, looked up reflectively since it is not a supported API. Null
+    // where it is missing or the platform has no SIGWINCH (Windows).
+    @Override
+    public AutoCloseable onResize(Runnable listener) {
+        try {
+            Class<?> signalType = Class.forName("sun.misc.Signal");
+            Class<?> handlerType = Class.forName("sun.misc.SignalHandler");
+            Object signal = signalType.getConstructor(String.class).newInstance("WINCH");
+            Object handler = Proxy.newProxyInstance(handlerType.getClassLoader(), new Class<?>[] {handlerType},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("handle")) {
+                            listener.run();
+                            return null;
+                        }
+                        return method.invoke(listener, args);
+                    });
+            Method handle = signalType.getMethod("handle", signalType, handlerType);
+            Object previous = handle.invoke(null, signal, handler);
+            return () -> handle.invoke(null, signal, previous);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private boolean isRunningInTerminal() {
+        // Check if stdin is a TTY
+        try {
+            ProcessBuilder pb = new ProcessBuilder("test", "-t", "0");
+            Process process = pb.start();
+            int exitCode = process.waitFor();
+            return exitCode == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Terminal.TerminalSize size() {
+        try {
+            // stty reports on its stdin, so it has to be the real terminal
+            Process process = new ProcessBuilder("stty", "size")
+                    .redirectInput(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            process.waitFor();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line = reader.readLine();
+                if (line != null) {
+                    String[] parts = line.trim().split("\\s+");
+                    if (parts.length == 2) {
+                        int rows = Integer.parseInt(parts[0]);
+                        int cols = Integer.parseInt(parts[1]);
+                        return new Terminal.TerminalSize(cols, rows);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Fallback to default size
+        }
+        return new Terminal.TerminalSize(80, 24);
+    }
+}
@@ -0,0 +1,396 @@
+package org.tuava.tui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+// A scrolling table over any number of rows. Rendering touches only the rows that are visible, and
+// column widths come from the header plus a fixed sample of rows spread over the data, so the cost
+// of a frame depends on the height of the table and the sample size, never on the row count.
+//
+// Sorting does not move rows: sortIndex() returns a permutation of row numbers that the model keeps
+// and hands back through order(), so a 500k-row table sorts once per click instead of per frame.
+//
+//   Table.of(List.of("PID", "Name", "CPU"), data).order(model.sorted()).top(model.top())
+//           .selected(model.cursor()).width(120).height(40).build()
+public final class Table implements Element {
+	public static final int DEFAULT_SAMPLE_SIZE = 256;
+	private static final String GAP = "  ";
+	private static final Style HEADER = Style.of().withBold().withUnderline();
+	private static final Style SELECTED = Style.of().withReverse();
+	private static final int INSERTION_RUN = 32;
+
+	// The rows of a table. Cells are read on demand, so the data can stay in whatever form the
+	// model already has it.
+	public interface Data {
+		int rowCount();
+
+		String cell(int row, int column);
+	}
+
+	private final List<String> columns;
+	private final Data data;
+	private final int[] order;
+	private final int top;
+	private final int selected;
+	private final int width;
+	private final int height;
+	private final int sampleSize;
+	private final int[] columnWidths;
+	private final int sortColumn;
+	private final boolean descending;
+
+	private Table(Builder b) {
+		this.columns = b.columns;
+		this.data = b.data;
+		this.order = b.order;
+		this.top = b.top;
+		this.selected = b.selected;
+		this.width = b.width;
+		this.height = b.height;
+		this.sampleSize = b.sampleSize;
+		this.columnWidths = b.columnWidths;
+		this.sortColumn = b.sortColumn;
+		this.descending = b.descending;
+	}
+
+	public static Builder of(List<String> columns, Data data) {
+		return new Builder(columns, data);
+	}
+
+	public static Builder of(List<String> columns, List<? extends List<String>> rows) {
+		Objects.requireNonNull(rows);
+		return new Builder(columns, new Data() {
+			@Override
+			public int rowCount() {
+				return rows.size();
+			}
+
+			@Override
+			public String cell(int row, int column) {
+				List<String> cells = rows.get(row);
+				return column < cells.size() ? cells.get(column) : "";
+			}
+		});
+	}
+
+	@Override
+	public String render() {
+		List<String> out = new ArrayList<>(height);
+		draw((line, text, style) -> out.add(style == null ? text : style.render(text)));
+		return String.join("\n", out);
+	}
+
+	@Override
+	public int paint(ScreenBuffer screen, int x, int y) {
+		// Cell text is sanitized, so lines go straight into the screen without parsing
+		draw((line, text, style) -> screen.put(x, y + line, text, style));
+		return height;
+	}
+
+	// Every line is exactly as wide as the table
+	int[] lineWidths() {
+		int[] widths = new int[Math.max(1, height)];
+		Arrays.fill(widths, Math.max(0, width));
+		return widths;
+	}
+
+	@Override
+	public int cost() {
+		return Math.max(1, height * Math.max(1, columns.size()) / 8);
+	}
+
+	private interface Sink {
+		void line(int line, String text, Style style);
+	}
+
+	// Both render() and paint() lay the table out through this, one line at a time
+	private void draw(Sink sink) {
+		int rows = order != null ? order.length : data.rowCount();
+		int visible = Math.max(0, height - 1);
+		int first = firstVisible(rows, visible);
+		int[] widths = fit(columnWidths != null ? columnWidths : measure(first, Math.min(rows, first + visible)));
+		StringBuilder header = new StringBuilder();
+		for (int c = 0; c < columns.size(); c++) {
+			if (c > 0) {
+				header.append(GAP);
+			}
+			String name = columns.get(c);
+			if (c == sortColumn) {
+				name = name + (descending ? " ▼" : " ▲");
+			}
+			header.append(cell(name, widths[c]));
+		}
+		sink.line(0, fill(header), HEADER);
+		for (int i = 0; i < visible; i++) {
+			int line = i + 1;
+			int r = first + i;
+			if (r >= rows) {
+				sink.line(line, " ".repeat(width), null);
+				continue;
+			}
+			int row = order != null ? order[r] : r;
+			StringBuilder text = new StringBuilder();
+			for (int c = 0; c < columns.size(); c++) {
+				if (c > 0) {
+					text.append(GAP);
+				}
+				text.append(cell(data.cell(row, c), widths[c]));
+			}
+			sink.line(line, fill(text), r == selected ? SELECTED : null);
+		}
+	}
+
+	// The first row shown: `top`, moved just enough to keep the selection in view
+	private int firstVisible(int rows, int visible) {
+		int first = top;
+		if (selected >= 0 && visible > 0) {
+			if (selected < first) {
+				first = selected;
+			} else if (selected >= first + visible) {
+				first = selected - visible + 1;
+			}
+		}
+		return Math.max(0, Math.min(first, rows - visible));
+	}
+
+	// The widest header or cell in each column over a sample: the visible rows, which are rendered
+	// anyway, plus sampleSize rows spread evenly over the whole table so widths stay steady while
+	// scrolling. Wider cells that were not sampled are truncated.
+	private int[] measure(int from, int to) {
+		int[] widths = new int[columns.size()];
+		for (int c = 0; c < widths.length; c++) {
+			widths[c] = TextLayout.width(columns.get(c)) + (c == sortColumn ? 2 : 0);
+		}
+		int rows = data.rowCount();
+		int step = Math.max(1, rows / Math.max(1, sampleSize));
+		for (int row = 0; row < rows; row += step) {
+			measureRow(widths, row);
+		}
+		for (int r = from; r < to; r++) {
+			measureRow(widths, order != null ? order[r] : r);
+		}
+		return widths;
+	}
+
+	private void measureRow(int[] widths, int row) {
+		for (int c = 0; c < widths.length; c++) {
+			widths[c] = Math.max(widths[c], TextLayout.width(data.cell(row, c)));
+		}
+	}
+
+	// Shrinks the widest columns until everything fits in the table's width
+	private int[] fit(int[] natural) {
+		int[] widths = Arrays.copyOf(natural, columns.size());
+		int available = width - GAP.length() * Math.max(0, widths.length - 1);
+		if (Arrays.stream(widths).sum() <= available) {
+			return widths;
+		}
+		// The largest cap that still fits, found by bisection
+		int low = 1;
+		int high = Arrays.stream(widths).max().orElse(1);
+		while (low < high) {
+			int cap = (low + high + 1) / 2;
+			int total = 0;
+			for (int w : widths) {
+				total += Math.min(w, cap);
+			}
+			if (total <= available) {
+				low = cap;
+			} else {
+				high = cap - 1;
+			}
+		}
+		for (int c = 0; c < widths.length; c++) {
+			widths[c] = Math.min(widths[c], low);
+		}
+		return widths;
+	}
+
+	// A line exactly as wide as the table, even when the columns could not be made to fit
+	private String fill(CharSequence line) {
+		return Layout.padRight(TextLayout.truncate(line.toString(), width, TextLayout.Ellipsis.NONE), width);
+	}
+
+	private static String cell(String text, int width) {
+		String safe = sanitize(text == null ? "" : text);
+		return Layout.padRight(TextLayout.truncate(safe, width), width);
+	}
+
+	// Cell content cannot move the cursor or restyle the screen
+	private static String sanitize(String text) {
+		StringBuilder sb = null;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c < 0x20 || c == 0x7f) {
+				if (sb == null) {
+					sb = new StringBuilder(text.length()).append(text, 0, i);
+				}
+				sb.append(c == '\t' ? ' ' : '?');
+			} else if (sb != null) {
+				sb.append(c);
+			}
+		}
+		return sb == null ? text : sb.toString();
+	}
+
+	// Row numbers in the order of `column`. Numbers are compared as numbers when every non-empty
+	// cell in the column is one, everything else as text ignoring case; empty cells go last and rows
+	// with equal keys keep their order. Keys are extracted once, so comparisons never call back
+	// into the data.
+	public static int[] sortIndex(Data data, int column, boolean descending) {
+		int rows = data.rowCount();
+		String[] text = new String[rows];
+		double[] numbers = new double[rows];
+		boolean numeric = true;
+		for (int row = 0; row < rows; row++) {
+			String cell = data.cell(row, column);
+			text[row] = cell == null ? "" : cell;
+			if (numeric) {
+				double value = number(text[row]);
+				numeric = !Double.isNaN(value) || text[row].isBlank();
+				// NaN sorts after every number, in either direction
+				numbers[row] = descending ? -value : value;
+			}
+		}
+		if (numeric) {
+			return sort(rows, (a, b) -> Double.compare(numbers[a], numbers[b]));
+		}
+		int sign = descending ? -1 : 1;
+		for (int row = 0; row < rows; row++) {
+			text[row] = text[row].toLowerCase(Locale.ROOT);
+		}
+		return sort(rows, (a, b) -> {
+			boolean emptyA = text[a].isEmpty();
+			boolean emptyB = text[b].isEmpty();
+			if (emptyA || emptyB) {
+				return Boolean.compare(emptyA, emptyB);
+			}
+			return sign * text[a].compareTo(text[b]);
+		});
+	}
+
+	public static int[] sortIndex(Data data, int column, Comparator<? super String> order) {
+		int rows = data.rowCount();
+		String[] keys = new String[rows];
+		for (int row = 0; row < rows; row++) {
+			keys[row] = data.cell(row, column);
+		}
+		return sort(rows, (a, b) -> order.compare(keys[a], keys[b]));
+	}
+
+	private interface RowComparator {
+		int compare(int a, int b);
+	}
+
+	// Stable merge sort of 0..rows-1 on primitive ints; no boxing and no row objects moved. Short
+	// runs are insertion sorted first, then merged back and forth between two arrays.
+	private static int[] sort(int rows, RowComparator comparator) {
+		int[] index = new int[rows];
+		for (int i = 0; i < rows; i++) {
+			index[i] = i;
+		}
+		for (int from = 0; from < rows; from += INSERTION_RUN) {
+			int to = Math.min(from + INSERTION_RUN, rows);
+			for (int i = from + 1; i < to; i++) {
+				int row = index[i];
+				int j = i - 1;
+				while (j >= from && comparator.compare(index[j], row) > 0) {
+					index[j + 1] = index[j];
+					j--;
+				}
+				index[j + 1] = row;
+			}
+		}
+		int[] source = index;
+		int[] target = new int[rows];
+		for (int run = INSERTION_RUN; run < rows; run *= 2) {
+			for (int from = 0; from < rows; from += 2 * run) {
+				int mid = Math.min(from + run, rows);
+				int to = Math.min(from + 2 * run, rows);
+				if (mid == to || comparator.compare(source[mid - 1], source[mid]) <= 0) {
+					// Already in order
+					System.arraycopy(source, from, target, from, to - from);
+					continue;
+				}
+				int i = from;
+				int j = mid;
+				int k = from;
+				while (i < mid && j < to) {
+					target[k++] = comparator.compare(source[j], source[i]) < 0 ? source[j++] : source[i++];
+				}
+				System.arraycopy(source, i, target, k, mid - i);
+				System.arraycopy(source, j, target, k + mid - i, to - j);
+			}
+			int[] swap = source;
+			source = target;
+			target = swap;
+		}
+		return source;
+	}
+
+	// The value of a plain number such as "42", "-3.5" or "1,024", or NaN
+	private static double number(String text) {
+		String s = text.strip();
+		if (s.isEmpty()) {
+			return Double.NaN;
+		}
+		boolean digit = false;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digit = true;
+			} else if (c != '.' && c != ',' && c != '-' && c != '+' && c != 'e' && c != 'E') {
+				return Double.NaN;
+			}
+		}
+		if (!digit) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(s.indexOf(',') >= 0 ? s.replace(",", "") : s);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	public static final class Builder {
+		private final List<String> columns;
+		private final Data data;
+		private int[] order;
+		private int top = 0;
+		private int selected = -1;
+		private int width = 80;
+		private int height = 24;
+		private int sampleSize = DEFAULT_SAMPLE_SIZE;
+		private int[] columnWidths;
+		private int sortColumn = -1;
+		private boolean descending = false;
+
+		private Builder(List<String> columns, Data data) {
+			this.columns = List.copyOf(columns);
+			this.data = Objects.requireNonNull(data);
+		}
+
+		// Display order as row numbers, e.g. from sortIndex(); only these rows are shown
+		public Builder order(int[] order) { this.order = order; return this; }
+		// First visible position in display order
+		public Builder top(int top) { this.top = Math.max(0, top); return this; }
+		// Highlighted position in display order; the table scrolls to keep it visible
+		public Builder selected(int selected) { this.selected = selected; return this; }
+		public Builder width(int width) { this.width = Math.max(1, width); return this; }
+		// Rows including the header
+		public Builder height(int height) { this.height = Math.max(1, height); return this; }
+		// Rows sampled to size the columns
+		public Builder sampleSize(int rows) { this.sampleSize = Math.max(1, rows); return this; }
+		// Fixed column widths instead of sampling
+		public Builder columnWidths(int... widths) { this.columnWidths = widths.clone(); return this; }
+		// Marks the header of the column the order is sorted by
+		public Builder sortedBy(int column, boolean descending) { this.sortColumn = column; this.descending = descending; return this; }
+
+		public Table build() { return new Table(this); }
+	}
+}
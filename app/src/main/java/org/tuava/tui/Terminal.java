@@ -2,84 +2,59 @@ package org.tuava.tui;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Terminal {
+    static final Duration DEFAULT_PROBE_TIMEOUT = Duration.ofMillis(200);
+    // Most input that can arrive while probing; anything that is not an answer is handed back
+    private static final int PROBE_BUFFER = 4096;
+    private static final Pattern PRIMARY_ATTRIBUTES = Pattern.compile("\u001b\\[\\?[0-9;]*c");
+    private static final Pattern MODE_REPORT = Pattern.compile("\u001b\\[\\?([0-9]+);([0-9])\\$y");
+    private static final Pattern KITTY_FLAGS = Pattern.compile("\u001b\\[\\?[0-9]*u");
+    // The process's own terminal is probed once, however many programs run on it
+    private static volatile Capabilities systemCapabilities;
+
+    private final TerminalBackend backend;
+    private final CountingOutputStream counter;
     private final PrintWriter out;
-    private final InputStream in;
+    private final PushbackInputStream in;
     private boolean rawMode = false;
+    private volatile Capabilities capabilities;
 
     public Terminal() {
-        this.out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true);
-        this.in = System.in;
+        this(new SystemBackend());
+    }
+
+    public Terminal(TerminalBackend backend) {
+        this.backend = backend;
+        this.counter = new CountingOutputStream(backend.output());
+        this.out = new PrintWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), true);
+        this.in = new PushbackInputStream(backend.input(), PROBE_BUFFER);
+    }
+
+    public TerminalBackend backend() {
+        return backend;
     }
 
     public void enterRawMode() throws IOException {
         if (!rawMode) {
-            // Check if we're running in a proper terminal
-            if (System.console() != null || isRunningInTerminal()) {
-                try {
-                    // Enable raw mode using stty - wait for completion
-                    ProcessBuilder pb = new ProcessBuilder("stty", "raw", "-echo", "min", "1", "time", "0");
-                    pb.redirectInput(ProcessBuilder.Redirect.INHERIT);
-                    pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
-                    pb.redirectError(ProcessBuilder.Redirect.INHERIT);
-
-                    Process process = pb.start();
-                    int exitCode = process.waitFor();
-                    if (exitCode == 0) {
-                        rawMode = true;
-                        return;
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException("Interrupted while setting raw mode", e);
-                } catch (Exception e) {
-                    // Fall through to non-raw mode
-                }
-            }
-
-            // Fallback: simulate raw mode behavior without actual raw mode
-            System.err.println("Warning: Running in non-terminal mode. Some features may not work correctly.");
-            rawMode = true; // Set to true so readEvent works
+            backend.enterRawMode();
+            rawMode = true; // Set to true so readEvent works even when the backend fell back
         }
     }
 
     public void exitRawMode() throws IOException {
         if (rawMode) {
             try {
-                // Only try to restore if we're in a real terminal
-                if (System.console() != null || isRunningInTerminal()) {
-                    ProcessBuilder pb = new ProcessBuilder("stty", "sane");
-                    pb.redirectInput(ProcessBuilder.Redirect.INHERIT);
-                    pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
-                    pb.redirectError(ProcessBuilder.Redirect.INHERIT);
-
-                    Process process = pb.start();
-                    process.waitFor();
-                }
-                rawMode = false;
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IOException("Interrupted while restoring terminal mode", e);
-            } catch (Exception e) {
-                // Ignore errors during cleanup
+                backend.exitRawMode();
+            } finally {
                 rawMode = false;
             }
         }
     }
 
-    private boolean isRunningInTerminal() {
-        // Check if stdin is a TTY
-        try {
-            ProcessBuilder pb = new ProcessBuilder("test", "-t", "0");
-            Process process = pb.start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     public void clear() {
         out.print(ANSI.CLEAR_SCREEN);
         out.print(ANSI.CURSOR_HOME);
@@ -122,25 +97,90 @@ public class Terminal {
         out.flush();
     }
 
+    public long bytesWritten() {
+        return counter.count;
+    }
+
     public TerminalSize getSize() {
-        try {
-            Process process = Runtime.getRuntime().exec(new String[] { "stty", "size" });
-            process.waitFor();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line = reader.readLine();
-                if (line != null) {
-                    String[] parts = line.trim().split("\\s+");
-                    if (parts.length == 2) {
-                        int rows = Integer.parseInt(parts[0]);
-                        int cols = Integer.parseInt(parts[1]);
-                        return new TerminalSize(cols, rows);
-                    }
+        return backend.size();
+    }
+
+    // What probe() found, or nothing if it has not run
+    public Capabilities capabilities() {
+        Capabilities c = capabilities;
+        return c != null ? c : Capabilities.NONE;
+    }
+
+    // Asks the terminal which optional features it supports and waits up to `timeout` for the
+    // answers. Every terminal answers Primary Device Attributes, so that query goes last and its
+    // answer ends the wait early; features that were not confirmed by then count as unsupported.
+    // Runs once per terminal; needs raw mode, and must finish before anything else reads input.
+    // Keys typed meanwhile are kept for readEvent().
+    public synchronized Capabilities probe(Duration timeout) throws IOException {
+        if (capabilities != null) {
+            return capabilities;
+        }
+        boolean system = backend instanceof SystemBackend;
+        if (system && systemCapabilities != null) {
+            return capabilities = systemCapabilities;
+        }
+        String colorterm = system ? System.getenv("COLORTERM") : null;
+        boolean truecolor = "truecolor".equalsIgnoreCase(colorterm) || "24bit".equalsIgnoreCase(colorterm);
+        if (!rawMode || !backend.answersQueries() || timeout.isZero() || timeout.isNegative()) {
+            return capabilities = new Capabilities(false, truecolor, false, false);
+        }
+
+        print(ANSI.QUERY_SYNCHRONIZED_OUTPUT + ANSI.QUERY_BRACKETED_PASTE + ANSI.QUERY_KITTY_KEYBOARD
+                + ANSI.QUERY_PRIMARY_ATTRIBUTES);
+        ByteArrayOutputStream answers = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline && answers.size() < PROBE_BUFFER - buffer.length) {
+            int available = in.available();
+            if (available > 0) {
+                int n = in.read(buffer, 0, Math.min(available, buffer.length));
+                answers.write(buffer, 0, n);
+                if (PRIMARY_ATTRIBUTES.matcher(answers.toString(StandardCharsets.ISO_8859_1)).find()) {
+                    break;
+                }
+            } else {
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        String text = answers.toString(StandardCharsets.ISO_8859_1);
+        boolean sync = false;
+        boolean paste = false;
+        Matcher mode = MODE_REPORT.matcher(text);
+        while (mode.find()) {
+            // 0 = unknown mode, 4 = permanently off
+            int state = Integer.parseInt(mode.group(2));
+            boolean supported = state >= 1 && state <= 3;
+            switch (mode.group(1)) {
+                case "2026" -> sync = supported;
+                case "2004" -> paste = supported;
+                default -> {
                 }
             }
-        } catch (Exception e) {
-            // Fallback to default size
         }
-        return new TerminalSize(80, 24);
+        boolean kitty = KITTY_FLAGS.matcher(text).find();
+        String rest = text;
+        for (Pattern answer : new Pattern[] {MODE_REPORT, KITTY_FLAGS, PRIMARY_ATTRIBUTES}) {
+            rest = answer.matcher(rest).replaceAll("");
+        }
+        if (!rest.isEmpty()) {
+            in.unread(rest.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        capabilities = new Capabilities(sync, truecolor, paste, kitty);
+        if (system) {
+            systemCapabilities = capabilities;
+        }
+        return capabilities;
     }
 
     public Event readEvent() throws IOException {
@@ -173,6 +213,9 @@ public class Terminal {
 
         if (next == '[') {
             int code = in.read();
+            if (code >= '0' && code <= '?') {
+                return handleParameterizedSequence(code);
+            }
             return switch (code) {
                 case 'A' -> new Event.KeyEvent(Event.Key.ARROW_UP, "\u001b[A");
                 case 'B' -> new Event.KeyEvent(Event.Key.ARROW_DOWN, "\u001b[B");
@@ -187,9 +230,77 @@ public class Terminal {
         return new Event.KeyEvent(Event.Key.UNKNOWN, "\u001b" + (char) next);
     }
 
+    // CSI with parameters. The only one understood is the xterm window size report
+    // `CSI 8 ; rows ; cols t`, which session clients send whenever their size changes.
+    private Event handleParameterizedSequence(int first) throws IOException {
+        StringBuilder params = new StringBuilder();
+        int c = first;
+        while (c >= '0' && c <= '?') {
+            params.append((char) c);
+            c = in.read();
+        }
+        // Intermediate bytes, e.g. the '$' of a mode report, belong to the same sequence
+        while (c >= 0x20 && c <= 0x2f) {
+            params.append((char) c);
+            c = in.read();
+        }
+        if (c == -1) {
+            return new Event.KeyEvent(Event.Key.UNKNOWN, "\u001b[" + params);
+        }
+        String sequence = "\u001b[" + params + (char) c;
+        if (c == 't') {
+            String[] parts = params.toString().split(";");
+            if (parts.length == 3 && parts[0].equals("8")) {
+                try {
+                    return new Event.ResizeEvent(Integer.parseInt(parts[2]), Integer.parseInt(parts[1]));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return new Event.KeyEvent(Event.Key.UNKNOWN, sequence);
+    }
+
+    // True once a write to the backend has failed, e.g. a disconnected session client
+    boolean checkError() {
+        return out.checkError();
+    }
+
     public record TerminalSize(int width, int height) {
     }
 
+    // Optional features of the terminal on the other end
+    public record Capabilities(
+            // DEC mode 2026: frames between begin/end markers are painted in one go
+            boolean synchronizedOutput,
+            // 24-bit colour, from COLORTERM since there is no reliable query
+            boolean truecolor,
+            // DEC mode 2004
+            boolean bracketedPaste,
+            // Progressive keyboard enhancement (kitty protocol)
+            boolean kittyKeyboard) {
+        public static final Capabilities NONE = new Capabilities(false, false, false, false);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private volatile long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
     public static class ANSI {
         public static final String RESET = "\u001b[0m";
         public static final String CLEAR_SCREEN = "\u001b[2J";
@@ -197,6 +308,17 @@ public class Terminal {
         public static final String HIDE_CURSOR = "\u001b[?25l";
         public static final String SHOW_CURSOR = "\u001b[?25h";
         public static final String CURSOR_POSITION = "\u001b[%d;%dH";
+        public static final String CURSOR_UP = "\u001b[%dA";
+        public static final String CURSOR_DOWN = "\u001b[%dB";
+        public static final String CURSOR_FORWARD = "\u001b[%dC";
+        public static final String CURSOR_BACK = "\u001b[%dD";
+        public static final String REPORT_SIZE = "\u001b[8;%d;%dt";
+        public static final String ERASE_TO_END_OF_LINE = "\u001b[K";
+        public static final String ERASE_DOWN = "\u001b[J";
+        // Blanks n cells from the cursor without moving it (ECH)
+        public static final String ERASE_CHARACTERS = "\u001b[%dX";
+        // Repeats the character just written n more times (REP)
+        public static final String REPEAT_CHARACTER = "\u001b[%db";
 
         // Colors
         public static final String BLACK = "\u001b[30m";
@@ -230,5 +352,19 @@ public class Terminal {
         // Alternate screen buffer
         public static final String ENTER_ALTERNATE_SCREEN = "\u001b[?1049h";
         public static final String EXIT_ALTERNATE_SCREEN = "\u001b[?1049l";
+
+        // Line wrapping (DECAWM)
+        public static final String DISABLE_LINE_WRAP = "\u001b[?7l";
+        public static final String ENABLE_LINE_WRAP = "\u001b[?7h";
+
+        // Synchronized output (DEC mode 2026)
+        public static final String BEGIN_SYNCHRONIZED_UPDATE = "\u001b[?2026h";
+        public static final String END_SYNCHRONIZED_UPDATE = "\u001b[?2026l";
+
+        // Capability queries (DECRQM, kitty keyboard flags, Primary Device Attributes)
+        public static final String QUERY_SYNCHRONIZED_OUTPUT = "\u001b[?2026$p";
+        public static final String QUERY_BRACKETED_PASTE = "\u001b[?2004$p";
+        public static final String QUERY_KITTY_KEYBOARD = "\u001b[?u";
+        public static final String QUERY_PRIMARY_ATTRIBUTES = "\u001b[c";
     }
 }
@@ -0,0 +1,29 @@
+package org.tuava.tui;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface TerminalBackend {
+    OutputStream output();
+
+    InputStream input();
+
+    Terminal.TerminalSize size();
+
+    void enterRawMode() throws IOException;
+
+    void exitRawMode() throws IOException;
+
+    // Calls `listener` whenever the size may have changed, until the returned handle is closed. A
+    // backend that cannot tell returns null; callers then keep the size they read at startup.
+    default AutoCloseable onResize(Runnable listener) {
+        return null;
+    }
+
+    // Whether a terminal on the other end answers escape-sequence queries, so that its capabilities
+    // can be probed; backends that are not interactive terminals keep the default
+    default boolean answersQueries() {
+        return false;
+    }
+}
@@ -28,6 +28,23 @@ public final class Text implements Element {
 		return style.render(content);
 	}
 
+	@Override
+	public int paint(ScreenBuffer screen, int x, int y) {
+		if (content.indexOf('\u001b') >= 0) {
+			// Pre-styled content has to be parsed
+			return screen.paint(x, y, render());
+		}
+		String[] lines = content.split("\n", -1);
+		for (int i = 0; i < lines.length; i++) {
+			screen.put(x, y + i, lines[i], style);
+		}
+		return lines.length;
+	}
+
+	int[] lineWidths() {
+		return Flex.lineWidths(content);
+	}
+
 	public static final class Builder {
 		private String content;
 		private Style style = Style.of();
@@ -0,0 +1,417 @@
+package org.tuava.tui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Display-width aware wrapping and truncation of styled text.
+//
+// Widths are terminal columns: escape sequences take none, combining marks and other zero-width
+// code points take none, East Asian wide/fullwidth characters and emoji take two, and a tab takes
+// one, as it is laid out and painted as a single space. Escape sequences
+// are never split. When a cut or a line break happens while an SGR style is active, the style is
+// reset at the end of the piece and re-applied at the start of the next one, so nothing leaks into
+// surrounding text.
+public final class TextLayout {
+    public static final String ELLIPSIS = "…";
+    private static final int WRAP_CACHE_SIZE = 1024;
+    private static final Map<WrapKey, List<String>> WRAP_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<WrapKey, List<String>> eldest) {
+                    return size() > WRAP_CACHE_SIZE;
+                }
+            });
+
+    // East Asian Width W and F ranges (Unicode 15.1), first and last code point of each, sorted
+    private static final int[] WIDE = {
+            0x1100, 0x115f, 0x231a, 0x231b, 0x2329, 0x232a, 0x23e9, 0x23ec, 0x23f0, 0x23f0, 0x23f3, 0x23f3,
+            0x25fd, 0x25fe, 0x2614, 0x2615, 0x2648, 0x2653, 0x267f, 0x267f, 0x2693, 0x2693, 0x26a1, 0x26a1,
+            0x26aa, 0x26ab, 0x26bd, 0x26be, 0x26c4, 0x26c5, 0x26ce, 0x26ce, 0x26d4, 0x26d4, 0x26ea, 0x26ea,
+            0x26f2, 0x26f3, 0x26f5, 0x26f5, 0x26fa, 0x26fa, 0x26fd, 0x26fd, 0x2705, 0x2705, 0x270a, 0x270b,
+            0x2728, 0x2728, 0x274c, 0x274c, 0x274e, 0x274e, 0x2753, 0x2755, 0x2757, 0x2757, 0x2795, 0x2797,
+            0x27b0, 0x27b0, 0x27bf, 0x27bf, 0x2b1b, 0x2b1c, 0x2b50, 0x2b50, 0x2b55, 0x2b55, 0x2e80, 0x2e99,
+            0x2e9b, 0x2ef3, 0x2f00, 0x2fd5, 0x2ff0, 0x2fff, 0x3000, 0x303e, 0x3041, 0x3096, 0x3099, 0x30ff,
+            0x3105, 0x312f, 0x3131, 0x318e, 0x3190, 0x31e3, 0x31ef, 0x321e, 0x3220, 0x3247, 0x3250, 0x4dbf,
+            0x4e00, 0xa48c, 0xa490, 0xa4c6, 0xa960, 0xa97c, 0xac00, 0xd7a3, 0xf900, 0xfaff, 0xfe10, 0xfe19,
+            0xfe30, 0xfe52, 0xfe54, 0xfe66, 0xfe68, 0xfe6b, 0xff01, 0xff60, 0xffe0, 0xffe6,
+            0x16fe0, 0x16fe4, 0x16ff0, 0x16ff1, 0x17000, 0x187f7, 0x18800, 0x18cd5, 0x18d00, 0x18d08,
+            0x1aff0, 0x1aff3, 0x1aff5, 0x1affb, 0x1affd, 0x1affe, 0x1b000, 0x1b122, 0x1b132, 0x1b132,
+            0x1b150, 0x1b152, 0x1b155, 0x1b155, 0x1b164, 0x1b167, 0x1b170, 0x1b2fb,
+            0x1f004, 0x1f004, 0x1f0cf, 0x1f0cf, 0x1f18e, 0x1f18e, 0x1f191, 0x1f19a, 0x1f200, 0x1f202,
+            0x1f210, 0x1f23b, 0x1f240, 0x1f248, 0x1f250, 0x1f251, 0x1f260, 0x1f265, 0x1f300, 0x1f320,
+            0x1f32d, 0x1f335, 0x1f337, 0x1f37c, 0x1f37e, 0x1f393, 0x1f3a0, 0x1f3ca, 0x1f3cf, 0x1f3d3,
+            0x1f3e0, 0x1f3f0, 0x1f3f4, 0x1f3f4, 0x1f3f8, 0x1f43e, 0x1f440, 0x1f440, 0x1f442, 0x1f4fc,
+            0x1f4ff, 0x1f53d, 0x1f54b, 0x1f54e, 0x1f550, 0x1f567, 0x1f57a, 0x1f57a, 0x1f595, 0x1f596,
+            0x1f5a4, 0x1f5a4, 0x1f5fb, 0x1f64f, 0x1f680, 0x1f6c5, 0x1f6cc, 0x1f6cc, 0x1f6d0, 0x1f6d2,
+            0x1f6d5, 0x1f6d7, 0x1f6dc, 0x1f6df, 0x1f6eb, 0x1f6ec, 0x1f6f4, 0x1f6fc, 0x1f7e0, 0x1f7eb,
+            0x1f7f0, 0x1f7f0, 0x1f90c, 0x1f93a, 0x1f93c, 0x1f945, 0x1f947, 0x1f9ff, 0x1fa70, 0x1faff,
+            0x20000, 0x2fffd, 0x30000, 0x3fffd,
+    };
+
+    public enum Ellipsis {
+        // Cut without a marker
+        NONE,
+        // Keep the start: "a long li…"
+        END,
+        // Keep the end: "…ong line"
+        START,
+        // Keep both ends: "a lo…line"
+        MIDDLE
+    }
+
+    private TextLayout() {
+    }
+
+    private record WrapKey(String text, int width) {
+    }
+
+    private enum Kind {
+        TEXT, SPACE, NEWLINE, ESCAPE
+    }
+
+    // A grapheme-ish unit: one code point plus any zero-width code points that follow it, a space,
+    // a line break, or a whole escape sequence
+    private record Token(Kind kind, String text, int width) {
+    }
+
+    public static int width(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int width = 0;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == 0x1b) {
+                i = escapeEnd(text, i);
+                continue;
+            }
+            int cp = text.codePointAt(i);
+            width += codePointWidth(cp);
+            i += Character.charCount(cp);
+        }
+        return width;
+    }
+
+    // Columns a code point takes. A tab counts as one column, as it does everywhere in layout and
+    // painting; other C0 and C1 controls take none, as do combining marks and format characters (soft
+    // hyphen, zero-width joiner). East Asian Wide and Fullwidth characters, emoji presentation
+    // included, take two.
+    public static int codePointWidth(int cp) {
+        if (cp >= 0x20 && cp < 0x7f) {
+            return 1;
+        }
+        if (cp == '\t') {
+            return 1;
+        }
+        if (cp < 0x20 || (cp >= 0x7f && cp < 0xa0)) {
+            return 0;
+        }
+        int type = Character.getType(cp);
+        if (type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK || type == Character.FORMAT
+                || (cp >= 0xfe00 && cp <= 0xfe0f)) {
+            return 0;
+        }
+        return cp >= 0x1100 && isWide(cp) ? 2 : 1;
+    }
+
+    private static boolean isWide(int cp) {
+        int low = 0;
+        int high = WIDE.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (cp < WIDE[2 * mid]) {
+                high = mid - 1;
+            } else if (cp > WIDE[2 * mid + 1]) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String truncate(String text, int width) {
+        return truncate(text, width, Ellipsis.END);
+    }
+
+    public static String truncate(String text, int width, Ellipsis ellipsis) {
+        if (width <= 0 || text == null) {
+            return "";
+        }
+        if (width(text) <= width) {
+            return text;
+        }
+        List<Token> tokens = tokenize(text);
+        int room = width - 1;
+        return switch (ellipsis) {
+            case NONE -> take(tokens, 0, width, new StringBuilder());
+            case END -> take(tokens, 0, room, new StringBuilder()) + ELLIPSIS;
+            case START -> ELLIPSIS + takeLast(tokens, room);
+            case MIDDLE -> take(tokens, 0, (room + 1) / 2, new StringBuilder()) + ELLIPSIS
+                    + takeLast(tokens, room / 2);
+        };
+    }
+
+    // Word-wraps to lines of at most `width` columns. Existing line breaks are kept, words longer
+    // than a line are split, and spaces at a wrap point are dropped. Results are cached.
+    public static List<String> wrap(String text, int width) {
+        if (text == null || text.isEmpty()) {
+            return List.of("");
+        }
+        int w = Math.max(1, width);
+        WrapKey key = new WrapKey(text, w);
+        List<String> cached = WRAP_CACHE.get(key);
+        if (cached == null) {
+            cached = List.copyOf(new Wrapper(w).wrap(tokenize(text)));
+            WRAP_CACHE.put(key, cached);
+        }
+        return cached;
+    }
+
+    interface CellSink {
+        void cell(int line, String glyph, int width, String sgr);
+    }
+
+    // Walks text cell by cell, passing the line each cell is on and the SGR sequences in effect for
+    // it, which carry over line breaks as they would on a terminal; used to paint styled text into a
+    // ScreenBuffer. A tab counts as one space. Returns the number of lines.
+    static int cells(String text, CellSink sink) {
+        StringBuilder style = new StringBuilder();
+        String sgr = "";
+        int line = 0;
+        for (Token t : tokenize(text)) {
+            switch (t.kind) {
+                case ESCAPE -> {
+                    track(style, t.text);
+                    sgr = null;
+                }
+                case NEWLINE -> line++;
+                case TEXT, SPACE -> {
+                    if (sgr == null) {
+                        sgr = style.toString();
+                    }
+                    sink.cell(line, t.text, t.width, sgr);
+                }
+            }
+        }
+        return line + 1;
+    }
+
+    // Copies tokens from `from` until `columns` are used, keeping escapes; closes an open style
+    private static String take(List<Token> tokens, int from, int columns, StringBuilder style) {
+        StringBuilder out = new StringBuilder();
+        out.append(style);
+        int used = 0;
+        for (int i = from; i < tokens.size(); i++) {
+            Token t = tokens.get(i);
+            if (t.kind == Kind.ESCAPE) {
+                out.append(t.text);
+                track(style, t.text);
+                continue;
+            }
+            if (t.kind == Kind.NEWLINE) {
+                // Truncation is for single lines; a stray break would escape the width
+                continue;
+            }
+            if (used + t.width > columns) {
+                break;
+            }
+            out.append(t.text);
+            used += t.width;
+        }
+        if (style.length() > 0) {
+            out.append(Terminal.ANSI.RESET);
+        }
+        return out.toString();
+    }
+
+    // The last `columns` columns, preceded by whatever style is active where they start
+    private static String takeLast(List<Token> tokens, int columns) {
+        int used = 0;
+        int start = tokens.size();
+        while (start > 0) {
+            Token t = tokens.get(start - 1);
+            if (t.kind != Kind.ESCAPE && used + t.width > columns) {
+                break;
+            }
+            used += t.kind == Kind.ESCAPE ? 0 : t.width;
+            start--;
+        }
+        StringBuilder style = new StringBuilder();
+        for (int i = 0; i < start; i++) {
+            if (tokens.get(i).kind == Kind.ESCAPE) {
+                track(style, tokens.get(i).text);
+            }
+        }
+        return take(tokens, start, columns, style);
+    }
+
+    private static final class Wrapper {
+        private final int width;
+        private final List<String> lines = new ArrayList<>();
+        // SGR sequences in effect at the end of the current line
+        private final StringBuilder style = new StringBuilder();
+        private final StringBuilder line = new StringBuilder();
+        private int lineWidth = 0;
+        private final List<Token> word = new ArrayList<>();
+        private int wordWidth = 0;
+        private final StringBuilder spaces = new StringBuilder();
+        private int spacesWidth = 0;
+
+        Wrapper(int width) {
+            this.width = width;
+        }
+
+        List<String> wrap(List<Token> tokens) {
+            for (Token t : tokens) {
+                switch (t.kind) {
+                    case NEWLINE -> {
+                        commitWord();
+                        spaces.setLength(0);
+                        spacesWidth = 0;
+                        breakLine();
+                    }
+                    case SPACE -> {
+                        commitWord();
+                        spaces.append(t.text);
+                        spacesWidth += t.width;
+                    }
+                    case TEXT, ESCAPE -> {
+                        word.add(t);
+                        wordWidth += t.width;
+                    }
+                }
+            }
+            commitWord();
+            lines.add(finish());
+            return lines;
+        }
+
+        private void commitWord() {
+            if (word.isEmpty()) {
+                return;
+            }
+            if (lineWidth + spacesWidth + wordWidth <= width) {
+                line.append(spaces);
+                lineWidth += spacesWidth;
+            } else if (lineWidth > 0) {
+                breakLine();
+            }
+            spaces.setLength(0);
+            spacesWidth = 0;
+            for (Token t : word) {
+                if (t.kind == Kind.TEXT && lineWidth + t.width > width && lineWidth > 0) {
+                    // Only reached for words longer than a whole line
+                    breakLine();
+                }
+                line.append(t.text);
+                lineWidth += t.width;
+                if (t.kind == Kind.ESCAPE) {
+                    track(style, t.text);
+                }
+            }
+            word.clear();
+            wordWidth = 0;
+        }
+
+        private void breakLine() {
+            lines.add(finish());
+            line.setLength(0);
+            line.append(style);
+            lineWidth = 0;
+        }
+
+        private String finish() {
+            if (style.length() > 0) {
+                line.append(Terminal.ANSI.RESET);
+            }
+            return line.toString();
+        }
+    }
+
+    // Keeps `style` equal to the SGR sequences needed to restore the current attributes
+    private static void track(StringBuilder style, String escape) {
+        if (!escape.endsWith("m") || !escape.startsWith("\u001b[")) {
+            return;
+        }
+        String params = escape.substring(2, escape.length() - 1);
+        if (params.isEmpty() || params.equals("0")) {
+            style.setLength(0);
+        } else {
+            style.append(escape);
+        }
+    }
+
+    private static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == 0x1b) {
+                int end = escapeEnd(text, i);
+                tokens.add(new Token(Kind.ESCAPE, text.substring(i, end), 0));
+                i = end;
+            } else if (c == '\n') {
+                tokens.add(new Token(Kind.NEWLINE, "\n", 0));
+                i++;
+            } else if (c == '\r') {
+                i++;
+            } else if (c == ' ' || c == '\t') {
+                tokens.add(new Token(Kind.SPACE, " ", 1));
+                i++;
+            } else {
+                int start = i;
+                int cp = text.codePointAt(i);
+                int w = codePointWidth(cp);
+                i += Character.charCount(cp);
+                // Attach following zero-width code points (accents, variation selectors, joiners)
+                while (i < n && text.charAt(i) != 0x1b) {
+                    int next = text.codePointAt(i);
+                    if (next < 0x300 || codePointWidth(next) != 0) {
+                        break;
+                    }
+                    i += Character.charCount(next);
+                }
+                tokens.add(new Token(Kind.TEXT, text.substring(start, i), w));
+            }
+        }
+        return tokens;
+    }
+
+    // Index just past the escape sequence starting at `start` (CSI, OSC, or a two-byte escape)
+    private static int escapeEnd(String text, int start) {
+        int n = text.length();
+        if (start + 1 >= n) {
+            return n;
+        }
+        char kind = text.charAt(start + 1);
+        if (kind == '[') {
+            for (int i = start + 2; i < n; i++) {
+                char c = text.charAt(i);
+                if (c >= 0x40 && c <= 0x7e) {
+                    return i + 1;
+                }
+            }
+            return n;
+        }
+        if (kind == ']') {
+            for (int i = start + 2; i < n; i++) {
+                char c = text.charAt(i);
+                if (c == 0x07) {
+                    return i + 1;
+                }
+                if (c == 0x1b && i + 1 < n && text.charAt(i + 1) == '\\') {
+                    return i + 2;
+                }
+            }
+            return n;
+        }
+        return start + 2;
+    }
+}
@@ -0,0 +1,399 @@
+package org.tuava.tui;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+// A fixed-capacity store of timestamped samples for streaming metrics: appending is O(1) and does
+// not box, and once full the oldest samples are dropped. Models hold snapshots, not the store.
+//
+// Samples live in primitive chunks of CHUNK values. A chunk is written front to back and never
+// changed afterwards, so a snapshot only copies the references to the chunks it covers and stays
+// valid however many samples are appended later. A new chunk is allocated once every CHUNK
+// samples; nothing is allocated per sample. Full chunks get a summary tree on first use, which
+// keeps min/max/mean over any window close to constant time, so snapshots can be drawn with
+// Sparkline and LineChart at any size.
+//
+// Append from one thread (the update loop); snapshots can be taken and read from any thread. A
+// snapshot that finds the writer has reused a slot it was copying starts over.
+//
+//   TimeSeries cpu = TimeSeries.withCapacity(100_000);
+//   ...
+//   case Sample s -> { cpu.append(s.value()); yield Update.of(new Model(cpu, cpu.snapshot())); }
+public final class TimeSeries {
+    static final int CHUNK = 1024;
+    private static final VarHandle COUNT;
+
+    static {
+        try {
+            COUNT = MethodHandles.lookup().findVarHandle(TimeSeries.class, "count", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int capacity;
+    // Chunk n is ring[n % ring.length]. A snapshot spans at most one more chunk than the capacity
+    // needs; one slot beyond that is spare, so the writer has to fill a whole chunk before it
+    // reuses a slot a snapshot may still be copying.
+    private final Chunk[] ring;
+    // Samples appended; written with release semantics after the sample itself, so a thread that
+    // reads it also sees every sample before it
+    private volatile long count = 0;
+    // The writer's own position, so appending needs no division and no volatile read
+    private Chunk current;
+    private int offset = CHUNK;
+    private long written = 0;
+
+    private TimeSeries(int capacity) {
+        this.capacity = capacity;
+        this.ring = new Chunk[(capacity + CHUNK - 1) / CHUNK + 2];
+    }
+
+    public static TimeSeries withCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        return new TimeSeries(capacity);
+    }
+
+    // Appends a sample stamped with the current time
+    public void append(double value) {
+        append(System.currentTimeMillis(), value);
+    }
+
+    // Timestamps are epoch milliseconds and should not go backwards; since() assumes they don't
+    public void append(long timeMillis, double value) {
+        if (offset == CHUNK) {
+            // Older snapshots may still hold the chunk this replaces, so it is not reused
+            current = new Chunk(written / CHUNK);
+            ring[(int) ((written / CHUNK) % ring.length)] = current;
+            offset = 0;
+        }
+        current.values[offset] = value;
+        current.times[offset] = timeMillis;
+        offset++;
+        written++;
+        COUNT.setRelease(this, written);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // Samples held, at most the capacity
+    public int size() {
+        return (int) Math.min(count, capacity);
+    }
+
+    // Samples appended since creation, including those already dropped
+    public long count() {
+        return count;
+    }
+
+    // The samples held now; later appends do not change it
+    public Snapshot snapshot() {
+        while (true) {
+            long end = count;
+            if (end == 0) {
+                return new Snapshot(new Chunk[1], 0, 0, 0);
+            }
+            long start = end - Math.min(end, capacity);
+            long firstChunk = start / CHUNK;
+            long lastChunk = (end - 1) / CHUNK;
+            Chunk[] chunks = new Chunk[(int) (lastChunk - firstChunk + 1)];
+            boolean lapped = false;
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = ring[(int) ((firstChunk + i) % ring.length)];
+                // A newer chunk in the slot means the writer has moved past the samples counted
+                lapped |= chunks[i].number != firstChunk + i;
+            }
+            if (!lapped) {
+                return new Snapshot(chunks, firstChunk * CHUNK, start, end);
+            }
+        }
+    }
+
+    private static final class Chunk {
+        // Which chunk of the series this is, counting from the first sample
+        final long number;
+        final double[] values = new double[CHUNK];
+        final long[] times = new long[CHUNK];
+        private BlockIndex index;
+        // Aggregates of the whole chunk, for windows that cover it completely
+        private boolean summarized;
+        private int minAt;
+        private int maxAt;
+        private double mean;
+        private int present;
+
+        Chunk(long number) {
+            this.number = number;
+        }
+
+        // Only asked for once the chunk is full and can no longer change
+        synchronized BlockIndex index() {
+            if (index == null) {
+                index = new BlockIndex(values);
+            }
+            return index;
+        }
+
+        synchronized Chunk summarized() {
+            if (!summarized) {
+                BlockIndex all = index();
+                minAt = all.minIndex(0, CHUNK);
+                maxAt = all.maxIndex(0, CHUNK);
+                mean = all.mean(0, CHUNK);
+                present = all.count(0, CHUNK);
+                summarized = true;
+            }
+            return this;
+        }
+    }
+
+    // An immutable window of samples, oldest first. Narrowing it with last() or since() shares the
+    // same chunks and allocates only the small chunk array.
+    public static final class Snapshot implements Series {
+        private final Chunk[] chunks;
+        // Sample number at the start of chunks[0]
+        private final long base;
+        private final long start;
+        private final long end;
+
+        private Snapshot(Chunk[] chunks, long base, long start, long end) {
+            this.chunks = chunks;
+            this.base = base;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int size() {
+            return (int) (end - start);
+        }
+
+        @Override
+        public double get(int index) {
+            long k = start + index;
+            return chunks[(int) ((k - base) / CHUNK)].values[(int) ((k - base) % CHUNK)];
+        }
+
+        // Epoch milliseconds of sample `index`
+        public long time(int index) {
+            long k = start + index;
+            return chunks[(int) ((k - base) / CHUNK)].times[(int) ((k - base) % CHUNK)];
+        }
+
+        public boolean isEmpty() {
+            return end == start;
+        }
+
+        public double latest() {
+            return isEmpty() ? Double.NaN : get(size() - 1);
+        }
+
+        // The newest `n` samples
+        public Snapshot last(int n) {
+            return slice(Math.max(start, end - Math.max(0, n)), end);
+        }
+
+        // The samples stamped at or after `timeMillis`
+        public Snapshot since(long timeMillis) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (time(mid) < timeMillis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return slice(start + low, end);
+        }
+
+        public double min() {
+            int i = minIndex(0, size());
+            return i < 0 ? Double.NaN : get(i);
+        }
+
+        public double max() {
+            int i = maxIndex(0, size());
+            return i < 0 ? Double.NaN : get(i);
+        }
+
+        public double mean() {
+            return mean(0, size());
+        }
+
+        // The value at percentile p (0-100) by nearest rank, NaN if there are no values. Unlike the
+        // other aggregates this reads the whole window.
+        public double percentile(double p) {
+            double[] values = new double[size()];
+            int n = 0;
+            for (int i = 0; i < values.length; i++) {
+                double v = get(i);
+                if (!Double.isNaN(v)) {
+                    values[n++] = v;
+                }
+            }
+            if (n == 0) {
+                return Double.NaN;
+            }
+            int rank = (int) Math.ceil(Math.max(0, Math.min(100, p)) / 100 * n);
+            return select(values, n, Math.max(0, rank - 1));
+        }
+
+        // The k-th smallest of the first n values (quickselect), reordering them; O(n) on average
+        private static double select(double[] values, int n, int k) {
+            int low = 0;
+            int high = n - 1;
+            while (low < high) {
+                double pivot = values[(low + high) >>> 1];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (values[i] < pivot) {
+                        i++;
+                    }
+                    while (values[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        double swap = values[i];
+                        values[i++] = values[j];
+                        values[j--] = swap;
+                    }
+                }
+                if (k <= j) {
+                    high = j;
+                } else if (k >= i) {
+                    low = i;
+                } else {
+                    return values[k];
+                }
+            }
+            return values[k];
+        }
+
+        @Override
+        public int minIndex(int from, int to) {
+            return extreme(from, to, false);
+        }
+
+        @Override
+        public int maxIndex(int from, int to) {
+            return extreme(from, to, true);
+        }
+
+        @Override
+        public double mean(int from, int to) {
+            double total = 0;
+            long n = 0;
+            long k = start + from;
+            long stop = start + to;
+            while (k < stop) {
+                int c = (int) ((k - base) / CHUNK);
+                int offset = (int) ((k - base) % CHUNK);
+                int length = (int) Math.min(CHUNK - offset, stop - k);
+                if (length == CHUNK && sealed(c)) {
+                    Chunk whole = chunks[c].summarized();
+                    if (whole.present > 0) {
+                        total += whole.mean * whole.present;
+                        n += whole.present;
+                    }
+                } else if (sealed(c)) {
+                    BlockIndex index = chunks[c].index();
+                    int present = index.count(offset, offset + length);
+                    if (present > 0) {
+                        total += index.mean(offset, offset + length) * present;
+                        n += present;
+                    }
+                } else {
+                    for (int i = offset; i < offset + length; i++) {
+                        double v = chunks[c].values[i];
+                        if (!Double.isNaN(v)) {
+                            total += v;
+                            n++;
+                        }
+                    }
+                }
+                k += length;
+            }
+            return n == 0 ? Double.NaN : total / n;
+        }
+
+        // The samples as table rows: time of day and value
+        public Table.Data rows() {
+            return new Table.Data() {
+                @Override
+                public int rowCount() {
+                    return size();
+                }
+
+                @Override
+                public String cell(int row, int column) {
+                    if (column == 0) {
+                        return LocalTime.ofInstant(Instant.ofEpochMilli(time(row)), ZoneId.systemDefault()).toString();
+                    }
+                    double v = get(row);
+                    return v == Math.rint(v) && Math.abs(v) < 1e15 ? Long.toString((long) v) : Double.toString(v);
+                }
+            };
+        }
+
+        private int extreme(int from, int to, boolean max) {
+            int best = -1;
+            double bestValue = 0;
+            long k = start + from;
+            long stop = start + to;
+            while (k < stop) {
+                int c = (int) ((k - base) / CHUNK);
+                int offset = (int) ((k - base) % CHUNK);
+                int length = (int) Math.min(CHUNK - offset, stop - k);
+                int local;
+                if (length == CHUNK && sealed(c)) {
+                    Chunk whole = chunks[c].summarized();
+                    local = max ? whole.maxAt : whole.minAt;
+                } else if (sealed(c)) {
+                    BlockIndex index = chunks[c].index();
+                    local = max ? index.maxIndex(offset, offset + length) : index.minIndex(offset, offset + length);
+                } else {
+                    local = -1;
+                    double[] values = chunks[c].values;
+                    for (int i = offset; i < offset + length; i++) {
+                        double v = values[i];
+                        if (!Double.isNaN(v) && (local < 0 || (max ? v > values[local] : v < values[local]))) {
+                            local = i;
+                        }
+                    }
+                }
+                if (local >= 0) {
+                    double v = chunks[c].values[local];
+                    if (best < 0 || (max ? v > bestValue : v < bestValue)) {
+                        best = (int) (base + (long) c * CHUNK + local - start);
+                        bestValue = v;
+                    }
+                }
+                k += length;
+            }
+            return best;
+        }
+
+        // A chunk this snapshot has completely filled; the writer never touches it again
+        private boolean sealed(int c) {
+            return base + (long) (c + 1) * CHUNK <= end;
+        }
+
+        private Snapshot slice(long from, long to) {
+            long firstChunk = (from - base) / CHUNK;
+            long lastChunk = to == from ? firstChunk : (to - 1 - base) / CHUNK;
+            Chunk[] sub = Arrays.copyOfRange(chunks, (int) firstChunk, (int) lastChunk + 1);
+            return new Snapshot(sub, base + firstChunk * CHUNK, from, to);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.tuava.tui;
+
+import java.time.Duration;
+
+// A value moving from one number to another over a duration, for transitions. A tween is an
+// immutable part of the model: create it in update when the transition starts and read value() in
+// the view. The value is computed from the frame clock, and reading it while the tween is still
+// running asks for another frame, so the runtime keeps redrawing until it settles without any
+// messages.
+//
+//   new Model(Tween.of(model.width(), 60, Duration.ofMillis(250), Tween.Easing.EASE_OUT))
+public final class Tween {
+    private final double from;
+    private final double to;
+    private final long startNanos;
+    private final long durationNanos;
+    private final Easing easing;
+
+    public enum Easing {
+        LINEAR,
+        EASE_IN,
+        EASE_OUT,
+        EASE_IN_OUT;
+
+        double apply(double t) {
+            return switch (this) {
+                case LINEAR -> t;
+                case EASE_IN -> t * t * t;
+                case EASE_OUT -> 1 - Math.pow(1 - t, 3);
+                case EASE_IN_OUT -> t < 0.5 ? 4 * t * t * t : 1 - Math.pow(-2 * t + 2, 3) / 2;
+            };
+        }
+    }
+
+    private Tween(double from, double to, long startNanos, long durationNanos, Easing easing) {
+        this.from = from;
+        this.to = to;
+        this.startNanos = startNanos;
+        this.durationNanos = Math.max(0, durationNanos);
+        this.easing = easing;
+    }
+
+    public static Tween of(double from, double to, Duration duration) {
+        return of(from, to, duration, Easing.EASE_IN_OUT);
+    }
+
+    public static Tween of(double from, double to, Duration duration, Easing easing) {
+        return new Tween(from, to, FrameClock.now(), duration.toNanos(), java.util.Objects.requireNonNull(easing));
+    }
+
+    // Already at `value`
+    public static Tween at(double value) {
+        return new Tween(value, value, 0, 0, Easing.LINEAR);
+    }
+
+    public double value() {
+        double progress = progress();
+        if (progress < 1) {
+            FrameClock.requestFrame();
+            return from + (to - from) * easing.apply(progress);
+        }
+        return to;
+    }
+
+    public int intValue() {
+        return (int) Math.round(value());
+    }
+
+    public double target() {
+        return to;
+    }
+
+    public boolean isDone() {
+        return progress() >= 1;
+    }
+
+    // A new tween from wherever this one is now to `target`, so an interrupted transition does not jump
+    public Tween retarget(double target, Duration duration) {
+        double current = progress() < 1 ? from + (to - from) * easing.apply(progress()) : to;
+        return new Tween(current, target, FrameClock.now(), duration.toNanos(), easing);
+    }
+
+    private double progress() {
+        if (durationNanos == 0) {
+            return 1;
+        }
+        return Math.min(1, Math.max(0, (double) (FrameClock.now() - startNanos) / durationNanos));
+    }
+}
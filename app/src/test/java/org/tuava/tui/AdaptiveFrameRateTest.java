@@ -0,0 +1,108 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveFrameRateTest {
+    private static final long MS = 1_000_000L;
+
+    record Count(int n) implements Model<Event> {
+        @Override
+        public Update<Event> update(Event event) {
+            return Update.of(new Count(n + 1));
+        }
+
+        @Override
+        public String view() {
+            return ("frame " + n + " ").repeat(200);
+        }
+    }
+
+    @Test
+    void fastBackendKeepsTheFullRate() throws Exception {
+        HeadlessBackend terminal = new HeadlessBackend(80, 24);
+        Duration interval = Duration.ofMillis(2);
+        Program<Event> program = Program.<Event>of(Optional::of, m -> List.of())
+                .backend(terminal).frameInterval(interval).probeTimeout(Duration.ZERO).build();
+        Thread thread = new Thread(() -> {
+            try {
+                program.run(new Count(0));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.start();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (program.metrics().snapshot().frames() < 4 * AdaptiveFrameRate.MIN_SAMPLES) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            terminal.type("x");
+            Thread.sleep(3);
+            assertEquals(interval.toNanos(), program.metrics().snapshot().frameIntervalNanos());
+        }
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void aStallBeforeEnoughSamplesIsIgnored() {
+        AdaptiveFrameRate rate = new AdaptiveFrameRate();
+        rate.onFrame(0, 0, 200 * MS, 4000, 0);
+        for (int i = 0; i < AdaptiveFrameRate.MIN_SAMPLES; i++) {
+            rate.onFrame(0, 0, 20_000, 4000, 0);
+            assertEquals(0, rate.intervalNanos());
+        }
+    }
+
+    @Test
+    void aSingleStallOnAFastLinkIsIgnored() {
+        AdaptiveFrameRate rate = new AdaptiveFrameRate();
+        for (int i = 0; i < 100; i++) {
+            rate.onFrame(0, 0, 20_000, 40_000, 0);
+        }
+        // One 5 ms write of 40 kB averages out to about 26 MB/s
+        rate.onFrame(0, 0, 5 * MS, 40_000, 0);
+        assertEquals(0, rate.intervalNanos());
+    }
+
+    @Test
+    void shortWritesNeverCountAsSlow() {
+        AdaptiveFrameRate rate = new AdaptiveFrameRate();
+        // 3 kB in 2 ms is 1.5 MB/s, but a busy machine parsing the frame looks like that too
+        for (int i = 0; i < 50; i++) {
+            rate.onFrame(0, 0, 2 * MS, 3_000, 0);
+        }
+        assertEquals(0, rate.intervalNanos());
+    }
+
+    @Test
+    void aSlowLinkBacksOffAndRecovers() {
+        AdaptiveFrameRate rate = new AdaptiveFrameRate();
+        // 10 kB in 50 ms is 200 kB/s
+        for (int i = 0; i < 50; i++) {
+            rate.onFrame(0, 0, 50 * MS, 10_000, 0);
+        }
+        long interval = rate.intervalNanos();
+        assertTrue(interval > 50 * MS && interval <= AdaptiveFrameRate.MAX_INTERVAL_NANOS, "interval " + interval);
+        for (int i = 0; i < 10; i++) {
+            rate.onFrame(0, 0, 20_000, 10_000, 0);
+        }
+        assertEquals(0, rate.intervalNanos());
+    }
+
+    @Test
+    void theIntervalIsCapped() {
+        AdaptiveFrameRate rate = new AdaptiveFrameRate();
+        for (int i = 0; i < 50; i++) {
+            rate.onFrame(0, 0, 2_000 * MS, 10_000, 0);
+        }
+        assertEquals(AdaptiveFrameRate.MAX_INTERVAL_NANOS, rate.intervalNanos());
+    }
+}
@@ -0,0 +1,159 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+// Spinners and tweens keep a program redrawing from the frame clock alone, without messages, and
+// stop it once they are gone or settled
+class AnimationTest {
+    record Stop() {
+    }
+
+    record Loading(boolean busy) implements Model<Stop> {
+        @Override
+        public Update<Stop> update(Stop message) {
+            return Update.of(new Loading(false));
+        }
+
+        @Override
+        public String view() {
+            return busy ? Spinner.of().frames(Spinner.LINE).interval(Duration.ofMillis(10)).label("busy").build().render()
+                    : "done";
+        }
+    }
+
+    record Moving(Tween x) implements Model<Stop> {
+        @Override
+        public Update<Stop> update(Stop message) {
+            return Update.of(this);
+        }
+
+        @Override
+        public String view() {
+            return "x=" + x.intValue();
+        }
+    }
+
+    @Test
+    void aSpinnerRedrawsUntilItIsRemoved() throws Exception {
+        HeadlessBackend terminal = new HeadlessBackend(20, 3);
+        AtomicInteger frames = new AtomicInteger();
+        Program<Stop> program = program(terminal, frames);
+        Thread thread = start(program, new Loading(true));
+        await(() -> frames.get() >= 10);
+        assertTrue(terminal.line(0).endsWith(" busy"), terminal.line(0));
+        terminal.type("s");
+        await(() -> terminal.line(0).equals("done"));
+        Thread.sleep(100);
+        int settled = frames.get();
+        Thread.sleep(300);
+        assertEquals(settled, frames.get());
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void aTweenRedrawsUntilItSettles() throws Exception {
+        HeadlessBackend terminal = new HeadlessBackend(20, 3);
+        AtomicInteger frames = new AtomicInteger();
+        Program<Stop> program = program(terminal, frames);
+        Thread thread = start(program, new Moving(Tween.of(0, 100, Duration.ofMillis(300), Tween.Easing.LINEAR)));
+        await(() -> terminal.line(0).equals("x=100"));
+        assertTrue(frames.get() > 3, "frames " + frames.get());
+        Thread.sleep(100);
+        int settled = frames.get();
+        Thread.sleep(300);
+        assertEquals(settled, frames.get());
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void aMemoNextToASpinnerKeepsItsCache() throws Exception {
+        HeadlessBackend terminal = new HeadlessBackend(20, 3);
+        AtomicInteger frames = new AtomicInteger();
+        AtomicInteger builds = new AtomicInteger();
+        Program<Stop> program = program(terminal, frames);
+        Thread thread = start(program, new Model<Stop>() {
+            @Override
+            public Update<Stop> update(Stop message) {
+                return Update.of(this);
+            }
+
+            @Override
+            public String view() {
+                return Flex.column()
+                        .add(Memo.of("static", 1, () -> {
+                            builds.incrementAndGet();
+                            return Text.of("static").build();
+                        }))
+                        .add(Spinner.of().frames(Spinner.LINE).interval(Duration.ofMillis(10)).build())
+                        .build()
+                        .render();
+            }
+        });
+        await(() -> frames.get() >= 10);
+        assertEquals("static", terminal.line(0));
+        assertEquals(1, builds.get());
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void tweensFollowTheClockOutsideAFrame() throws Exception {
+        Tween tween = Tween.of(0, 10, Duration.ofMillis(50), Tween.Easing.LINEAR);
+        double first = tween.value();
+        assertTrue(first >= 0 && first < 10, "value " + first);
+        Thread.sleep(80);
+        assertEquals(10, tween.value(), 0);
+        assertTrue(tween.isDone());
+        assertEquals(4, Tween.at(4).value(), 0);
+        Tween back = Tween.of(10, 0, Duration.ofSeconds(10)).retarget(5, Duration.ofSeconds(10));
+        assertTrue(back.value() > 9, "value " + back.value());
+    }
+
+    private static Program<Stop> program(HeadlessBackend terminal, AtomicInteger frames) {
+        return Program.of((Event e) -> e instanceof Event.KeyEvent ? Optional.of(new Stop()) : Optional.<Stop>empty(),
+                (Model<Stop> m) -> List.<Stream<Stop>>of())
+                .backend(terminal)
+                .animationFrameRate(60)
+                .listener(new ProgramListener() {
+                    @Override
+                    public void onFrame(long viewNanos, long encodeNanos, long writeNanos, long bytes,
+                            long latencyNanos) {
+                        frames.incrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    private static Thread start(Program<Stop> program, Model<Stop> model) {
+        Thread thread = new Thread(() -> {
+            try {
+                program.run(model);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// The bytes the fullscreen renderer writes, played into a HeadlessBackend, must leave exactly the
+// screen that was painted, frame after frame
+class CellEncoderTest {
+    private static final String[] WORDS = {"a", "bb", "hello", "中文", "🚀", "é", "    ", "xxxxxxxx", "ｗｉｄｅ", "-"};
+    private static final Style[] STYLES = {null, Style.of().withBold(), Style.of().foreground(Style.Color.RED),
+            Style.of().withReverse(), Style.of().background(Style.Color.BLUE).withUnderline()};
+
+    @Test
+    void firstFrameDrawsTheWholeScreen() throws IOException {
+        HeadlessBackend terminal = new HeadlessBackend(20, 4);
+        FullscreenRenderer renderer = new FullscreenRenderer();
+        write(terminal, renderer.enter());
+        ScreenBuffer screen = new ScreenBuffer(20, 4);
+        screen.put(0, 0, "title", Style.of().withBold());
+        screen.put(3, 2, "中文 ok", null);
+        write(terminal, renderer.frame(screen));
+        assertEquals(List.of("title", "", "   中文 ok", ""), terminal.screen());
+    }
+
+    @Test
+    void randomEditsMatchThePaintedScreen() throws IOException {
+        for (boolean repeat : new boolean[] {false, true}) {
+            Random random = new Random(42);
+            HeadlessBackend terminal = new HeadlessBackend(40, 12);
+            FullscreenRenderer renderer = new FullscreenRenderer();
+            renderer.repeatCharacters(repeat);
+            write(terminal, renderer.enter());
+            ScreenBuffer screen = new ScreenBuffer(40, 12);
+            for (int frame = 0; frame < 300; frame++) {
+                ScreenBuffer next = screen.copy();
+                if (random.nextInt(10) == 0) {
+                    next.clear();
+                }
+                for (int edits = random.nextInt(6); edits > 0; edits--) {
+                    int x = random.nextInt(44) - 2;
+                    int y = random.nextInt(12);
+                    next.put(x, y, WORDS[random.nextInt(WORDS.length)], STYLES[random.nextInt(STYLES.length)]);
+                }
+                write(terminal, renderer.frame(next.copy()));
+                assertEquals(expected(next), terminal.screen(), "frame " + frame + ", repeat " + repeat);
+                screen = next;
+            }
+        }
+    }
+
+    @Test
+    void unchangedFrameWritesNothing() {
+        FullscreenRenderer renderer = new FullscreenRenderer();
+        renderer.enter();
+        ScreenBuffer screen = new ScreenBuffer(10, 3);
+        screen.put(0, 1, "same", Style.of().withBold());
+        renderer.frame(screen.copy());
+        assertEquals("", renderer.frame(screen.copy()));
+    }
+
+    // The text a terminal would show for each row: wide glyphs once, trailing blanks dropped
+    private static List<String> expected(ScreenBuffer screen) {
+        List<String> rows = new ArrayList<>();
+        for (int y = 0; y < screen.height(); y++) {
+            StringBuilder row = new StringBuilder();
+            for (int x = 0; x < screen.width(); x++) {
+                row.append(screen.glyph(x, y));
+            }
+            rows.add(row.toString().stripTrailing());
+        }
+        return rows;
+    }
+
+    private static void write(HeadlessBackend terminal, String output) throws IOException {
+        OutputStream out = terminal.output();
+        out.write(output.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
@@ -0,0 +1,159 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ComponentsTest {
+    private static final Terminal.TerminalSize SIZE = new Terminal.TerminalSize(40, 10);
+
+    record Inc() {
+    }
+
+    record Routed(Object key, Object message) implements Components.Routed {
+    }
+
+    record Counter(String name, int n, AtomicInteger views) implements Model<Inc> {
+        @Override
+        public Update<Inc> update(Inc message) {
+            return Update.of(new Counter(name, n + 1, views));
+        }
+
+        @Override
+        public String view() {
+            views.incrementAndGet();
+            return name + " " + n;
+        }
+    }
+
+    // Counts the messages that reach its own update
+    record Board(Components<Object> components, int own) implements Components.Parent<Object> {
+        @Override
+        public Update<Object> update(Object message) {
+            return Update.of(new Board(components, own + 1));
+        }
+
+        @Override
+        public Model<Object> withComponents(Components<Object> components) {
+            return new Board(components, own);
+        }
+
+        @Override
+        public String view() {
+            return Flex.column().children(components.keys().stream().map(components::element).toList()).build()
+                    .render();
+        }
+    }
+
+    private static Components<Object> counters(AtomicInteger views, String... names) {
+        Components<Object> components = Components.of();
+        for (String name : names) {
+            components = components.with(name, new Counter(name, 0, views), m -> new Routed(name, m));
+        }
+        return components;
+    }
+
+    private static String render(Components<Object> components, Memo.Cache memos) {
+        Element view = Flex.column().children(components.keys().stream().map(components::element).toList()).build();
+        return RenderContext.within(RenderContext.frame(0, memos).sized(SIZE), view::render);
+    }
+
+    @Test
+    void routedMessagesSkipTheParent() {
+        Board board = new Board(counters(new AtomicInteger(), "a", "b"), 0);
+        Board next = (Board) Components.update(board, new Routed("b", new Inc())).model();
+        assertEquals(0, next.own());
+        assertEquals(1, next.components().<Counter>get("b").n());
+        assertSame(board.components().<Counter>get("a"), next.components().get("a"));
+
+        Board other = (Board) Components.update(next, "not routed").model();
+        assertEquals(1, other.own());
+        Board unknown = (Board) Components.update(next, new Routed("c", new Inc())).model();
+        assertEquals(1, unknown.own());
+    }
+
+    @Test
+    void nestedParentsRouteRecursively() {
+        Components<Object> inner = counters(new AtomicInteger(), "x");
+        Components<Object> outer = Components.of().with("inner", new Board(inner, 0), m -> new Routed("inner", m));
+        Board board = new Board(outer, 0);
+        Board next = (Board) Components.update(board, new Routed("inner", new Routed("x", new Inc()))).model();
+        Board nested = next.components().get("inner");
+        assertEquals(0, next.own());
+        assertEquals(0, nested.own());
+        assertEquals(1, nested.components().<Counter>get("x").n());
+    }
+
+    @Test
+    void onlyChangedChildrenRenderAgain() {
+        AtomicInteger views = new AtomicInteger();
+        Components<Object> components = counters(views, "a", "b", "c");
+        Memo.Cache memos = new Memo.Cache();
+        assertEquals("a 0\nb 0\nc 0", render(components, memos));
+        assertEquals(3, views.get());
+        components = components.with("b", components.<Counter>get("b").update(new Inc()).model());
+        assertEquals("a 0\nb 1\nc 0", render(components, memos));
+        assertEquals(4, views.get());
+        // The program's cache is not where children are kept
+        assertEquals(0, memos.stats().entries());
+    }
+
+    @Test
+    void parentsKeepTheirViewsApart() {
+        AtomicInteger views = new AtomicInteger();
+        Components<Object> left = counters(views, "a");
+        Components<Object> right = counters(views, "a");
+        Memo.Cache memos = new Memo.Cache();
+        assertEquals("a 0", render(left, memos));
+        assertEquals("a 0", render(right, memos));
+        assertEquals(2, views.get());
+        assertEquals("a 0", render(left, memos));
+        assertEquals(2, views.get());
+    }
+
+    @Test
+    void removedChildrenAreDropped() {
+        AtomicInteger views = new AtomicInteger();
+        Components<Object> components = counters(views, "a", "b");
+        render(components, new Memo.Cache());
+        Components<Object> without = components.without("a");
+        assertEquals("b 0", render(without, new Memo.Cache()));
+        assertEquals(2, views.get());
+        // Added back, it is a new child and renders again
+        assertEquals("b 0\na 0", render(without.with("a", components.get("a"), m -> new Routed("a", m)),
+                new Memo.Cache()));
+        assertEquals(3, views.get());
+    }
+
+    @Test
+    void viewsAtAnOldSizeAreSweptOnceIdle() {
+        Components<Object> components = counters(new AtomicInteger(), "a", "b");
+        Element view = Flex.column().children(components.keys().stream().map(components::element).toList()).build();
+        Memo.Cache memos = new Memo.Cache();
+        Terminal.TerminalSize smaller = new Terminal.TerminalSize(20, 5);
+        for (int frame = 0; frame <= Memo.MAX_IDLE_FRAMES + 16; frame++) {
+            RenderContext context = RenderContext.frame(frame, memos);
+            RenderContext.within(context.sized(frame == 0 ? SIZE : smaller), view::render);
+            context.endFrame();
+            if (frame == 1) {
+                assertEquals(4, components.viewStats().entries());
+            }
+        }
+        assertEquals(2, components.viewStats().entries());
+    }
+
+    @Test
+    void nothingIsCachedOutsideARender() {
+        AtomicInteger views = new AtomicInteger();
+        Components<Object> components = counters(views, "a");
+        for (int i = 0; i < 3; i++) {
+            assertEquals("a 0", components.element("a").render());
+        }
+        assertEquals(3, views.get());
+        assertEquals(List.of("a"), List.copyOf(components.keys()));
+    }
+}
@@ -0,0 +1,61 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DownsampleTest {
+    @Test
+    void shortSeriesAreKeptWhole() {
+        double[] values = {1, Double.NaN, 3, 4};
+        assertArrayEquals(new int[] {0, 2, 3}, Downsample.lttb(Series.of(values), 10));
+    }
+
+    @Test
+    void picksKeepEndsOrderAndPeaks() {
+        Random random = new Random(5);
+        // Both the LTTB path and the min/max preselection for long series
+        for (int n : new int[] {100, 1_000, 200_000}) {
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = Math.sin(i / (n / 20.0)) + random.nextGaussian() * 0.01;
+            }
+            int spike = n / 3;
+            int dip = 2 * n / 3;
+            values[spike] = 50;
+            values[dip] = -50;
+            int points = 60;
+            int[] picks = Downsample.lttb(Series.of(values), points);
+            assertEquals(points, picks.length);
+            assertEquals(0, picks[0]);
+            assertEquals(n - 1, picks[points - 1]);
+            for (int i = 1; i < picks.length; i++) {
+                assertTrue(picks[i] > picks[i - 1], "increasing at " + i);
+            }
+            assertTrue(Arrays.stream(picks).anyMatch(i -> i == spike), "spike kept, n=" + n);
+            assertTrue(Arrays.stream(picks).anyMatch(i -> i == dip), "dip kept, n=" + n);
+        }
+    }
+
+    @Test
+    void gapsAreNeverPicked() {
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 7 == 0 ? Double.NaN : i % 100;
+        }
+        for (int pick : Downsample.lttb(Series.of(values), 80)) {
+            assertTrue(!Double.isNaN(values[pick]), "picked a gap at " + pick);
+        }
+    }
+
+    @Test
+    void minMaxHasBothExtremesOfEachBucket() {
+        double[] values = {5, 1, 9, 3, 3, 3, 8, 2};
+        assertArrayEquals(new int[] {1, 2, 6, 7}, Downsample.minMax(Series.of(values), 2));
+    }
+}
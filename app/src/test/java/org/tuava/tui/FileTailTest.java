@@ -0,0 +1,123 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileTailTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendedLinesArriveInBatches() throws Exception {
+        Path log = dir.resolve("app.log");
+        Files.writeString(log, "old\n");
+        BlockingQueue<List<String>> messages = new LinkedBlockingQueue<>();
+        FileTail<List<String>> tail = new FileTail<>("log", log, false, lines -> lines, null, messages::add);
+        try {
+            Files.writeString(log, "one\ntwo\nthr", StandardOpenOption.APPEND);
+            assertEquals(List.of("one", "two"), messages.poll(5, TimeUnit.SECONDS));
+            Files.writeString(log, "ee\n", StandardOpenOption.APPEND);
+            assertEquals(List.of("three"), messages.poll(5, TimeUnit.SECONDS));
+        } finally {
+            tail.close();
+        }
+    }
+
+    @Test
+    void aBurstTakesOneMessagePerChunk() throws Exception {
+        Path log = dir.resolve("app.log");
+        StringBuilder burst = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            burst.append("line ").append(i).append('\n');
+        }
+        // Written before the tail starts, so it never sees the burst half written
+        Files.writeString(log, burst);
+        BlockingQueue<List<String>> messages = new LinkedBlockingQueue<>();
+        FileTail<List<String>> tail = new FileTail<>("log", log, true, lines -> lines, null, messages::add);
+        try {
+            List<String> lines = new ArrayList<>();
+            int count = 0;
+            while (lines.size() < 20_000) {
+                List<String> batch = messages.poll(5, TimeUnit.SECONDS);
+                assertNotNull(batch, "got " + lines.size() + " lines");
+                lines.addAll(batch);
+                count++;
+            }
+            assertEquals("line 0", lines.get(0));
+            assertEquals("line 19999", lines.get(19_999));
+            long chunks = (burst.length() + FileTail.CHUNK_SIZE - 1) / FileTail.CHUNK_SIZE;
+            assertTrue(count <= chunks + 1, count + " messages");
+        } finally {
+            tail.close();
+        }
+    }
+
+    @Test
+    void rotationFinishesTheOldFileFirst() throws Exception {
+        Path log = dir.resolve("app.log");
+        Files.writeString(log, "");
+        BlockingQueue<List<String>> messages = new LinkedBlockingQueue<>();
+        FileTail<List<String>> tail = new FileTail<>("log", log, false, lines -> lines, null, messages::add);
+        try {
+            Files.writeString(log, "a\n", StandardOpenOption.APPEND);
+            assertEquals(List.of("a"), messages.poll(5, TimeUnit.SECONDS));
+            Files.writeString(log, "b\nunterminated", StandardOpenOption.APPEND);
+            Files.move(log, dir.resolve("app.log.1"));
+            Files.writeString(log, "new\n");
+            List<String> lines = new ArrayList<>();
+            while (lines.size() < 3) {
+                List<String> batch = messages.poll(5, TimeUnit.SECONDS);
+                assertNotNull(batch, "got " + lines);
+                lines.addAll(batch);
+            }
+            // "b" may arrive before the rotation is seen, but never after the new file
+            assertEquals(List.of("b", "unterminated", "new"), lines);
+        } finally {
+            tail.close();
+        }
+    }
+
+    @Test
+    void aTruncatedFileIsReadFromTheStart() throws Exception {
+        Path log = dir.resolve("app.log");
+        Files.writeString(log, "");
+        BlockingQueue<List<String>> messages = new LinkedBlockingQueue<>();
+        FileTail<List<String>> tail = new FileTail<>("log", log, false, lines -> lines, null, messages::add);
+        try {
+            Files.writeString(log, "a long first line\n", StandardOpenOption.APPEND);
+            assertEquals(List.of("a long first line"), messages.poll(5, TimeUnit.SECONDS));
+            Files.writeString(log, "short\n", StandardOpenOption.TRUNCATE_EXISTING);
+            assertEquals(List.of("short"), messages.poll(5, TimeUnit.SECONDS));
+        } finally {
+            tail.close();
+        }
+    }
+
+    @Test
+    void aReadErrorBecomesAMessage() throws Exception {
+        // A directory can be opened but not read
+        Path log = Files.createDirectory(dir.resolve("app.log"));
+        BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+        FileTail<Object> tail = new FileTail<>("log", log, true, lines -> lines, e -> e, messages::add);
+        try {
+            Object message = messages.poll(5, TimeUnit.SECONDS);
+            assertTrue(message instanceof IOException, String.valueOf(message));
+        } finally {
+            tail.close();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+// Rendering children on the fork-join pool must give exactly the sequential output, and painting
+// cells directly must give exactly what painting the rendered text does
+class FlexTest {
+    private static final String[] WORDS = {"a", "hello", "左右", "wide 字", "", "xy z", "  sp  "};
+
+    @Test
+    void parallelMatchesSequential() {
+        for (int seed = 0; seed < 200; seed++) {
+            Element parallel = tree(new Random(seed), 3, true);
+            Element sequential = tree(new Random(seed), 3, false);
+            assertEquals(sequential.render(), parallel.render(), "seed " + seed);
+        }
+    }
+
+    @Test
+    void parallelChildrenKeepTheirOrder() {
+        List<Element> children = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            int n = i;
+            children.add(slow(() -> "child " + n));
+        }
+        String parallel = Flex.column().parallel(1).children(children).build().render();
+        String sequential = Flex.column().sequential().children(children).build().render();
+        assertEquals(sequential, parallel);
+        assertEquals("child 0", parallel.lines().findFirst().orElseThrow().strip());
+        assertEquals("child 63", parallel.lines().reduce((a, b) -> b).orElseThrow().strip());
+    }
+
+    @Test
+    void aFailingChildFailsTheRender() {
+        Element failing = slow(() -> {
+            throw new IllegalStateException("boom");
+        });
+        Flex flex = Flex.row().parallel(1).add(slow(() -> "fine")).add(failing).build();
+        IllegalStateException e = assertThrows(IllegalStateException.class, flex::render);
+        // The fork-join pool may rethrow it as a new exception of the same type
+        assertTrue(e.getMessage().contains("boom"), e.getMessage());
+    }
+
+    @Test
+    void paintMatchesRender() {
+        for (int seed = 0; seed < 2000; seed++) {
+            Element element = paintTree(new Random(seed), 4);
+            ScreenBuffer viaText = new ScreenBuffer(60, 30);
+            int textRows = viaText.paint(1, 1, element.render());
+            ScreenBuffer direct = new ScreenBuffer(60, 30);
+            int paintedRows = element.paint(direct, 1, 1);
+            assertEquals(viaText.toString(), direct.toString(), "seed " + seed);
+            assertEquals(textRows, paintedRows, "seed " + seed);
+            // Again, with any memos now hit
+            ScreenBuffer again = new ScreenBuffer(60, 30);
+            element.paint(again, 1, 1);
+            assertEquals(direct.toString(), again.toString(), "seed " + seed);
+        }
+    }
+
+    @Test
+    void aKeptFlexFollowsTheFrameClock() {
+        // Kept across frames, as in a field or a Memo hit
+        Element kept = Flex.row().gap(1)
+                .add(Spinner.of().frames(Spinner.LINE).interval(Duration.ofNanos(1)).style(Style.of()).build())
+                .add(Text.of("working").build())
+                .build();
+        Memo.Cache memos = new Memo.Cache();
+        for (long frame = 0; frame < 4; frame++) {
+            RenderContext context = RenderContext.frame(frame, memos);
+            ScreenBuffer painted = new ScreenBuffer(20, 1);
+            String rendered = RenderContext.within(context, () -> {
+                kept.paint(painted, 0, 0);
+                return kept.render();
+            });
+            ScreenBuffer viaText = new ScreenBuffer(20, 1);
+            viaText.paint(0, 0, rendered);
+            assertEquals(viaText.toString(), painted.toString(), "frame " + frame);
+            assertEquals(Spinner.LINE.get((int) frame), painted.row(0).substring(0, 1), "frame " + frame);
+        }
+    }
+
+    // Every kind of element that paints itself, and one that only renders
+    private static Element paintTree(Random random, int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            return switch (random.nextInt(4)) {
+                case 0 -> Text.of(word + "\n" + WORDS[random.nextInt(WORDS.length)]).build();
+                case 1 -> Text.of(word).bold().foreground(Style.Color.RED).build();
+                case 2 -> () -> word + "\n" + word;
+                default -> Table.of(List.of("a", "bb"), List.of(List.of("1", "2"), List.of("333", "4")))
+                        .width(3 + random.nextInt(10)).height(1 + random.nextInt(4)).build();
+            };
+        }
+        List<Element> children = new ArrayList<>();
+        for (int n = random.nextInt(4); n > 0; n--) {
+            children.add(paintTree(random, depth - 1));
+        }
+        switch (random.nextInt(6)) {
+            case 0:
+                return Rect.of().children(children).build();
+            case 1:
+                Element body = paintTree(random, depth - 1);
+                return Memo.of(new Object(), 1, () -> body);
+            default:
+                Flex.Builder flex = random.nextBoolean() ? Flex.row() : Flex.column();
+                flex.justify(Flex.Justify.values()[random.nextInt(Flex.Justify.values().length)]);
+                flex.align(Flex.Align.values()[random.nextInt(Flex.Align.values().length)]);
+                flex.gap(random.nextInt(3));
+                if (random.nextInt(3) == 0) {
+                    flex.width(random.nextInt(30));
+                }
+                if (random.nextInt(3) == 0) {
+                    flex.height(random.nextInt(8));
+                }
+                return flex.children(children).build();
+        }
+    }
+
+    // The same random tree, with every Flex either parallel for any child or sequential
+    private static Element tree(Random random, int depth, boolean parallel) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            String text = "x".repeat(random.nextInt(6)) + (random.nextBoolean() ? "\n中文" : " é");
+            return random.nextBoolean() ? Text.of(text).bold().build() : Text.of(text).build();
+        }
+        Flex.Builder flex = random.nextBoolean() ? Flex.row() : Flex.column();
+        flex.gap(random.nextInt(2));
+        flex.justify(Flex.Justify.values()[random.nextInt(Flex.Justify.values().length)]);
+        flex.align(Flex.Align.values()[random.nextInt(Flex.Align.values().length)]);
+        if (random.nextBoolean()) {
+            flex.width(10 + random.nextInt(30));
+        }
+        if (parallel) {
+            flex.parallel(1);
+        } else {
+            flex.sequential();
+        }
+        for (int n = 1 + random.nextInt(5); n > 0; n--) {
+            flex.add(random.nextInt(5) == 0
+                    ? Rect.size(8 + random.nextInt(8), 3).boxed().add(tree(random, depth - 1, parallel)).build()
+                    : tree(random, depth - 1, parallel));
+        }
+        return flex.build();
+    }
+
+    // A child expensive enough to be forked
+    private static Element slow(Supplier<String> text) {
+        return new Element() {
+            @Override
+            public String render() {
+                return text.get();
+            }
+
+            @Override
+            public int cost() {
+                return 1_000_000;
+            }
+        };
+    }
+}
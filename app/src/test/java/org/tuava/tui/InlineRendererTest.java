@@ -0,0 +1,99 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Inline frames, played into a HeadlessBackend below some earlier shell output, must redraw the
+// live region in place and never touch the lines above it
+class InlineRendererTest {
+    @Test
+    void regionGrowsAndShrinksInPlace() throws IOException {
+        HeadlessBackend terminal = new HeadlessBackend(20, 8);
+        InlineRenderer renderer = start(terminal, 5);
+        write(terminal, renderer.frame("one", List.of()));
+        assertEquals(List.of("$ run", "one", "", ""), top(terminal, 4));
+        write(terminal, renderer.frame("one\ntwo\nthree", List.of()));
+        assertEquals(List.of("$ run", "one", "two", "three", ""), top(terminal, 5));
+        write(terminal, renderer.frame("four", List.of()));
+        assertEquals(List.of("$ run", "four", "", "", ""), top(terminal, 5));
+        assertEquals(1, terminal.cursorRow());
+    }
+
+    @Test
+    void onlyChangedLinesAreRewritten() throws IOException {
+        HeadlessBackend terminal = new HeadlessBackend(20, 8);
+        InlineRenderer renderer = start(terminal, 5);
+        write(terminal, renderer.frame("status: 1\nsame line\nsame too", List.of()));
+        String next = renderer.frame("status: 2\nsame line\nsame too", List.of());
+        assertFalse(next.contains("same"), next);
+        write(terminal, next);
+        assertEquals(List.of("$ run", "status: 2", "same line", "same too"), top(terminal, 4));
+        assertEquals("\r", renderer.frame("status: 2\nsame line\nsame too", List.of()).replaceAll("\u001b\\[[0-9]*A", ""));
+    }
+
+    @Test
+    void printedLinesGoAboveTheRegion() throws IOException {
+        HeadlessBackend terminal = new HeadlessBackend(20, 8);
+        InlineRenderer renderer = start(terminal, 5);
+        write(terminal, renderer.frame("live 1\nlive 2", List.of()));
+        write(terminal, renderer.frame("live 3", List.of("done: a", "done: b")));
+        assertEquals(List.of("$ run", "done: a", "done: b", "live 3", ""), top(terminal, 5));
+    }
+
+    @Test
+    void tallViewsAreCutToTheRegion() throws IOException {
+        HeadlessBackend terminal = new HeadlessBackend(20, 8);
+        InlineRenderer renderer = start(terminal, 2);
+        write(terminal, renderer.frame("a\nb\nc\nd", List.of()));
+        assertEquals(List.of("$ run", "a", "b", ""), top(terminal, 4));
+    }
+
+    @Test
+    void growingAtTheBottomScrollsTheShellOutputUp() throws IOException {
+        HeadlessBackend terminal = new HeadlessBackend(20, 3);
+        write(terminal, "$ one\r\n$ two\r\n");
+        InlineRenderer renderer = new InlineRenderer(3);
+        write(terminal, renderer.enter());
+        write(terminal, renderer.frame("x\ny\nz", List.of()));
+        assertEquals(List.of("x", "y", "z"), terminal.screen());
+        assertEquals(List.of("$ one", "$ two"), terminal.scrollback());
+        write(terminal, renderer.frame("x", List.of()));
+        assertEquals(List.of("x", "", ""), terminal.screen());
+    }
+
+    @Test
+    void exitLeavesTheLastFrameAndRestoresTheTerminal() throws IOException {
+        HeadlessBackend terminal = new HeadlessBackend(20, 8);
+        InlineRenderer renderer = start(terminal, 5);
+        write(terminal, renderer.frame("final\nframe", List.of()));
+        write(terminal, renderer.exit());
+        assertEquals(List.of("$ run", "final", "frame", ""), top(terminal, 4));
+        assertEquals(3, terminal.cursorRow());
+        assertTrue(terminal.isCursorVisible());
+    }
+
+    private static InlineRenderer start(HeadlessBackend terminal, int lines) throws IOException {
+        write(terminal, "$ run\r\n");
+        InlineRenderer renderer = new InlineRenderer(lines);
+        write(terminal, renderer.enter());
+        return renderer;
+    }
+
+    private static List<String> top(HeadlessBackend terminal, int rows) {
+        return terminal.screen().subList(0, rows);
+    }
+
+    private static void write(HeadlessBackend terminal, String text) throws IOException {
+        OutputStream out = terminal.output();
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
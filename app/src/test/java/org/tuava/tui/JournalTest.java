@@ -0,0 +1,154 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTest {
+    enum Msg {
+        UP, DOWN
+    }
+
+    record Counter(int count) implements Model<Msg> {
+        @Override
+        public Update<Msg> update(Msg msg) {
+            return Update.of(new Counter(msg == Msg.UP ? count + 1 : count - 1));
+        }
+
+        @Override
+        public String view() {
+            return "count " + count;
+        }
+    }
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void entriesReadBackInOrder() throws IOException {
+        Path path = dir.resolve("entries.jnl");
+        Journal.Codec<Msg> codec = Journal.Codec.ofEnum(Msg.class);
+        Event key = new Event.KeyEvent(Event.Key.CHAR, "+");
+        try (Journal.Writer writer = Journal.record(path)) {
+            long start = writer.startNanos();
+            writer.event(start + 10, key);
+            writer.message(Journal.Source.STREAM, start + 20, Msg.UP, codec);
+            writer.message(Journal.Source.PURE, start + 30, Msg.DOWN, codec);
+            writer.message(Journal.Source.EFFECT, start + 40, Msg.DOWN, codec);
+        }
+        try (Journal.Reader reader = Journal.open(path)) {
+            Journal.Entry input = reader.next();
+            assertEquals(Journal.Source.INPUT, input.source());
+            assertEquals(10, input.offsetNanos());
+            assertEquals(key, input.event());
+            Journal.Entry stream = reader.next();
+            assertEquals(Journal.Source.STREAM, stream.source());
+            assertEquals(Msg.UP, stream.message(codec));
+            Journal.Entry pure = reader.next();
+            assertEquals(Journal.Source.PURE, pure.source());
+            assertArrayEquals(new byte[0], pure.payload());
+            assertEquals(Msg.DOWN, reader.next().message(codec));
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void journalsLargerThanOneMappingReadBack() throws IOException {
+        Path path = dir.resolve("large.jnl");
+        Journal.Codec<Msg> codec = Journal.Codec.ofEnum(Msg.class);
+        int records = 200_000;
+        try (Journal.Writer writer = Journal.record(path)) {
+            for (int i = 0; i < records; i++) {
+                writer.message(Journal.Source.STREAM, writer.startNanos() + i, i % 3 == 0 ? Msg.DOWN : Msg.UP, codec);
+            }
+        }
+        try (Journal.Reader reader = Journal.open(path)) {
+            int read = 0;
+            for (Journal.Entry entry = reader.next(); entry != null; entry = reader.next()) {
+                assertEquals(read, entry.offsetNanos());
+                assertEquals(read % 3 == 0 ? Msg.DOWN : Msg.UP, entry.message(codec));
+                read++;
+            }
+            assertEquals(records, read);
+        }
+    }
+
+    @Test
+    void replayDeliversTheRecordedMessages() throws Exception {
+        Path path = dir.resolve("session.jnl");
+        Journal.Codec<Msg> codec = Journal.Codec.ofEnum(Msg.class);
+        HeadlessBackend terminal = new HeadlessBackend(30, 5);
+        List<Object> recorded = Collections.synchronizedList(new ArrayList<>());
+        Program<Msg> recording = program(recorded).backend(terminal).record(path, codec).build();
+        Thread thread = start(recording);
+        terminal.type("++-++");
+        await(() -> terminal.line(0).equals("count 3"));
+        recording.quit();
+        thread.join(5000);
+
+        List<Object> replayed = Collections.synchronizedList(new ArrayList<>());
+        Program<Msg> replay = program(replayed).backend(new HeadlessBackend(30, 5)).replay(path, codec)
+                .replaySpeed(0).build();
+        Thread replaying = start(replay);
+        replaying.join(5000);
+        assertFalse(replaying.isAlive(), "a replay quits at the end of the journal");
+        assertEquals(List.of(Msg.UP, Msg.UP, Msg.DOWN, Msg.UP, Msg.UP), recorded);
+        assertEquals(recorded, replayed);
+    }
+
+    private static Program.Builder<Msg> program(List<Object> messages) {
+        return Program.of(JournalTest::toMsg, (Model<Msg> m) -> List.<Stream<Msg>>of())
+                .listener(new ProgramListener() {
+                    @Override
+                    public void onMessage(Object message, long queuedNanos, long updateNanos) {
+                        messages.add(message);
+                    }
+                });
+    }
+
+    private static Optional<Msg> toMsg(Event event) {
+        if (event instanceof Event.KeyEvent key && key.key() == Event.Key.CHAR) {
+            return switch (key.sequence()) {
+                case "+" -> Optional.of(Msg.UP);
+                case "-" -> Optional.of(Msg.DOWN);
+                default -> Optional.empty();
+            };
+        }
+        return Optional.empty();
+    }
+
+    private static Thread start(Program<Msg> program) {
+        Thread thread = new Thread(() -> {
+            try {
+                program.run(new Counter(0));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int v = 1; v <= 20; v++) {
+            histogram.record(v);
+        }
+        assertEquals(20, histogram.count());
+        assertEquals(1, histogram.min());
+        assertEquals(20, histogram.max());
+        assertEquals(10, histogram.percentile(50));
+        assertEquals(19, histogram.percentile(95));
+        assertEquals(20, histogram.percentile(100));
+        assertEquals(10.5, histogram.mean(), 1e-9);
+    }
+
+    @Test
+    void percentilesAreWithinThreePercentOfTheExactRank() {
+        Random random = new Random(7);
+        long[] values = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal, like real latencies: mostly around a millisecond with a long tail
+            values[i] = (long) Math.exp(13.8 + random.nextGaussian());
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double p : new double[] {1, 10, 50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = histogram.percentile(p);
+            assertTrue(reported >= exact && reported <= exact * 1.032,
+                    "p" + p + ": exact " + exact + ", reported " + reported);
+        }
+        assertEquals(values[values.length - 1], histogram.percentile(100));
+    }
+
+    @Test
+    void addMergesCounts() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(5);
+        b.record(1_000_000);
+        b.record(7);
+        a.add(b);
+        assertEquals(3, a.count());
+        assertEquals(5, a.min());
+        assertEquals(1_000_000, a.max());
+        assertEquals(7, a.percentile(50));
+        a.reset();
+        assertEquals(0, a.count());
+        assertEquals(0, a.percentile(50));
+    }
+}
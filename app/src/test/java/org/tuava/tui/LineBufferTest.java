@@ -0,0 +1,49 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LineBufferTest {
+    private static final String TEXT = "plain\r\nüñïcødé 中文 🚀\n\nlast line without end";
+
+    @Test
+    void everySplitPointGivesTheSameLines() {
+        byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = List.of("plain", "üñïcødé 中文 🚀", "", "last line without end");
+        // Chunk boundaries land inside multi-byte characters and between '\r' and '\n'
+        for (int chunk = 1; chunk <= bytes.length; chunk++) {
+            LineBuffer buffer = new LineBuffer(1 << 16);
+            List<String> lines = new ArrayList<>();
+            for (int from = 0; from < bytes.length; from += chunk) {
+                int length = Math.min(chunk, bytes.length - from);
+                byte[] piece = new byte[chunk];
+                System.arraycopy(bytes, from, piece, 0, length);
+                lines.addAll(buffer.split(piece, length));
+            }
+            lines.add(buffer.flush());
+            assertEquals(expected, lines, "chunks of " + chunk);
+            assertNull(buffer.flush());
+        }
+    }
+
+    @Test
+    void overlongLinesArriveInPieces() {
+        LineBuffer buffer = new LineBuffer(8);
+        byte[] bytes = "0123456789abcdef\nxy".getBytes(StandardCharsets.US_ASCII);
+        List<String> lines = new ArrayList<>();
+        for (int from = 0; from < bytes.length; from += 5) {
+            int length = Math.min(5, bytes.length - from);
+            byte[] piece = new byte[length];
+            System.arraycopy(bytes, from, piece, 0, length);
+            lines.addAll(buffer.split(piece, length));
+        }
+        assertEquals("0123456789abcdef", String.join("", lines));
+        assertEquals("xy", buffer.flush());
+    }
+}
@@ -0,0 +1,158 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+// A memoized subtree is built again only when its deps change, however often the view around it is
+class MemoTest {
+    static final AtomicInteger BUILDS = new AtomicInteger();
+
+    record Key(String text) {
+    }
+
+    // Typing edits the input line; Enter moves it into the memoized list
+    record Todo(List<String> items, String input) implements Model<Key> {
+        @Override
+        public Update<Key> update(Key key) {
+            if (key.text().equals("\r")) {
+                return Update.of(new Todo(append(items, input), ""));
+            }
+            return Update.of(new Todo(items, input + key.text()));
+        }
+
+        @Override
+        public String view() {
+            return Flex.column()
+                    .add(Memo.of(MemoTest.class, items, () -> {
+                        BUILDS.incrementAndGet();
+                        return Text.of(items.isEmpty() ? "(none)" : String.join("\n", items)).build();
+                    }))
+                    .add(Text.of("> " + input).build())
+                    .build()
+                    .render();
+        }
+
+        private static List<String> append(List<String> items, String item) {
+            List<String> next = new java.util.ArrayList<>(items);
+            next.add(item);
+            return List.copyOf(next);
+        }
+    }
+
+    @Test
+    void typingDoesNotRebuildTheList() throws Exception {
+        BUILDS.set(0);
+        HeadlessBackend terminal = new HeadlessBackend(30, 6);
+        Program<Key> program = program(terminal);
+        Thread thread = start(program, new Todo(List.of(), ""));
+        terminal.type("milk");
+
+        await(() -> terminal.line(1).equals("> milk"));
+        assertEquals("(none)", terminal.line(0));
+        assertEquals(1, BUILDS.get());
+
+        terminal.type("\reggs");
+        await(() -> terminal.line(1).equals("> eggs"));
+        assertEquals("milk", terminal.line(0));
+        assertEquals(2, BUILDS.get());
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void aHitCostsOne() {
+        Object key = new Object();
+        Element expensive = new Element() {
+            @Override
+            public String render() {
+                return "expensive";
+            }
+
+            @Override
+            public int cost() {
+                return 1000;
+            }
+        };
+        RenderContext frame = RenderContext.frame(0, new Memo.Cache()).sized(new Terminal.TerminalSize(30, 6));
+        RenderContext.within(frame, () -> {
+            assertEquals(1000, Memo.of(key, 1, () -> expensive).cost());
+            assertEquals("expensive", Memo.of(key, 1, () -> expensive).render());
+            assertEquals(1, Memo.of(key, 1, () -> expensive).cost());
+            assertEquals(1000, Memo.of(key, 2, () -> expensive).cost());
+            return null;
+        });
+        // Outside a program's render nothing is cached
+        Memo.of(key, 1, () -> expensive).render();
+        assertEquals(1000, Memo.of(key, 1, () -> expensive).cost());
+    }
+
+    @Test
+    void eachSizeAndEachProgramHasItsOwnEntries() {
+        AtomicInteger builds = new AtomicInteger();
+        Memo.Cache first = new Memo.Cache();
+        Memo.Cache second = new Memo.Cache();
+        Terminal.TerminalSize narrow = new Terminal.TerminalSize(10, 5);
+        Terminal.TerminalSize wide = new Terminal.TerminalSize(80, 5);
+        for (int i = 0; i < 2; i++) {
+            for (Memo.Cache cache : List.of(first, second)) {
+                for (Terminal.TerminalSize size : List.of(narrow, wide)) {
+                    String out = RenderContext.within(RenderContext.frame(0, cache).sized(size),
+                            () -> Memo.of("width", 1, () -> {
+                                builds.incrementAndGet();
+                                return Text.of("w" + size.width()).build();
+                            }).render());
+                    assertEquals(Text.of("w" + size.width()).build().render(), out);
+                }
+            }
+        }
+        assertEquals(4, builds.get());
+        assertEquals(2, first.stats().entries());
+        assertEquals(2, second.stats().entries());
+    }
+
+    private static Optional<Key> keys(Event event) {
+        if (event instanceof Event.KeyEvent key && key.key() == Event.Key.CHAR) {
+            return Optional.of(new Key(key.sequence()));
+        }
+        if (event instanceof Event.KeyEvent key && key.key() == Event.Key.ENTER) {
+            return Optional.of(new Key("\r"));
+        }
+        return Optional.empty();
+    }
+
+    private static Program<Key> program(HeadlessBackend terminal) {
+        return Program.of(MemoTest::keys, (Model<Key> m) -> List.<Stream<Key>>of())
+                .backend(terminal)
+                .build();
+    }
+
+    private static Thread start(Program<Key> program, Model<Key> model) {
+        Thread thread = new Thread(() -> {
+            try {
+                program.run(model);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Lines read through the sparse index match the file, wherever pages, segments, scan chunks and
+// index entries happen to split it
+class PagedFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void linesMatchTheFileAcrossSegmentsAndIndexEntries() throws Exception {
+        Random random = new Random(7);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Lines of 0 to about 100 bytes, some multi-byte, so no boundary falls in a fixed place
+            expected.add(i % 97 == 0 ? "" : i + " " + "é".repeat(random.nextInt(8)) + "x".repeat(random.nextInt(90)));
+        }
+        Path file = write(expected, "\n", true);
+        // 4 KiB segments: hundreds of segment boundaries and several 64 KiB scan chunks
+        try (PagedFile paged = PagedFile.open(file, 12)) {
+            awaitIndex(paged);
+            assertEquals(expected.size(), paged.lineCount());
+            assertEquals(1.0, paged.indexProgress(), 0);
+            for (int first : new int[] { 0, 1, 126, 127, 128, 129, 255, 256, 5_000, 19_990 }) {
+                assertEquals(slice(expected, first, 10), paged.lines(first, 10), "from " + first);
+            }
+            for (int first = 0; first < expected.size(); first += 331) {
+                assertEquals(slice(expected, first, 40), paged.lines(first, 40), "from " + first);
+            }
+            assertEquals(List.of(), paged.lines(expected.size(), 5));
+            assertEquals(List.of(), paged.lines(-1, 5));
+        }
+    }
+
+    @Test
+    void theIndexGrowsPastOneBlock() throws Exception {
+        // One index block covers 8192 entries of 128 lines
+        int count = 8192 * PagedFile.INDEX_STRIDE + 1000;
+        List<String> expected = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expected.add(Integer.toString(i));
+        }
+        Path file = write(expected, "\n", true);
+        try (PagedFile paged = PagedFile.open(file, 20)) {
+            awaitIndex(paged);
+            assertEquals(count, paged.lineCount());
+            int boundary = 8192 * PagedFile.INDEX_STRIDE;
+            assertEquals(slice(expected, boundary - 2, 4), paged.lines(boundary - 2, 4));
+            assertEquals(slice(expected, count - 3, 3), paged.lines(count - 3, 10));
+        }
+    }
+
+    @Test
+    void crlfAndAnUnterminatedLastLine() throws Exception {
+        Path file = Files.write(dir.resolve("crlf.txt"), "one\r\ntwo\r\n\r\nlast".getBytes(StandardCharsets.UTF_8));
+        try (PagedFile paged = PagedFile.open(file)) {
+            awaitIndex(paged);
+            assertEquals(4, paged.lineCount());
+            assertEquals(List.of("one", "two", "", "last"), paged.lines(0, 10));
+            assertEquals(List.of("", "last"), paged.tail(2));
+        }
+    }
+
+    @Test
+    void tailAndLinesFromDoNotNeedTheIndex() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            expected.add("line " + i);
+        }
+        Path file = write(expected, "\n", true);
+        try (PagedFile paged = PagedFile.open(file, 12)) {
+            assertEquals(slice(expected, 4_997, 3), paged.tail(3));
+            assertEquals(slice(expected, 0, 2), paged.linesFrom(0, 2));
+            // An offset inside a line starts at the next one
+            long offset = Files.size(file) / 2;
+            List<String> from = paged.linesFrom(offset, 3);
+            int first = expected.indexOf(from.get(0));
+            assertTrue(first > 0, String.valueOf(from));
+            assertTrue(byteOffset(expected, first) >= offset);
+            assertTrue(byteOffset(expected, first - 1) < offset);
+            assertEquals(slice(expected, first, 3), from);
+            assertEquals(List.of(), paged.linesFrom(Files.size(file), 3));
+        }
+    }
+
+    @Test
+    void longLinesAreCut() throws Exception {
+        String longLine = "x".repeat(PagedFile.MAX_LINE_BYTES + 100);
+        Path file = write(List.of("before", longLine, "after"), "\n", false);
+        try (PagedFile paged = PagedFile.open(file, 12)) {
+            awaitIndex(paged);
+            assertEquals(List.of("before", longLine.substring(0, PagedFile.MAX_LINE_BYTES), "after"),
+                    paged.lines(0, 3));
+        }
+    }
+
+    @Test
+    void anEmptyFileHasNoLines() throws Exception {
+        Path file = Files.write(dir.resolve("empty.txt"), new byte[0]);
+        try (PagedFile paged = PagedFile.open(file)) {
+            awaitIndex(paged);
+            assertEquals(0, paged.lineCount());
+            assertEquals(List.of(), paged.lines(0, 5));
+            assertEquals(List.of(), paged.tail(5));
+        }
+    }
+
+    private Path write(List<String> lines, String separator, boolean terminated) throws IOException {
+        String text = String.join(separator, lines) + (terminated ? separator : "");
+        return Files.write(dir.resolve("lines.txt"), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> slice(List<String> lines, int first, int count) {
+        return lines.subList(first, Math.min(lines.size(), first + count));
+    }
+
+    private static long byteOffset(List<String> lines, int line) {
+        long offset = 0;
+        for (int i = 0; i < line; i++) {
+            offset += lines.get(i).getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        return offset;
+    }
+
+    private static void awaitIndex(PagedFile paged) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!paged.isIndexComplete()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+// A command that writes faster than update can keep up gets batched instead of flooding the queue
+class ProcessStreamTest {
+    record Exit(int code) {
+    }
+
+    // Stands in for the program: messages wait in a queue until a slow update takes them
+    static final class SlowEmitter implements Stream.Emitter<Object> {
+        final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        final AtomicInteger maxPending = new AtomicInteger();
+
+        @Override
+        public void accept(Object message) {
+            queue.add(message);
+            maxPending.accumulateAndGet(queue.size(), Math::max);
+        }
+
+        @Override
+        public int pending() {
+            return queue.size();
+        }
+
+        Object take() throws InterruptedException {
+            Object message = queue.poll(10, TimeUnit.SECONDS);
+            assertNotNull(message, "timed out");
+            return message;
+        }
+    }
+
+    @Test
+    void aFastCommandIsBatchedForASlowConsumer() throws Exception {
+        SlowEmitter emitter = new SlowEmitter();
+        ProcessStream<Object> stream = ProcessStream.<Object>of("seq", "seq", "1", "200000")
+                .stdout(lines -> lines)
+                .exit(Exit::new)
+                .build();
+        AutoCloseable run = stream.start(emitter, null);
+        try {
+            List<String> lines = new ArrayList<>();
+            int messages = 0;
+            Object message;
+            while (!((message = emitter.take()) instanceof Exit)) {
+                @SuppressWarnings("unchecked")
+                List<String> batch = (List<String>) message;
+                lines.addAll(batch);
+                messages++;
+                Thread.sleep(5);
+            }
+            assertEquals(new Exit(0), message);
+            assertEquals(200_000, lines.size());
+            assertEquals("1", lines.get(0));
+            assertEquals("200000", lines.get(199_999));
+            assertTrue(messages < 200, messages + " messages");
+            // The exit message may join the last batch in the queue
+            assertTrue(emitter.maxPending.get() <= 3, "pending " + emitter.maxPending.get());
+        } finally {
+            run.close();
+        }
+    }
+
+    @Test
+    void closingStopsTheCommandWithoutAnExitMessage() throws Exception {
+        SlowEmitter emitter = new SlowEmitter();
+        ProcessStream<Object> stream = ProcessStream.<Object>of("sleep", "sleep", "30")
+                .stdout(lines -> lines)
+                .exit(Exit::new)
+                .build();
+        long start = System.nanoTime();
+        stream.start(emitter, null).close();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertNull(emitter.queue.poll(200, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,210 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+// Whole programs driven through a HeadlessBackend: keys in, screen out
+class ProgramTest {
+    record Key(String text) {
+    }
+
+    record Typed(String text) implements ElementModel<Key> {
+        @Override
+        public Update<Key> update(Key key) {
+            return Update.of(new Typed(text + key.text()));
+        }
+
+        @Override
+        public Element element() {
+            return Flex.column()
+                    .add(Text.of("typed: " + text).build())
+                    .add(Text.of("中文 " + text.length()).build())
+                    .build();
+        }
+    }
+
+    // Starts with a future that may or may not bring a message
+    record Waiting(CompletableFuture<Key> next) implements Model<Key> {
+        @Override
+        public Effect<Key> init() {
+            return Effect.fromFuture(next);
+        }
+
+        @Override
+        public Update<Key> update(Key key) {
+            return Update.of(this);
+        }
+
+        @Override
+        public String view() {
+            return "waiting";
+        }
+    }
+
+    // The same frames as Typed, through the text path
+    record TypedText(String text) implements Model<Key> {
+        @Override
+        public Update<Key> update(Key key) {
+            return Update.of(new TypedText(text + key.text()));
+        }
+
+        @Override
+        public String view() {
+            return new Typed(text).element().render();
+        }
+    }
+
+    record Sized() implements Model<Key> {
+        @Override
+        public Update<Key> update(Key key) {
+            return Update.of(this);
+        }
+
+        @Override
+        public String view() {
+            return "any size";
+        }
+
+        @Override
+        public String view(Terminal.TerminalSize size) {
+            return size.width() + "x" + size.height();
+        }
+    }
+
+    private static Optional<Key> keys(Event event) {
+        if (event instanceof Event.KeyEvent key && key.key() == Event.Key.CHAR) {
+            return Optional.of(new Key(key.sequence()));
+        }
+        return Optional.empty();
+    }
+
+    @Test
+    void keysUpdateTheScreen() throws Exception {
+        HeadlessBackend terminal = new HeadlessBackend(30, 4);
+        Program<Key> program = program(terminal);
+        Thread thread = start(program, new Typed(""));
+        terminal.type("abc");
+        await(() -> terminal.line(0).equals("typed: abc"));
+        assertEquals("中文 3", terminal.line(1));
+        assertTrue(terminal.isAlternateScreen());
+        program.quit();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertFalse(terminal.isAlternateScreen());
+        assertFalse(terminal.isRawMode());
+    }
+
+    @Test
+    void elementAndTextViewsLeaveTheSameScreen() throws Exception {
+        HeadlessBackend painted = new HeadlessBackend(30, 4);
+        HeadlessBackend parsed = new HeadlessBackend(30, 4);
+        Program<Key> elements = program(painted);
+        Program<Key> text = program(parsed);
+        Thread first = start(elements, new Typed(""));
+        Thread second = start(text, new TypedText(""));
+        for (String key : List.of("a", "b", "c", "d")) {
+            painted.type(key);
+            parsed.type(key);
+        }
+        await(() -> painted.line(1).equals("中文 4") && parsed.line(1).equals("中文 4"));
+        assertEquals(parsed.screen(), painted.screen());
+        elements.quit();
+        text.quit();
+        first.join(5000);
+        second.join(5000);
+    }
+
+    @Test
+    void sizeAwareViewsFollowResizes() throws Exception {
+        HeadlessBackend terminal = new HeadlessBackend(40, 10);
+        Program<Key> program = program(terminal);
+        Thread thread = start(program, new Sized());
+        await(() -> terminal.line(0).equals("40x10"));
+        terminal.resize(25, 6);
+        // A resize alone redraws, with no message to prompt it
+        await(() -> terminal.line(0).equals("25x6"));
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void theSizeIsReadOnlyWhenItChanges() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        HeadlessBackend terminal = new HeadlessBackend(40, 10) {
+            @Override
+            public Terminal.TerminalSize size() {
+                queries.incrementAndGet();
+                return super.size();
+            }
+        };
+        Program<Key> program = program(terminal);
+        Thread thread = start(program, new Sized());
+        await(() -> terminal.line(0).equals("40x10"));
+        terminal.type("abc");
+        Thread.sleep(500);
+        assertEquals(1, queries.get());
+        terminal.resize(25, 6);
+        await(() -> terminal.line(0).equals("25x6"));
+        assertEquals(2, queries.get());
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void aFutureWithoutAMessageDrawsNothing() throws Exception {
+        HeadlessBackend terminal = new HeadlessBackend(30, 4);
+        AtomicInteger frames = new AtomicInteger();
+        Program<Key> program = Program.of(ProgramTest::keys, (Model<Key> m) -> List.<Stream<Key>>of())
+                .backend(terminal)
+                .listener(new ProgramListener() {
+                    @Override
+                    public void onFrame(long viewNanos, long encodeNanos, long writeNanos, long bytes,
+                            long latencyNanos) {
+                        frames.incrementAndGet();
+                    }
+                })
+                .build();
+        Thread thread = start(program, new Waiting(CompletableFuture.completedFuture(null)));
+        await(() -> frames.get() > 0);
+        Thread.sleep(200);
+        assertEquals(1, frames.get());
+        program.quit();
+        thread.join(5000);
+    }
+
+    private static Program<Key> program(HeadlessBackend terminal) {
+        return Program.of(ProgramTest::keys, (Model<Key> m) -> List.<Stream<Key>>of()).backend(terminal).build();
+    }
+
+    private static Thread start(Program<Key> program, Model<Key> model) {
+        Thread thread = new Thread(() -> {
+            try {
+                program.run(model);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
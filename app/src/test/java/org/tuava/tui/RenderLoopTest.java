@@ -0,0 +1,169 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+// A pipelined program draws on its own thread and only ever draws the newest model, so a slow
+// terminal never holds up update
+class RenderLoopTest {
+    // Every flush takes as long as a congested link would
+    static final class SlowBackend extends HeadlessBackend {
+        private final OutputStream slow;
+
+        SlowBackend(int width, int height, long flushMillis) {
+            super(width, height);
+            this.slow = new FilterOutputStream(super.output()) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    try {
+                        Thread.sleep(flushMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    super.flush();
+                }
+            };
+        }
+
+        @Override
+        public OutputStream output() {
+            return slow;
+        }
+    }
+
+    record Key() {
+    }
+
+    record Count(int n, int failAt) implements Model<Key> {
+        @Override
+        public Update<Key> update(Key key) {
+            return Update.of(new Count(n + 1, failAt), Effect.println("handled " + (n + 1)));
+        }
+
+        @Override
+        public String view() {
+            if (n == failAt) {
+                throw new IllegalStateException("view failed at " + n);
+            }
+            return "count: " + n;
+        }
+    }
+
+    @Test
+    void updateRunsAheadOfASlowTerminal() throws Exception {
+        SlowBackend terminal = new SlowBackend(30, 3, 30);
+        AtomicInteger messages = new AtomicInteger();
+        AtomicInteger frames = new AtomicInteger();
+        Program<Key> program = program(terminal, messages, frames).build();
+        Thread thread = start(program, new Count(0, -1), new AtomicReference<>());
+        await(() -> frames.get() > 0);
+        long start = System.nanoTime();
+        terminal.type("k".repeat(100));
+        await(() -> messages.get() == 100);
+        long handled = System.nanoTime() - start;
+        await(() -> terminal.line(0).equals("count: 100"));
+        // One frame per message would take 3 s on this terminal
+        assertTrue(handled < Duration.ofMillis(1500).toNanos(), "handled in " + handled / 1_000_000 + " ms");
+        assertTrue(frames.get() < 50, "frames " + frames.get());
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void linesPrintedForSkippedFramesAreKept() throws Exception {
+        SlowBackend terminal = new SlowBackend(30, 40, 20);
+        AtomicInteger messages = new AtomicInteger();
+        AtomicInteger frames = new AtomicInteger();
+        Program<Key> program = program(terminal, messages, frames).inline(1).build();
+        Thread thread = start(program, new Count(0, -1), new AtomicReference<>());
+        await(() -> frames.get() > 0);
+        terminal.type("k".repeat(30));
+        await(() -> terminal.screen().contains("count: 30"));
+        List<String> printed = new ArrayList<>();
+        for (String line : terminal.screen()) {
+            if (line.startsWith("handled ")) {
+                printed.add(line);
+            }
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) {
+            expected.add("handled " + i);
+        }
+        assertEquals(expected, printed);
+        assertTrue(frames.get() < 31, "frames " + frames.get());
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void aFailingViewStopsTheProgram() throws Exception {
+        HeadlessBackend terminal = new HeadlessBackend(30, 3);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Program<Key> program = program(terminal, new AtomicInteger(), new AtomicInteger()).build();
+        Thread thread = start(program, new Count(0, 2), failure);
+        terminal.type("kk");
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertTrue(failure.get() instanceof IllegalStateException, String.valueOf(failure.get()));
+        assertEquals("view failed at 2", failure.get().getMessage());
+    }
+
+    private static Program.Builder<Key> program(HeadlessBackend terminal, AtomicInteger messages,
+            AtomicInteger frames) {
+        return Program.of((Event e) -> e instanceof Event.KeyEvent ? Optional.of(new Key()) : Optional.<Key>empty(),
+                (Model<Key> m) -> List.<Stream<Key>>of())
+                .backend(terminal)
+                .pipelined()
+                .listener(new ProgramListener() {
+                    @Override
+                    public void onMessage(Object message, long queuedNanos, long updateNanos) {
+                        messages.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onFrame(long viewNanos, long encodeNanos, long writeNanos, long bytes,
+                            long latencyNanos) {
+                        frames.incrementAndGet();
+                    }
+                });
+    }
+
+    private static Thread start(Program<Key> program, Model<Key> model, AtomicReference<Throwable> failure) {
+        Thread thread = new Thread(() -> {
+            try {
+                program.run(model);
+            } catch (IOException | RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// The summary trees behind Series.of and TimeSeries must answer every range query exactly as a
+// linear scan does
+class SeriesTest {
+    // Only size() and get(), so every aggregate is the interface's scan
+    private static Series scan(Series series) {
+        return new Series() {
+            @Override
+            public int size() {
+                return series.size();
+            }
+
+            @Override
+            public double get(int index) {
+                return series.get(index);
+            }
+        };
+    }
+
+    private static double[] values(Random random, int n) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            // Few distinct values, so ties are common, and some gaps
+            values[i] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(50);
+        }
+        return values;
+    }
+
+    private static void assertSameAggregates(Series expected, Series actual, Random random, int queries) {
+        int n = expected.size();
+        assertEquals(n, actual.size());
+        for (int q = 0; q < queries; q++) {
+            int from = random.nextInt(n + 1);
+            int to = from + random.nextInt(n - from + 1);
+            String range = "[" + from + ", " + to + ")";
+            assertEquals(expected.minIndex(from, to), actual.minIndex(from, to), "min " + range);
+            assertEquals(expected.maxIndex(from, to), actual.maxIndex(from, to), "max " + range);
+            assertEquals(expected.mean(from, to), actual.mean(from, to), 1e-9, "mean " + range);
+        }
+    }
+
+    @Test
+    void blockIndexMatchesScan() {
+        Random random = new Random(11);
+        for (int n : new int[] {0, 1, 7, 8, 9, 64, 65, 513, 10_000}) {
+            double[] values = values(random, n);
+            Series indexed = Series.of(values);
+            assertSameAggregates(scan(indexed), indexed, random, 500);
+        }
+    }
+
+    @Test
+    void blockIndexFollowsInvalidatedWrites() {
+        Random random = new Random(12);
+        double[] values = values(random, 3000);
+        BlockIndex index = new BlockIndex(values);
+        for (int round = 0; round < 50; round++) {
+            int at = random.nextInt(values.length);
+            values[at] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(100) - 25;
+            index.invalidate(at);
+            int from = random.nextInt(values.length);
+            int to = from + random.nextInt(values.length - from + 1);
+            Series reference = scan(Series.of(values));
+            assertEquals(reference.minIndex(from, to), index.minIndex(from, to));
+            assertEquals(reference.maxIndex(from, to), index.maxIndex(from, to));
+            assertEquals(reference.mean(from, to), index.mean(from, to), 1e-9);
+        }
+    }
+
+    @Test
+    void timeSeriesWindowsMatchScan() {
+        Random random = new Random(13);
+        TimeSeries series = TimeSeries.withCapacity(5000);
+        for (int i = 0; i < 12_345; i++) {
+            series.append(i, random.nextInt(10) == 0 ? Double.NaN : random.nextInt(50));
+            if (i % 997 == 0 || i == 12_344) {
+                TimeSeries.Snapshot snapshot = series.snapshot();
+                assertEquals(Math.min(i + 1, 5000), snapshot.size());
+                assertSameAggregates(scan(snapshot), snapshot, random, 200);
+                TimeSeries.Snapshot last = snapshot.last(1500);
+                assertSameAggregates(scan(last), last, random, 100);
+            }
+        }
+    }
+
+    @Test
+    void timeSeriesMatchesAReferenceDeque() {
+        Random random = new Random(14);
+        for (int capacity : new int[] {1, 2, 1023, 1024, 1025, 5000}) {
+            TimeSeries series = TimeSeries.withCapacity(capacity);
+            ArrayDeque<double[]> reference = new ArrayDeque<>();
+            for (int i = 0; i < 3 * capacity + 17; i++) {
+                double value = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(1000);
+                series.append(i, value);
+                reference.addLast(new double[] {i, value});
+                if (reference.size() > capacity) {
+                    reference.removeFirst();
+                }
+            }
+            TimeSeries.Snapshot snapshot = series.snapshot();
+            assertEquals(reference.size(), snapshot.size(), "capacity " + capacity);
+            int at = 0;
+            for (double[] sample : reference) {
+                assertEquals((long) sample[0], snapshot.time(at));
+                assertEquals(sample[1], snapshot.get(at), 0);
+                at++;
+            }
+            double[] present = reference.stream().mapToDouble(sample -> sample[1]).filter(v -> !Double.isNaN(v))
+                    .sorted().toArray();
+            for (double p : new double[] {0, 1, 50, 90, 99, 100}) {
+                double expected = present.length == 0 ? Double.NaN
+                        : present[Math.max(0, (int) Math.ceil(p / 100 * present.length) - 1)];
+                assertEquals(expected, snapshot.percentile(p), 0, "p" + p + ", capacity " + capacity);
+            }
+        }
+    }
+
+    @Test
+    void snapshotsDoNotChangeWhenMoreIsAppended() {
+        TimeSeries series = TimeSeries.withCapacity(2000);
+        for (int i = 0; i < 3000; i++) {
+            series.append(i, i);
+        }
+        TimeSeries.Snapshot snapshot = series.snapshot();
+        double mean = snapshot.mean();
+        for (int i = 0; i < 5000; i++) {
+            series.append(3000 + i, -1);
+        }
+        assertEquals(1000, snapshot.get(0), 0);
+        assertEquals(2999, snapshot.latest(), 0);
+        assertEquals(mean, snapshot.mean(), 0);
+        assertEquals(2000, snapshot.since(2000).get(0), 0);
+        assertTrue(series.snapshot().max() < 0);
+    }
+
+    @Test
+    void snapshotsTakenWhileAppendingHoldTheSamplesCounted() throws Exception {
+        // One chunk of capacity, so whole-ring snapshots are the common case
+        TimeSeries series = TimeSeries.withCapacity(TimeSeries.CHUNK);
+        Thread writer = new Thread(() -> {
+            for (long i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                series.append(i, i);
+            }
+        });
+        writer.start();
+        try {
+            long deadline = System.nanoTime() + 500_000_000L;
+            while (System.nanoTime() < deadline) {
+                TimeSeries.Snapshot snapshot = series.snapshot();
+                long appended = series.count();
+                if (snapshot.isEmpty()) {
+                    continue;
+                }
+                double first = snapshot.get(0);
+                for (int i = 0; i < snapshot.size(); i++) {
+                    // Sample n holds n, so a sample from the wrong chunk shows up as a gap
+                    assertEquals(first + i, snapshot.get(i), 0, "sample " + i);
+                    assertEquals((long) snapshot.get(i), snapshot.time(i), "sample " + i);
+                }
+                assertTrue(first + snapshot.size() <= appended, "first " + first);
+            }
+        } finally {
+            writer.interrupt();
+            writer.join();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Clients attached over a socket see the program at their own size, send it input and can leave
+// without stopping it
+class SessionServerTest {
+    @TempDir
+    Path dir;
+
+    record Key(String text) {
+    }
+
+    record Typed(String text) implements Model<Key> {
+        @Override
+        public Update<Key> update(Key key) {
+            return Update.of(new Typed(text + key.text()));
+        }
+
+        @Override
+        public String view() {
+            return "typed: " + text + "\n" + "=".repeat(50);
+        }
+    }
+
+    // The far end of a session: a HeadlessBackend shows what the server sends
+    static final class Client implements AutoCloseable {
+        final HeadlessBackend screen = new HeadlessBackend(80, 24);
+        final SocketChannel channel;
+        final Thread reader;
+
+        Client(Path socket) throws IOException {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            reader = new Thread(() -> {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                OutputStream out = screen.output();
+                try {
+                    while (channel.read(buffer) >= 0) {
+                        out.write(buffer.array(), 0, buffer.position());
+                        out.flush();
+                        buffer.clear();
+                    }
+                } catch (IOException ignored) {
+                    // Closed
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        void send(String text) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        void resize(int width, int height) throws IOException {
+            screen.resize(width, height);
+            send(String.format(Terminal.ANSI.REPORT_SIZE, height, width));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    @Test
+    void clientsAttachResizeAndDetach() throws Exception {
+        HeadlessBackend local = new HeadlessBackend(60, 5);
+        Program<Key> program = program(local);
+        Thread thread = start(program);
+        Path socket = dir.resolve("app.sock");
+        SessionServer server = SessionServer.start(program, UnixDomainSocketAddress.of(socket));
+        try {
+            Client client = new Client(socket);
+            await(() -> server.clients() == 1 && program.viewers() == 1);
+            await(() -> client.screen.line(0).equals("typed:") && client.screen.line(1).equals("=".repeat(50)));
+
+            // Each client is painted at its own size
+            client.resize(30, 4);
+            await(() -> client.screen.line(1).equals("=".repeat(30)));
+            await(() -> local.line(1).equals("=".repeat(50)));
+
+            // Client keys reach the shared model
+            client.send("ab");
+            await(() -> local.line(0).equals("typed: ab"));
+            await(() -> client.screen.line(0).equals("typed: ab"));
+
+            client.close();
+            await(() -> server.clients() == 0 && program.viewers() == 0);
+            local.type("c");
+            await(() -> local.line(0).equals("typed: abc"));
+        } finally {
+            server.close();
+            program.quit();
+            thread.join(5000);
+        }
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    void closingTheServerDetachesItsClients() throws Exception {
+        HeadlessBackend local = new HeadlessBackend(60, 5);
+        Program<Key> program = program(local);
+        Thread thread = start(program);
+        Path socket = dir.resolve("app.sock");
+        SessionServer server = SessionServer.start(program, UnixDomainSocketAddress.of(socket));
+        Client client = new Client(socket);
+        await(() -> client.screen.isAlternateScreen());
+        server.close();
+        await(() -> program.viewers() == 0 && !client.screen.isAlternateScreen());
+        client.reader.join(5000);
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void otherFilesAreNeverReplaced() throws Exception {
+        Program<Key> program = program(new HeadlessBackend());
+        Path file = Files.writeString(dir.resolve("notes.txt"), "keep me");
+        assertThrows(IOException.class, () -> SessionServer.start(program, UnixDomainSocketAddress.of(file)));
+        assertEquals("keep me", Files.readString(file));
+    }
+
+    @Test
+    void aStaleSocketIsReplacedButALiveOneIsNot() throws Exception {
+        Program<Key> program = program(new HeadlessBackend());
+        Path socket = dir.resolve("app.sock");
+        // Left behind by a server that went away without cleaning up
+        ServerSocketChannel stale = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        stale.bind(UnixDomainSocketAddress.of(socket));
+        stale.close();
+        assertTrue(Files.exists(socket));
+        SessionServer server = SessionServer.start(program, UnixDomainSocketAddress.of(socket));
+        try {
+            assertThrows(IOException.class, () -> SessionServer.start(program, UnixDomainSocketAddress.of(socket)));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    void tcpStaysOnLoopbackUnlessAllowed() throws Exception {
+        Program<Key> program = program(new HeadlessBackend());
+        assertThrows(IOException.class, () -> SessionServer.start(program, new InetSocketAddress("0.0.0.0", 0)));
+        SessionServer loopback = SessionServer.start(program, new InetSocketAddress("127.0.0.1", 0));
+        loopback.close();
+        SessionServer any = SessionServer.start(program, new InetSocketAddress("0.0.0.0", 0), true);
+        any.close();
+    }
+
+    private static Program<Key> program(HeadlessBackend terminal) {
+        return Program.of((Event e) -> e instanceof Event.KeyEvent key && key.key() == Event.Key.CHAR
+                ? Optional.of(new Key(key.sequence())) : Optional.<Key>empty(), (Model<Key> m) -> List.<Stream<Key>>of())
+                .backend(terminal)
+                .build();
+    }
+
+    private static Thread start(Program<Key> program) {
+        Thread thread = new Thread(() -> {
+            try {
+                program.run(new Typed(""));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
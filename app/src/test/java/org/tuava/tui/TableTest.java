@@ -0,0 +1,66 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TableTest {
+    private static Table.Data data(String[] cells) {
+        return new Table.Data() {
+            @Override
+            public int rowCount() {
+                return cells.length;
+            }
+
+            @Override
+            public String cell(int row, int column) {
+                return cells[row];
+            }
+        };
+    }
+
+    @Test
+    void equalKeysKeepTheirRowOrder() {
+        // Enough rows that the merge passes run, not only the insertion-sorted runs
+        Random random = new Random(3);
+        String[] cells = new String[5000];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = String.valueOf(random.nextInt(20));
+        }
+        for (boolean descending : new boolean[] {false, true}) {
+            int[] order = Table.sortIndex(data(cells), 0, descending);
+            Integer[] expected = new Integer[cells.length];
+            Arrays.setAll(expected, i -> i);
+            Comparator<Integer> byValue = Comparator.comparingInt(i -> Integer.parseInt(cells[i]));
+            Arrays.sort(expected, descending ? byValue.reversed() : byValue);
+            assertArrayEquals(Arrays.stream(expected).mapToInt(Integer::intValue).toArray(), order);
+        }
+    }
+
+    @Test
+    void numbersSortByValueAndTextIgnoresCase() {
+        assertArrayEquals(new int[] {1, 3, 0, 2}, Table.sortIndex(data(new String[] {"10", "2", "100", "9.5"}), 0, false));
+        assertArrayEquals(new int[] {2, 0, 1, 3},
+                Table.sortIndex(data(new String[] {"banana", "Cherry", "apple", ""}), 0, false));
+        // Empty cells stay last in either direction
+        assertArrayEquals(new int[] {1, 0, 2, 3},
+                Table.sortIndex(data(new String[] {"banana", "Cherry", "apple", ""}), 0, true));
+    }
+
+    @Test
+    void comparatorSortIsStable() {
+        String[] cells = {"b", "a", "b", "a", "c", "a"};
+        int[] order = Table.sortIndex(data(cells), 0, Comparator.naturalOrder());
+        assertArrayEquals(new int[] {1, 3, 5, 0, 2, 4}, order);
+        List<Integer> seen = Arrays.stream(order).boxed().sorted().toList();
+        assertTrue(seen.equals(List.of(0, 1, 2, 3, 4, 5)));
+        assertEquals(cells.length, order.length);
+    }
+}
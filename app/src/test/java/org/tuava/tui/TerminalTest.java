@@ -0,0 +1,178 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+// Capability probing (DECRQM for mode 2026, then DA1) and the synchronized-update wrapping it enables
+class TerminalTest {
+    // Claims to be a terminal but never answers, like one that ignores the queries
+    static final class SilentBackend implements TerminalBackend {
+        final HeadlessBackend keys = new HeadlessBackend();
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+        @Override
+        public synchronized OutputStream output() {
+            return written;
+        }
+
+        @Override
+        public InputStream input() {
+            return keys.input();
+        }
+
+        @Override
+        public Terminal.TerminalSize size() {
+            return new Terminal.TerminalSize(20, 3);
+        }
+
+        @Override
+        public void enterRawMode() {
+        }
+
+        @Override
+        public void exitRawMode() {
+        }
+
+        @Override
+        public boolean answersQueries() {
+            return true;
+        }
+
+        synchronized String output(int from) {
+            return written.toString(StandardCharsets.UTF_8).substring(from);
+        }
+    }
+
+    record Key(String text) {
+    }
+
+    record Typed(String text) implements Model<Key> {
+        @Override
+        public Update<Key> update(Key key) {
+            return Update.of(new Typed(text + key.text()));
+        }
+
+        @Override
+        public String view() {
+            return "typed: " + text;
+        }
+    }
+
+    @Test
+    void probeReadsTheAnswers() throws IOException {
+        Terminal terminal = new Terminal(new HeadlessBackend());
+        terminal.enterRawMode();
+        long start = System.nanoTime();
+        Terminal.Capabilities capabilities = terminal.probe(Duration.ofSeconds(5));
+        // DA1 ends the wait long before the timeout
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertTrue(capabilities.synchronizedOutput());
+        assertEquals(capabilities, terminal.probe(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void aSilentTerminalTimesOutWithNothingSupported() throws IOException {
+        SilentBackend backend = new SilentBackend();
+        Terminal terminal = new Terminal(backend);
+        terminal.enterRawMode();
+        long start = System.nanoTime();
+        Terminal.Capabilities capabilities = terminal.probe(Duration.ofMillis(150));
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= Duration.ofMillis(150).toNanos(), "returned after " + elapsed + " ns");
+        assertTrue(elapsed < Duration.ofSeconds(2).toNanos(), "returned after " + elapsed + " ns");
+        assertFalse(capabilities.synchronizedOutput());
+        assertFalse(capabilities.bracketedPaste());
+        assertTrue(backend.output(0).contains(Terminal.ANSI.QUERY_SYNCHRONIZED_OUTPUT));
+        assertTrue(backend.output(0).endsWith(Terminal.ANSI.QUERY_PRIMARY_ATTRIBUTES));
+    }
+
+    @Test
+    void keysTypedDuringTheProbeAreKept() throws IOException {
+        HeadlessBackend backend = new HeadlessBackend();
+        Terminal terminal = new Terminal(backend);
+        terminal.enterRawMode();
+        backend.type("ab");
+        assertTrue(terminal.probe(Duration.ofSeconds(5)).synchronizedOutput());
+        assertEquals(new Event.KeyEvent(Event.Key.CHAR, "a"), terminal.readEvent());
+        assertEquals(new Event.KeyEvent(Event.Key.CHAR, "b"), terminal.readEvent());
+    }
+
+    @Test
+    void noQueriesWithoutRawModeOrATimeout() throws IOException {
+        SilentBackend backend = new SilentBackend();
+        Terminal cooked = new Terminal(backend);
+        assertFalse(cooked.probe(Duration.ofSeconds(5)).synchronizedOutput());
+        Terminal zero = new Terminal(backend);
+        zero.enterRawMode();
+        assertFalse(zero.probe(Duration.ZERO).synchronizedOutput());
+        assertEquals("", backend.output(0));
+    }
+
+    @Test
+    void framesAreWrappedWhenSupported() throws Exception {
+        HeadlessBackend terminal = new HeadlessBackend(30, 3);
+        Program<Key> program = program(terminal);
+        Thread thread = start(program);
+        terminal.type("abc");
+        await(() -> terminal.line(0).equals("typed: abc"));
+        assertTrue(program.capabilities().synchronizedOutput());
+        assertTrue(terminal.synchronizedUpdates() > 0);
+        program.quit();
+        thread.join(5000);
+    }
+
+    @Test
+    void framesAreNotWrappedOtherwise() throws Exception {
+        SilentBackend backend = new SilentBackend();
+        Program<Key> program = program(backend);
+        Thread thread = start(program);
+        await(() -> backend.output(0).contains("typed:"));
+        backend.keys.type("x");
+        await(() -> backend.output(0).contains("x"));
+        program.quit();
+        thread.join(5000);
+        assertFalse(program.capabilities().synchronizedOutput());
+        assertFalse(backend.output(0).contains(Terminal.ANSI.BEGIN_SYNCHRONIZED_UPDATE));
+    }
+
+    private static Program<Key> program(TerminalBackend backend) {
+        return Program.of((Event e) -> e instanceof Event.KeyEvent key && key.key() == Event.Key.CHAR
+                ? Optional.of(new Key(key.sequence())) : Optional.<Key>empty(), (Model<Key> m) -> List.<Stream<Key>>of())
+                .backend(backend)
+                .build();
+    }
+
+    private static Thread start(Program<Key> program) {
+        Thread thread = new Thread(() -> {
+            try {
+                program.run(new Typed(""));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
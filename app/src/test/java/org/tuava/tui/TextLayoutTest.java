@@ -0,0 +1,68 @@
+package org.tuava.tui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TextLayoutTest {
+    private static final String RED = "\u001b[31m";
+    private static final String RESET = "\u001b[0m";
+
+    @Test
+    void widthCountsColumns() {
+        assertEquals(5, TextLayout.width("hello"));
+        assertEquals(4, TextLayout.width("中文"));
+        assertEquals(2, TextLayout.width("🚀"));
+        assertEquals(2, TextLayout.width("☕"));
+        assertEquals(2, TextLayout.width("🩷"));
+        assertEquals(1, TextLayout.width("é"));
+        assertEquals(2, TextLayout.width(RED + "ab" + RESET));
+        assertEquals(0, TextLayout.width("\u00ad\u0085"));
+    }
+
+    @Test
+    void tabIsOneColumnEverywhere() {
+        assertEquals(3, TextLayout.width("a\tb"));
+        assertEquals(List.of("a b"), TextLayout.wrap("a\tb", 3));
+        ScreenBuffer screen = new ScreenBuffer(5, 1);
+        screen.paint(0, 0, "a\tb");
+        assertEquals("b", screen.glyph(2, 0));
+    }
+
+    @Test
+    void truncateKeepsStylesClosed() {
+        String text = RED + "abcdefgh" + RESET;
+        String cut = TextLayout.truncate(text, 5);
+        assertEquals(5, TextLayout.width(cut));
+        assertEquals(RED + "abcd" + RESET + TextLayout.ELLIPSIS, cut);
+        assertEquals(TextLayout.ELLIPSIS + RED + "efgh" + RESET,
+                TextLayout.truncate(text, 5, TextLayout.Ellipsis.START));
+        assertEquals(text, TextLayout.truncate(text, 8));
+    }
+
+    @Test
+    void truncateNeverSplitsWideCharacters() {
+        String cut = TextLayout.truncate("中文字符", 4);
+        assertEquals("中" + TextLayout.ELLIPSIS, cut);
+        assertTrue(TextLayout.width(TextLayout.truncate("🚀🚀🚀", 4, TextLayout.Ellipsis.NONE)) <= 4);
+    }
+
+    @Test
+    void wrapBreaksAtSpacesAndSplitsLongWords() {
+        assertEquals(List.of("the quick", "brown fox"), TextLayout.wrap("the quick brown fox", 10));
+        assertEquals(List.of("abcd", "efgh", "ij"), TextLayout.wrap("abcdefghij", 4));
+        assertEquals(List.of("one", "", "two"), TextLayout.wrap("one\n\ntwo", 10));
+    }
+
+    @Test
+    void wrapFitsWideCharactersAndCarriesStyles() {
+        for (String line : TextLayout.wrap("中文中文中文 ok", 5)) {
+            assertTrue(TextLayout.width(line) <= 5, line);
+        }
+        List<String> lines = TextLayout.wrap(RED + "red words here" + RESET, 9);
+        assertEquals(List.of(RED + "red words" + RESET, RED + "here" + RESET), lines);
+    }
+}
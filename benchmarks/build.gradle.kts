@@ -0,0 +1,45 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation(project(":app"))
+    implementation(project(":examples"))
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    // Report allocation rate next to throughput so allocation regressions show up too
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    // e.g. ./gradlew :benchmarks:jmh -PjmhIncludes=Flex
+    (project.findProperty("jmhIncludes") as String?)?.let { includes = listOf(it) }
+}
+
+// Replay input traces through the example apps, e.g. ./gradlew :benchmarks:replay -PreplayArgs="todo --events 5000"
+tasks.register<JavaExec>("replay") {
+    group = "application"
+    description = "Replay input traces through the example apps and print frame latency percentiles"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "org.tuava.benchmarks.ReplayHarness"
+    args = (project.findProperty("replayArgs") as String?)?.split(" ") ?: listOf("all")
+}
+
+// Ensure UTF-8 source encoding
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
@@ -0,0 +1,42 @@
+package org.tuava.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tuava.tui.LineChart;
+import org.tuava.tui.Series;
+import org.tuava.tui.Sparkline;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ChartBenchmark {
+
+    @Param({ "1000", "1000000" })
+    int points;
+
+    private Series series;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        double[] values = new double[points];
+        for (int i = 0; i < points; i++) {
+            values[i] = Math.sin(i * 20.0 / points) * 100 + random.nextGaussian() * 5;
+        }
+        series = Series.of(values);
+        // Build the summaries outside the measurement, as a model holding the series would
+        series.maxIndex(0, points);
+    }
+
+    @Benchmark
+    public String sparkline() {
+        return Sparkline.of(series).width(120).build().render();
+    }
+
+    @Benchmark
+    public String lineChart() {
+        return LineChart.of(series).width(120).height(20).labels().build().render();
+    }
+}
@@ -0,0 +1,68 @@
+package org.tuava.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tuava.tui.Element;
+import org.tuava.tui.Flex;
+import org.tuava.tui.Style;
+import org.tuava.tui.Text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FlexBenchmark {
+
+    @Param({ "40", "160" })
+    int width;
+
+    @Param({ "4", "16" })
+    int children;
+
+    @Param({ "1", "3" })
+    int depth;
+
+    private Flex row;
+    private Flex column;
+
+    @Setup
+    public void setup() {
+        row = tree(Flex.Direction.ROW, depth, true);
+        column = tree(Flex.Direction.COLUMN, depth, true);
+    }
+
+    @Benchmark
+    public String row() {
+        return row.render();
+    }
+
+    @Benchmark
+    public String column() {
+        return column.render();
+    }
+
+    private Flex tree(Flex.Direction direction, int level, boolean root) {
+        List<Element> elements = new ArrayList<>(children);
+        for (int i = 0; i < children; i++) {
+            if (level <= 1) {
+                elements.add(Text.of("item " + i).foreground(Style.Color.values()[i % Style.Color.values().length])
+                        .build());
+            } else {
+                Flex.Direction nested = direction == Flex.Direction.ROW ? Flex.Direction.COLUMN : Flex.Direction.ROW;
+                elements.add(tree(nested, level - 1, false));
+            }
+        }
+        Flex.Builder builder = Flex.of()
+                .direction(direction)
+                .justify(Flex.Justify.SPACE_BETWEEN)
+                .align(Flex.Align.CENTER)
+                .gap(1)
+                .children(elements);
+        if (root) {
+            builder.width(width);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,70 @@
+package org.tuava.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tuava.tui.Layout;
+import org.tuava.tui.Style;
+import org.tuava.tui.TextLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class LayoutBenchmark {
+
+    @Param({ "40", "160" })
+    int width;
+
+    @Param({ "10", "100" })
+    int lines;
+
+    private String content;
+    private List<String> components;
+
+    @Setup
+    public void setup() {
+        Style style = Style.of().foreground(Style.Color.GREEN).withBold();
+        List<String> rows = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            rows.add(style.render("line " + i) + " plain text that is long enough to need truncating " + i);
+        }
+        content = Layout.verticalJoin(rows);
+        components = List.of(content, content, content, content);
+    }
+
+    @Benchmark
+    public String box() {
+        return Layout.box(content, width, lines + 2);
+    }
+
+    @Benchmark
+    public String truncate() {
+        return TextLayout.truncate(content, width, TextLayout.Ellipsis.MIDDLE);
+    }
+
+    // Same text and width every call, as on a re-render: served from the wrap cache
+    @Benchmark
+    public List<String> wrapCached() {
+        return TextLayout.wrap(content, width);
+    }
+
+    // A width never seen before, as while a terminal is being resized
+    @Benchmark
+    public List<String> wrapUncached() {
+        return TextLayout.wrap(content + ++wrapCounter, width);
+    }
+
+    private long wrapCounter = 0;
+
+    @Benchmark
+    public String horizontalJoin() {
+        return Layout.horizontalJoin(components);
+    }
+
+    @Benchmark
+    public String verticalJoin() {
+        return Layout.verticalJoin(components);
+    }
+}
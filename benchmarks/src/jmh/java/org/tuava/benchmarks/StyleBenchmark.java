@@ -0,0 +1,50 @@
+package org.tuava.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tuava.tui.Layout;
+import org.tuava.tui.Style;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class StyleBenchmark {
+
+    private final Style plain = Style.of();
+    private final Style full = Style.of()
+            .foreground(Style.Color.WHITE)
+            .background(Style.Color.BLUE)
+            .withBold()
+            .withItalic()
+            .withUnderline()
+            .withReverse();
+    private final String text = "The quick brown fox jumps over the lazy dog";
+    private String styled;
+
+    @Setup
+    public void setup() {
+        styled = full.render("styled") + " and " + plain.render(text) + " " + full.render(text);
+    }
+
+    @Benchmark
+    public String renderPlain() {
+        return plain.render(text);
+    }
+
+    @Benchmark
+    public String renderFull() {
+        return full.render(text);
+    }
+
+    // Width computation: every pad/center first measures the visible width of styled text
+    @Benchmark
+    public String padRight() {
+        return Layout.padRight(styled, 160);
+    }
+
+    @Benchmark
+    public String center() {
+        return Layout.center(styled, 160);
+    }
+}
@@ -0,0 +1,85 @@
+package org.tuava.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tuava.tui.ScreenBuffer;
+import org.tuava.tui.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class TableBenchmark {
+
+    @Param({ "10000", "500000" })
+    int rows;
+
+    private static final int COLUMNS = 20;
+
+    private final List<String> columns = new ArrayList<>();
+    private String[][] cells;
+    private Table.Data data;
+    private int[] sorted;
+    private ScreenBuffer screen;
+    private int frame;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        cells = new String[rows][COLUMNS];
+        for (int r = 0; r < rows; r++) {
+            cells[r][0] = Integer.toString(r);
+            cells[r][1] = Integer.toString(random.nextInt(100_000));
+            for (int c = 2; c < COLUMNS; c++) {
+                cells[r][c] = "value-" + random.nextInt(1000);
+            }
+        }
+        for (int c = 0; c < COLUMNS; c++) {
+            columns.add("column " + c);
+        }
+        data = new Table.Data() {
+            @Override
+            public int rowCount() {
+                return rows;
+            }
+
+            @Override
+            public String cell(int row, int column) {
+                return cells[row][column];
+            }
+        };
+        sorted = Table.sortIndex(data, 1, false);
+        screen = new ScreenBuffer(200, 50);
+    }
+
+    // One frame while scrolling through the sorted table
+    @Benchmark
+    public String render() {
+        frame = (frame + 37) % rows;
+        return Table.of(columns, data).order(sorted).selected(frame).width(200).height(50).build().render();
+    }
+
+    @Benchmark
+    public ScreenBuffer paint() {
+        frame = (frame + 37) % rows;
+        Table.of(columns, data).order(sorted).selected(frame).width(200).height(50).build().paint(screen, 0, 0);
+        return screen;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int[] sortNumeric() {
+        return Table.sortIndex(data, 1, true);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int[] sortText() {
+        return Table.sortIndex(data, 2, false);
+    }
+}
@@ -0,0 +1,96 @@
+package org.tuava.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tuava.examples.ClockApp;
+import org.tuava.examples.CounterApp;
+import org.tuava.examples.TodoApp;
+import org.tuava.tui.BenchmarkFrames;
+import org.tuava.tui.Model;
+import org.tuava.tui.Terminal;
+import org.tuava.tui.TerminalBackend;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ViewBenchmark {
+
+    @Param({ "counter", "todo", "todo-200", "clock" })
+    String app;
+
+    private Model<?> model;
+    private Terminal terminal;
+    private BenchmarkFrames frames;
+
+    @Setup
+    public void setup() {
+        model = switch (app) {
+            case "counter" -> CounterApp.CounterModel.initial();
+            case "todo" -> TodoApp.TodoModel.initial();
+            case "todo-200" -> {
+                List<TodoApp.TodoItem> items = new ArrayList<>(200);
+                for (int i = 0; i < 200; i++) {
+                    items.add(new TodoApp.TodoItem("Todo number " + i, i % 3 == 0));
+                }
+                yield TodoApp.TodoModel.initial().toBuilder().todos(items).selectedIndex(100).build();
+            }
+            case "clock" -> ClockApp.ClockModel.initial();
+            default -> throw new IllegalArgumentException("Unknown app: " + app);
+        };
+        terminal = new Terminal(new DiscardingBackend());
+        frames = new BenchmarkFrames(terminal);
+    }
+
+    @Benchmark
+    public String view() {
+        return model.view();
+    }
+
+    // Model.view() all the way to terminal bytes through the fullscreen renderer: painted into a
+    // screen buffer, encoded in full by the CellEncoder and written
+    @Benchmark
+    public void viewToBytes(Blackhole bh) {
+        frames.redraw(model.view());
+        bh.consume(terminal.bytesWritten());
+    }
+
+    // The same view again: painted and diffed, with nothing left to write
+    @Benchmark
+    public void unchangedFrame(Blackhole bh) {
+        frames.frame(model.view());
+        bh.consume(terminal.bytesWritten());
+    }
+
+    static final class DiscardingBackend implements TerminalBackend {
+        private final OutputStream out = OutputStream.nullOutputStream();
+
+        @Override
+        public OutputStream output() {
+            return out;
+        }
+
+        @Override
+        public InputStream input() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public Terminal.TerminalSize size() {
+            return new Terminal.TerminalSize(120, 40);
+        }
+
+        @Override
+        public void enterRawMode() {
+        }
+
+        @Override
+        public void exitRawMode() {
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.tuava.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tuava.tui.Element;
+import org.tuava.tui.Flex;
+import org.tuava.tui.Layout;
+import org.tuava.tui.Style;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A grid of independent, expensive panels, rendered sequentially and with Flex.Builder.parallel()
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class WallBoardBenchmark {
+
+    @Param({ "24" })
+    int panels;
+
+    @Param({ "40" })
+    int rowsPerPanel;
+
+    private Flex sequential;
+    private Flex parallel;
+
+    @Setup
+    public void setup() {
+        sequential = board(false);
+        parallel = board(true);
+        if (!sequential.render().equals(parallel.render())) {
+            throw new IllegalStateException("Parallel rendering differs from sequential rendering");
+        }
+    }
+
+    @Benchmark
+    public String sequential() {
+        return sequential.render();
+    }
+
+    @Benchmark
+    public String parallel() {
+        return parallel.render();
+    }
+
+    private Flex board(boolean parallel) {
+        int columns = 6;
+        List<Element> rows = new ArrayList<>();
+        for (int r = 0; r < panels; r += columns) {
+            Flex.Builder row = Flex.row().gap(1);
+            for (int c = r; c < Math.min(panels, r + columns); c++) {
+                row.add(new Panel(c, rowsPerPanel));
+            }
+            if (parallel) {
+                row.parallel();
+            }
+            rows.add(row.build());
+        }
+        Flex.Builder board = Flex.column().children(rows);
+        if (parallel) {
+            board.parallel();
+        }
+        return board.build();
+    }
+
+    private record Panel(int id, int rows) implements Element {
+        @Override
+        public String render() {
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < rows; i++) {
+                double value = Math.sin(id * 31 + i) * 1000;
+                Style style = Style.of().foreground(value < 0 ? Style.Color.RED : Style.Color.GREEN);
+                if (i > 0) {
+                    body.append('\n');
+                }
+                body.append(Layout.padRight(String.format("%-8s %10.3f", "m" + i, value), 20))
+                        .append(style.render(value < 0 ? "▼" : "▲"));
+            }
+            return Layout.box(body.toString(), 24, rows + 2);
+        }
+
+        @Override
+        public int cost() {
+            return rows * 4;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.tuava.tui;
+
+// The fullscreen path a Program takes from a String view to terminal bytes, without the Program:
+// the view is painted into a ScreenBuffer, diffed against the previous frame by the renderer's
+// CellEncoder and written to the terminal. It lives in the runtime's package because the renderer
+// is internal to it.
+public final class BenchmarkFrames {
+    private final Terminal terminal;
+    private final FullscreenRenderer renderer = new FullscreenRenderer();
+
+    public BenchmarkFrames(Terminal terminal) {
+        this.terminal = terminal;
+        terminal.print(renderer.enter());
+    }
+
+    // Diffed against the last frame, as in a running program
+    public void frame(String view) {
+        Terminal.TerminalSize size = terminal.getSize();
+        ScreenBuffer screen = new ScreenBuffer(size.width(), size.height());
+        screen.paint(0, 0, view);
+        terminal.print(renderer.frame(screen));
+    }
+
+    // The whole screen, as after a resize or on the first frame
+    public void redraw(String view) {
+        renderer.reset();
+        frame(view);
+    }
+}
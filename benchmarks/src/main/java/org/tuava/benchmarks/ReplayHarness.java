@@ -0,0 +1,158 @@
+package org.tuava.benchmarks;
+
+import org.tuava.examples.ClockApp;
+import org.tuava.examples.CounterApp;
+import org.tuava.examples.TodoApp;
+import org.tuava.tui.HeadlessBackend;
+import org.tuava.tui.LatencyHistogram;
+import org.tuava.tui.Model;
+import org.tuava.tui.Program;
+import org.tuava.tui.ProgramListener;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// Replays a key trace through a Program on a headless backend and prints latency percentiles.
+//
+//   ReplayHarness [counter|todo|clock|all] [--events N] [--interval-ms M] [--seed S]
+//                 [--trace FILE] [--size WxH] [--record FILE]
+public final class ReplayHarness {
+    private static final List<String> APPS = List.of("counter", "todo", "clock");
+
+    public static void main(String[] args) throws Exception {
+        String app = "all";
+        int events = 2_000;
+        Duration interval = Duration.ofMillis(1);
+        long seed = 42;
+        Path tracePath = null;
+        Path recordPath = null;
+        int width = 120;
+        int height = 40;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--events" -> events = Integer.parseInt(args[++i]);
+                case "--interval-ms" -> interval = Duration.ofMillis(Long.parseLong(args[++i]));
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--trace" -> tracePath = Path.of(args[++i]);
+                case "--record" -> recordPath = Path.of(args[++i]);
+                case "--size" -> {
+                    String[] wh = args[++i].split("x");
+                    width = Integer.parseInt(wh[0]);
+                    height = Integer.parseInt(wh[1]);
+                }
+                default -> app = args[i];
+            }
+        }
+
+        if (recordPath != null) {
+            if (!APPS.contains(app)) {
+                throw new IllegalArgumentException("--record needs one of " + APPS);
+            }
+            Trace.Recorder recorder = new Trace.Recorder();
+            run(app, builder -> builder.listener(recorder));
+            recorder.trace().write(recordPath);
+            System.out.println("Recorded " + recorder.trace().entries().size() + " events to " + recordPath);
+            return;
+        }
+
+        for (String name : app.equals("all") ? APPS : List.of(app)) {
+            Trace trace = tracePath != null ? Trace.read(tracePath) : Trace.synthetic(name, events, interval, seed);
+            Stats stats = new Stats();
+            HeadlessBackend backend = new HeadlessBackend(width, height);
+            Thread feeder = new Thread(() -> feed(backend, trace), "tuava-trace-feeder");
+            feeder.setDaemon(true);
+            long start = System.nanoTime();
+            feeder.start();
+            run(name, builder -> builder.backend(backend).listener(stats));
+            long elapsed = System.nanoTime() - start;
+            feeder.interrupt();
+            stats.print(name, trace, elapsed, backend.bytesWritten());
+        }
+        System.exit(0);
+    }
+
+    private static void feed(HeadlessBackend backend, Trace trace) {
+        long start = System.nanoTime();
+        for (Trace.Entry entry : trace.entries()) {
+            long wait;
+            while ((wait = start + entry.offsetNanos() - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) {
+                    return;
+                }
+            }
+            backend.send(Trace.encode(entry.event()));
+        }
+        // Leave any text-entry mode, then quit
+        backend.type("\rq");
+    }
+
+    private interface Configure {
+        void apply(Program.Builder<?> builder);
+    }
+
+    private static void run(String app, Configure configure) throws Exception {
+        switch (app) {
+            case "counter" -> run(CounterApp.program(), CounterApp.CounterModel.initial(), configure);
+            case "todo" -> run(TodoApp.program(), TodoApp.TodoModel.initial(), configure);
+            case "clock" -> run(ClockApp.program(), ClockApp.ClockModel.initial(), configure);
+            default -> throw new IllegalArgumentException("Unknown app: " + app + ", expected one of " + APPS);
+        }
+    }
+
+    private static <M> void run(Program.Builder<M> builder, Model<M> model, Configure configure) throws Exception {
+        configure.apply(builder);
+        builder.build().run(model);
+    }
+
+    static final class Stats implements ProgramListener {
+        final LatencyHistogram queue = new LatencyHistogram();
+        final LatencyHistogram update = new LatencyHistogram();
+        final LatencyHistogram view = new LatencyHistogram();
+        final LatencyHistogram encode = new LatencyHistogram();
+        final LatencyHistogram write = new LatencyHistogram();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram bytes = new LatencyHistogram();
+
+        @Override
+        public void onMessage(Object message, long queuedNanos, long updateNanos) {
+            queue.record(queuedNanos);
+            update.record(updateNanos);
+        }
+
+        @Override
+        public void onFrame(long viewNanos, long encodeNanos, long writeNanos, long bytes, long latencyNanos) {
+            view.record(viewNanos);
+            encode.record(encodeNanos);
+            write.record(writeNanos);
+            this.bytes.record(bytes);
+            if (latencyNanos > 0) {
+                latency.record(latencyNanos);
+            }
+        }
+
+        void print(String app, Trace trace, long elapsedNanos, long totalBytes) {
+            System.out.printf("== %s: %d events over %d ms, %d messages, %d frames, %d bytes written%n",
+                    app, trace.entries().size(), elapsedNanos / 1_000_000, update.count(), view.count(), totalBytes);
+            System.out.printf("%-20s %9s %9s %9s %9s %9s %9s %9s%n",
+                    "metric", "count", "mean", "p50", "p90", "p99", "p99.9", "max");
+            row("queue wait (us)", queue, 1_000);
+            row("update (us)", update, 1_000);
+            row("view (us)", view, 1_000);
+            row("encode (us)", encode, 1_000);
+            row("write (us)", write, 1_000);
+            row("input->frame (us)", latency, 1_000);
+            row("bytes/frame", bytes, 1);
+            System.out.println();
+        }
+
+        private static void row(String name, LatencyHistogram h, long scale) {
+            System.out.printf("%-20s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, h.count(),
+                    h.mean() / scale, (double) h.percentile(50) / scale, (double) h.percentile(90) / scale,
+                    (double) h.percentile(99) / scale, (double) h.percentile(99.9) / scale, (double) h.max() / scale);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.tuava.benchmarks;
+
+import org.tuava.tui.Event;
+import org.tuava.tui.ProgramListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+// A timestamped sequence of key events. On disk it is one "<offset-micros>\t<KEY>\t<sequence>" line per event.
+public record Trace(List<Entry> entries) {
+
+    public record Entry(long offsetNanos, Event.KeyEvent event) {
+    }
+
+    public Trace {
+        entries = List.copyOf(entries);
+    }
+
+    public Duration duration() {
+        return entries.isEmpty() ? Duration.ZERO : Duration.ofNanos(entries.get(entries.size() - 1).offsetNanos());
+    }
+
+    public static Trace read(Path path) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\t", 3);
+            if (parts.length < 2) {
+                throw new IOException("Malformed trace line: " + line);
+            }
+            long offset = Long.parseLong(parts[0].trim()) * 1_000;
+            Event.Key key = Event.Key.valueOf(parts[1].trim());
+            String sequence = parts.length > 2 ? unescape(parts[2]) : "";
+            entries.add(new Entry(offset, new Event.KeyEvent(key, sequence)));
+        }
+        return new Trace(entries);
+    }
+
+    public void write(Path path) throws IOException {
+        List<String> lines = new ArrayList<>(entries.size() + 1);
+        lines.add("# offset-micros\tkey\tsequence");
+        for (Entry entry : entries) {
+            lines.add(entry.offsetNanos() / 1_000 + "\t" + entry.event().key() + "\t" + escape(entry.event().sequence()));
+        }
+        Files.write(path, lines, StandardCharsets.UTF_8);
+    }
+
+    // Bytes a terminal would send for this key, so replay exercises the real input parser
+    public static byte[] encode(Event.KeyEvent event) {
+        String bytes = switch (event.key()) {
+            case ENTER -> "\r";
+            case TAB -> "\t";
+            case BACKSPACE -> "\u007f";
+            case CTRL_C -> "\u0003";
+            case CTRL_D -> "\u0004";
+            case SPACE -> " ";
+            case ARROW_UP -> "\u001b[A";
+            case ARROW_DOWN -> "\u001b[B";
+            case ARROW_RIGHT -> "\u001b[C";
+            case ARROW_LEFT -> "\u001b[D";
+            case HOME -> "\u001b[H";
+            case END -> "\u001b[F";
+            default -> event.sequence();
+        };
+        return bytes.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static Trace synthetic(String app, int events, Duration spacing, long seed) {
+        Random random = new Random(seed);
+        List<Entry> entries = new ArrayList<>(events);
+        long step = spacing.toNanos();
+        long offset = 0;
+        boolean adding = false;
+        int typed = 0;
+        while (entries.size() < events) {
+            offset += step;
+            Event.KeyEvent event;
+            switch (app) {
+                case "counter" -> {
+                    int r = random.nextInt(100);
+                    event = r < 35 ? chr("+")
+                            : r < 70 ? chr("-")
+                            : r < 80 ? key(Event.Key.ARROW_UP, "\u001b[A")
+                            : r < 90 ? key(Event.Key.ARROW_DOWN, "\u001b[B")
+                            : r < 95 ? key(Event.Key.ENTER, "\n")
+                            : chr(String.valueOf((char) ('a' + random.nextInt(16))));
+                }
+                case "todo" -> {
+                    if (adding) {
+                        if (typed >= 4 + random.nextInt(12)) {
+                            event = key(Event.Key.ENTER, "\n");
+                            adding = false;
+                        } else {
+                            event = chr(String.valueOf((char) ('a' + random.nextInt(26))));
+                            typed++;
+                        }
+                    } else {
+                        int r = random.nextInt(100);
+                        if (r < 10) {
+                            event = chr("a");
+                            adding = true;
+                            typed = 0;
+                        } else {
+                            event = r < 40 ? chr("j") : r < 70 ? chr("k") : r < 95 ? chr(" ") : chr("d");
+                        }
+                    }
+                }
+                case "clock" -> event = chr(String.valueOf((char) ('a' + random.nextInt(16))));
+                default -> throw new IllegalArgumentException("Unknown app: " + app);
+            }
+            entries.add(new Entry(offset, event));
+        }
+        if (adding) {
+            entries.add(new Entry(offset + step, key(Event.Key.ENTER, "\n")));
+        }
+        return new Trace(entries);
+    }
+
+    private static Event.KeyEvent chr(String c) {
+        return new Event.KeyEvent(Event.Key.CHAR, c);
+    }
+
+    private static Event.KeyEvent key(Event.Key key, String sequence) {
+        return new Event.KeyEvent(key, sequence);
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            if (c < 0x20 || c == 0x7f || c == '\\') {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 5 < s.length() && s.charAt(i + 1) == 'u') {
+                sb.append((char) Integer.parseInt(s.substring(i + 2, i + 6), 16));
+                i += 5;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Records the key events of a live session
+    public static final class Recorder implements ProgramListener {
+        private final List<Entry> entries = Collections.synchronizedList(new ArrayList<>());
+        private final long start = System.nanoTime();
+
+        @Override
+        public void onEvent(Event event) {
+            if (event instanceof Event.KeyEvent key) {
+                entries.add(new Entry(System.nanoTime() - start, key));
+            }
+        }
+
+        public Trace trace() {
+            synchronized (entries) {
+                return new Trace(entries);
+            }
+        }
+    }
+}
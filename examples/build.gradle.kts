@@ -38,6 +38,15 @@ tasks.register<JavaExec>("runTodo") {
     standardInput = System.`in`
 }
 
+// Task to run the inline progress example
+tasks.register<JavaExec>("runProgress") {
+    group = "application"
+    description = "Run the inline progress example"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "org.tuava.examples.ProgressApp"
+    standardInput = System.`in`
+}
+
 // Ensure UTF-8 source encoding
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
@@ -43,12 +43,26 @@ public class ClockApp {
         return java.util.Optional.empty();
     }
 
+    public static Program.Builder<Msg> program() {
+        return Program.of(
+                ClockApp::mapEventToMsg,
+                (Model<Msg> m) -> java.util.List.of(
+                        Stream.interval("clock", Duration.ofSeconds(1), () -> Msg.TICK)));
+    }
+
     public static void main(String[] args) {
         try {
-            Program<Msg> program = new Program<>(
-                    ClockApp::mapEventToMsg,
-                    m -> java.util.List.of(
-                            Stream.interval("clock", Duration.ofSeconds(1), () -> Msg.TICK)));
+            Program<Msg> program = program().build();
+            if (args.length == 2 && args[0].equals("--serve")) {
+                // Share this clock with session clients: SessionClient <address>
+                SessionServer server = SessionServer.start(program, SessionServer.address(args[1]));
+                try {
+                    program.run(ClockModel.initial());
+                } finally {
+                    server.close();
+                }
+                return;
+            }
             program.run(ClockModel.initial());
         } catch (Exception e) {
             System.err.println("Error running clock app: " + e.getMessage());
@@ -4,7 +4,7 @@ import org.tuava.tui.*;
 
 public class CounterApp {
 
-    public record CounterModel(int count, String status) implements Model<Event> {
+    public record CounterModel(int count, String status) implements ElementModel<Event> {
 
         public static CounterModel initial() {
             return new CounterModel(0, "Press +/- to change counter, q to quit");
@@ -36,8 +36,8 @@ public class CounterApp {
         }
 
         @Override
-        public String view() {
-            Element ui = Flex.column()
+        public Element element() {
+            return Flex.column()
                     .align(Flex.Align.CENTER)
                     .justify(Flex.Justify.START)
                     .gap(1)
@@ -48,14 +48,16 @@ public class CounterApp {
                             Text.plain().foreground(Style.Color.YELLOW).build(status),
                             Text.plain().build("Controls: +/- to change, ↑↓ arrows, Enter to reset, q to quit")))
                     .build();
-
-            return ui.render();
         }
     }
 
+    public static Program.Builder<Event> program() {
+        return Program.<Event>of(java.util.Optional::of, m -> java.util.List.of());
+    }
+
     public static void main(String[] args) {
         try {
-            Program<Event> program = new Program<>(java.util.Optional::of, m -> java.util.List.of());
+            Program<Event> program = program().build();
             program.run(CounterModel.initial());
         } catch (Exception e) {
             System.err.println("Error running counter app: " + e.getMessage());
@@ -0,0 +1,96 @@
+package org.tuava.examples;
+
+import org.tuava.tui.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+public class PagerApp {
+    private static final int PAGE = 20;
+
+    public enum Msg {
+        DOWN, UP, PAGE_DOWN, PAGE_UP, TOP, BOTTOM, REFRESH, QUIT
+    }
+
+    public record PagerModel(PagedFile file, long top, boolean atEnd) implements Model<Msg> {
+
+        @Override
+        public Update<Msg> update(Msg msg) {
+            return switch (msg) {
+                case DOWN -> scrollBy(1);
+                case UP -> scrollBy(-1);
+                case PAGE_DOWN -> scrollBy(PAGE);
+                case PAGE_UP -> scrollBy(-PAGE);
+                case TOP -> Update.of(new PagerModel(file, 0, false));
+                // The tail is found from the end of the file, so this is instant even while indexing
+                case BOTTOM -> Update.of(new PagerModel(file, top, true));
+                // Redraw with the latest indexing progress
+                case REFRESH -> Update.of(new PagerModel(file, top, atEnd));
+                case QUIT -> Update.of(this, Effect.quit());
+            };
+        }
+
+        private Update<Msg> scrollBy(long delta) {
+            if (atEnd && !file.isIndexComplete()) {
+                // Line numbers near the end are not known until indexing finishes
+                return Update.of(this);
+            }
+            long from = atEnd ? Math.max(0, file.lineCount() - PAGE) : top;
+            long last = Math.max(0, file.lineCount() - 1);
+            return Update.of(new PagerModel(file, Math.max(0, Math.min(last, from + delta)), false));
+        }
+
+        @Override
+        public String view() {
+            return view(new Terminal.TerminalSize(80, 24));
+        }
+
+        @Override
+        public String view(Terminal.TerminalSize size) {
+            Pager.Builder pager = Pager.of(file).width(size.width()).height(size.height()).statusLine();
+            return (atEnd ? pager.end() : pager.top(top).lineNumbers()).build().render();
+        }
+    }
+
+    private static java.util.Optional<Msg> mapEventToMsg(Event e) {
+        if (e instanceof Event.KeyEvent k) {
+            return java.util.Optional.ofNullable(switch (k.key()) {
+                case ARROW_DOWN, ENTER -> Msg.DOWN;
+                case ARROW_UP -> Msg.UP;
+                case HOME -> Msg.TOP;
+                case END -> Msg.BOTTOM;
+                case CHAR -> switch (k.sequence()) {
+                    case "j" -> Msg.DOWN;
+                    case "k" -> Msg.UP;
+                    case " ", "f" -> Msg.PAGE_DOWN;
+                    case "b" -> Msg.PAGE_UP;
+                    case "g" -> Msg.TOP;
+                    case "G" -> Msg.BOTTOM;
+                    case "q" -> Msg.QUIT;
+                    default -> null;
+                };
+                default -> null;
+            });
+        }
+        return java.util.Optional.empty();
+    }
+
+    public static Program.Builder<Msg> program() {
+        return Program.of(PagerApp::mapEventToMsg,
+                (Model<Msg> m) -> ((PagerModel) m).file().isIndexComplete() ? java.util.List.of()
+                        : java.util.List.of(Stream.interval("index-progress", Duration.ofMillis(250), () -> Msg.REFRESH)));
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: PagerApp <file>");
+            System.exit(2);
+        }
+        try (PagedFile file = PagedFile.open(Path.of(args[0]))) {
+            program().build().run(new PagerModel(file, 0, false));
+        } catch (Exception e) {
+            System.err.println("Error running pager app: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
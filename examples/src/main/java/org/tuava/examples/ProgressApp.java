@@ -0,0 +1,73 @@
+package org.tuava.examples;
+
+import org.tuava.tui.*;
+
+import java.time.Duration;
+
+public class ProgressApp {
+    private static final int TOTAL = 1_000_000;
+    private static final int STEP = 2_500;
+    private static final int BAR_WIDTH = 40;
+
+    public enum Msg {
+        WORK, QUIT
+    }
+
+    public record ProgressModel(int done) implements Model<Msg> {
+
+        public static ProgressModel initial() {
+            return new ProgressModel(0);
+        }
+
+        @Override
+        public Update<Msg> update(Msg msg) {
+            return switch (msg) {
+                case WORK -> {
+                    int next = Math.min(TOTAL, done + STEP);
+                    if (next == TOTAL) {
+                        yield Update.of(new ProgressModel(next),
+                                Effect.batch(Effect.println("Processed " + TOTAL + " items"), Effect.quit()));
+                    }
+                    if (next % 100_000 == 0) {
+                        yield Update.of(new ProgressModel(next), Effect.println("Checkpoint at " + next));
+                    }
+                    yield Update.of(new ProgressModel(next));
+                }
+                case QUIT -> Update.of(this, Effect.quit());
+            };
+        }
+
+        @Override
+        public String view() {
+            int filled = (int) ((long) done * BAR_WIDTH / TOTAL);
+            String bar = Style.of().foreground(Style.Color.GREEN).render("█".repeat(filled))
+                    + "░".repeat(BAR_WIDTH - filled);
+            String count = Style.of().foreground(Style.Color.CYAN).render(done + "/" + TOTAL);
+            // Animated by the frame clock; no stream needed
+            String spinner = Spinner.of().build().render();
+            return spinner + " " + bar + " " + count + "\n" + Style.of().foreground(Style.Color.YELLOW).render("Press q to stop");
+        }
+    }
+
+    private static java.util.Optional<Msg> mapEventToMsg(Event e) {
+        if (e instanceof Event.KeyEvent k && k.key() == Event.Key.CHAR && "q".equals(k.sequence())) {
+            return java.util.Optional.of(Msg.QUIT);
+        }
+        return java.util.Optional.empty();
+    }
+
+    public static void main(String[] args) {
+        try {
+            Program<Msg> program = Program.of(ProgressApp::mapEventToMsg,
+                    (Model<Msg> m) -> java.util.List.of(
+                            Stream.interval("work", Duration.ofMillis(1), () -> Msg.WORK)))
+                    .inline(2)
+                    .frameInterval(Duration.ofMillis(100))
+                    .build();
+            program.run(ProgressModel.initial());
+        } catch (Exception e) {
+            System.err.println("Error running progress app: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -207,6 +207,28 @@ public class TodoApp {
 
         @Override
         public String view() {
+            Element ui = Flex.column()
+                    .align(Flex.Align.CENTER)
+                    .justify(Flex.Justify.START)
+                    .gap(1)
+                    .width(60)
+                    .children(java.util.List.of(
+                            Text.bold().foreground(Style.Color.MAGENTA).build("┌─ Tuava Todo App ─┐"),
+                            // Typing in ADDING mode only changes the input line, so the list is reused
+                            Memo.of("todo-list", java.util.List.of(todos, selectedIndex, mode), this::todoList),
+                            ifAdding(),
+                            Text.plain().foreground(Style.Color.YELLOW).build(statusMessage),
+                            Text.plain().build(switch (mode) {
+                                case VIEWING ->
+                                    "j/k or ↑↓: navigate | Space/Enter: toggle | a: add | d: delete | q: quit";
+                                case ADDING -> "Type todo text | Enter: save | Escape: cancel";
+                            })))
+                    .build();
+
+            return ui.render();
+        }
+
+        private Element todoList() {
             java.util.List<Element> listItems = new java.util.ArrayList<>();
 
             if (todos.isEmpty()) {
@@ -230,24 +252,7 @@ public class TodoApp {
                 }
             }
 
-            Element ui = Flex.column()
-                    .align(Flex.Align.CENTER)
-                    .justify(Flex.Justify.START)
-                    .gap(1)
-                    .width(60)
-                    .children(java.util.List.of(
-                            Text.bold().foreground(Style.Color.MAGENTA).build("┌─ Tuava Todo App ─┐"),
-                            Flex.column().gap(0).align(Flex.Align.START).children(listItems).build(),
-                            ifAdding(),
-                            Text.plain().foreground(Style.Color.YELLOW).build(statusMessage),
-                            Text.plain().build(switch (mode) {
-                                case VIEWING ->
-                                    "j/k or ↑↓: navigate | Space/Enter: toggle | a: add | d: delete | q: quit";
-                                case ADDING -> "Type todo text | Enter: save | Escape: cancel";
-                            })))
-                    .build();
-
-            return ui.render();
+            return Flex.column().gap(0).align(Flex.Align.START).children(listItems).build();
         }
 
         private Element ifAdding() {
@@ -259,9 +264,13 @@ public class TodoApp {
         }
     }
 
+    public static Program.Builder<Event> program() {
+        return Program.<Event>of(java.util.Optional::of, m -> java.util.List.of());
+    }
+
     public static void main(String[] args) {
         try {
-            Program<Event> program = new Program<>(java.util.Optional::of, m -> java.util.List.of());
+            Program<Event> program = program().build();
             program.run(TodoModel.initial());
         } catch (Exception e) {
             System.err.println("Error running todo app: " + e.getMessage());
@@ -13,3 +13,4 @@ plugins {
 rootProject.name = "tuava"
 include("app")
 include("examples")
+include("benchmarks")